@@ -8,7 +8,8 @@ import carbonconfiglib.config.ConfigSection;
 public class TesseractConfig {
 
     public static ConfigEntry.DoubleValue EU_TO_FE_RATIO, EU_TO_TRE_RATIO;
-    public static ConfigEntry.BoolValue ENABLE_FE_OR_TRE_INPUT, ENABLE_MI_COMPAT;
+    public static ConfigEntry.BoolValue ENABLE_FE_OR_TRE_INPUT, ENABLE_MI_COMPAT, ASYNC_REBUILD, FLOW_LEDGER;
+    public static ConfigEntry.IntValue PARALLEL_REBUILD_SIZE, REBUILD_BUDGET, SLEEP_TICKS;
 
     public static ConfigHandler CONFIG;
 
@@ -20,6 +21,11 @@ public class TesseractConfig {
         ENABLE_FE_OR_TRE_INPUT = section.addBool("enable_fe_or_tre_input", !TesseractPlatformUtils.INSTANCE.isForge(), "Enables EU Machines and cables being able to input FE or TRE(Tech Reborn Energy),",
                 "Please do not enable on forge unless you have balanced the fe compat to not be broken af due to power creep. - Default: false on forge, true on fabric");
         ENABLE_MI_COMPAT = section.addBool("enabled_mi_compat", true, "Enables Tesseract EU having compat with MI energy. - Default: true");
+        ASYNC_REBUILD = section.addBool("async_rebuild", false, "Computes the routes of changed networks on a background thread, the previous routes are used until the new ones are ready. - Default: false");
+        PARALLEL_REBUILD_SIZE = section.addInt("parallel_rebuild_size", 1024, "The number of nodes from which a network computes its routes on several threads, 0 to always use one thread. - Default: 1024").setMin(0);
+        REBUILD_BUDGET = section.addInt("rebuild_budget", 0, "The time in milliseconds per tick and dimension spent on rebuilding changed networks, the remaining ones are rebuilt on the next ticks, 0 to rebuild all of them at once. - Default: 0").setMin(0);
+        FLOW_LEDGER = section.addBool("flow_ledger", false, "Accounts the cable amperage and the pipe pressure once per tick from the routes used, instead of on every transfer. Overloads are found up to a tick later. - Default: false");
+        SLEEP_TICKS = section.addInt("sleep_ticks", 100, "The number of ticks without transfers or changes after which a network stops ticking until it is used again, 0 to always tick. - Default: 100").setMin(0);
         CONFIG = TesseractPlatformUtils.INSTANCE.createConfig(config);
         CONFIG.register();
     }
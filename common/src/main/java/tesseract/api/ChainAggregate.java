@@ -0,0 +1,22 @@
+package tesseract.api;
+
+/**
+ * A ChainAggregate is an interface that sums up the connectors of a chain, so the routes passing the chain can take
+ * it as a whole instead of link by link.
+ * <p>
+ * An aggregate is computed by the first route passing its chain and kept by the chain until the chain is rebuilt,
+ * the later routes share it. It must not depend on the direction the chain is passed in.
+ * </p>
+ *
+ * @see Consumer#createAggregate()
+ */
+public interface ChainAggregate<C extends IConnectable> {
+
+    /**
+     * Adds a link of the chain.
+     *
+     * @param pos       The position of the link.
+     * @param connector The connector of the link.
+     */
+    void add(long pos, C connector);
+}
@@ -2,11 +2,16 @@ package tesseract.api;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import tesseract.graph.INode;
 import tesseract.graph.Path;
+import tesseract.graph.PathTree;
+import tesseract.graph.traverse.ChainIndex;
+import tesseract.util.Node;
 
 import java.util.Comparator;
-
-import static java.lang.Integer.compare;
+import java.util.List;
 
 /**
  * A class that acts as a wrapper for a node component.
@@ -18,10 +23,19 @@ abstract public class Consumer<C extends IConnectable, N> {
 
     protected Long2ObjectMap<C> full = Long2ObjectMaps.emptyMap();
     protected Long2ObjectMap<C> cross = Long2ObjectMaps.emptyMap();
+    protected LongSet passed = LongSets.EMPTY_SET;
+    protected Path<C> path;
+    protected Node target;
     protected int distance;
+    private long cost;
 
-    // Way of the sorting by the priority level and the distance to the node
-    public static final Comparator<Consumer<?, ?>> COMPARATOR = (t1, t2) -> (t1.getPriority() == 0 && t2.getPriority() == 0) ? compare(t1.getDistance(), t2.getDistance()) : compare(t2.getPriority(), t1.getPriority());
+    /**
+     * Way of the sorting by the priority level and the distance to the node.
+     *
+     * @deprecated Sort with {@link RouteCostModel#sort(List, RouteCostModel)} and the cost model of the consumer.
+     */
+    @Deprecated
+    public static final Comparator<Consumer<?, ?>> COMPARATOR = Comparator.comparingLong(c -> RouteCostModel.pack(-c.getPriority(), c.getPriority() == 0 ? c.getDistance() : 0));
 
     /**
      * Creates instance of the node.
@@ -33,8 +47,11 @@ abstract public class Consumer<C extends IConnectable, N> {
         this.node = node;
 
         if (path != null) {
+            this.path = path;
             full =  path.getFull();
             cross = path.getCross();
+            passed = path.getPassed();
+            target = path.target();
         }
         int fullSize = full.size();
         int crossSize = cross.size();
@@ -47,18 +64,75 @@ abstract public class Consumer<C extends IConnectable, N> {
     }
 
     /**
-     * Initialize all connectors of the full path.
+     * Initialize all connectors of the full path. A chain the path passes as a whole is caught at once with its
+     * aggregate, if the consumer has one.
      */
     public void init() {
         if (full != null) {
             distance = full.size();
-            for (var tuple : full.long2ObjectEntrySet()) {
-                onConnectorCatch(tuple.getLongKey(), tuple.getValue());
+            if (path == null || distance == 0) {
+                for (var tuple : full.long2ObjectEntrySet()) {
+                    onConnectorCatch(tuple.getLongKey(), tuple.getValue());
+                }
+                return;
+            }
+
+            PathTree<C> tree = path.getTree();
+            int[] entries = path.getEntries();
+            for (int i = 0; i < entries.length; i++) {
+                ChainIndex.Chain chain = tree.getChain(entries[i]);
+                if (chain != null && passes(tree, entries, i, chain)) {
+                    ChainAggregate<C> aggregate = getAggregate(tree, entries, i, chain);
+                    if (aggregate != null) {
+                        onChainCatch(aggregate);
+                        i += chain.size() - 1;
+                        continue;
+                    }
+                }
+                onConnectorCatch(tree.getPosition(entries[i]), tree.getValue(entries[i]));
             }
         }
 
     }
 
+    /**
+     * @param tree    The tree of the path.
+     * @param entries The entries of the connectors of the path.
+     * @param i       The entry of the first link.
+     * @param chain   The chain of the link.
+     * @return Checks that the path passes all links of the chain from the entry on.
+     */
+    private static boolean passes(PathTree<?> tree, int[] entries, int i, ChainIndex.Chain chain) {
+        int last = i + chain.size() - 1;
+        if (last >= entries.length) {
+            return false;
+        }
+        long first = tree.getPosition(entries[i]);
+        return first == chain.get(0) ? tree.getPosition(entries[last]) == chain.get(chain.size() - 1)
+            : first == chain.get(chain.size() - 1) && tree.getPosition(entries[last]) == chain.get(0);
+    }
+
+    /**
+     * Gets the aggregate the chain keeps, or computes it from the links of the path if no route did so yet.
+     *
+     * @return The aggregate, or null if the consumer does not aggregate chains.
+     */
+    @SuppressWarnings("unchecked")
+    private ChainAggregate<C> getAggregate(PathTree<C> tree, int[] entries, int i, ChainIndex.Chain chain) {
+        ChainAggregate<C> aggregate = (ChainAggregate<C>) chain.getAggregate();
+        if (aggregate == null) {
+            aggregate = createAggregate();
+            if (aggregate == null) {
+                return null;
+            }
+            for (int n = i; n < i + chain.size(); n++) {
+                aggregate.add(tree.getPosition(entries[n]), tree.getValue(entries[n]));
+            }
+            chain.setAggregate(aggregate);
+        }
+        return aggregate;
+    }
+
     /**
      * @return Gets the node ref.
      */
@@ -74,6 +148,18 @@ abstract public class Consumer<C extends IConnectable, N> {
         return distance;
     }
 
+    /**
+     * @return Gets the cost of the route, as of the last time the routes were sorted.
+     * @see RouteCostModel
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    void setCost(long cost) {
+        this.cost = cost;
+    }
+
     /**
      * @return Gets the connection type.
      */
@@ -81,6 +167,13 @@ abstract public class Consumer<C extends IConnectable, N> {
         return connection;
     }
 
+    /**
+     * @return Gets the path to the consumer, or null if the consumer is adjacent.
+     */
+    public Path<C> getPath() {
+        return path;
+    }
+
     /**
      * @return Gets the cross path of connectors.
      */
@@ -94,6 +187,52 @@ abstract public class Consumer<C extends IConnectable, N> {
         return full;
     }
 
+    /**
+     * Checks whether the route to this consumer stays clear of the given positions, in which case it is still valid
+     * after the positions change.
+     *
+     * @param positions The positions to check.
+     * @param side      The position next to the producer, which is the consumer itself if there is no path.
+     * @return True if none of the positions is on the route, false otherwise.
+     */
+    public boolean avoids(LongSet positions, long side) {
+        if (positions.contains(target != null ? target.asLong() : side)) {
+            return false;
+        }
+        for (long pos : full.keySet()) {
+            if (positions.contains(pos)) {
+                return false;
+            }
+        }
+        for (long pos : passed) {
+            if (positions.contains(pos)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param container The container the route should run in.
+     * @return Checks whether all positions of the route are still contained by the container.
+     */
+    public boolean runsIn(INode container) {
+        if (target != null && !container.contains(target.asLong())) {
+            return false;
+        }
+        for (long pos : full.keySet()) {
+            if (!container.contains(pos)) {
+                return false;
+            }
+        }
+        for (long pos : passed) {
+            if (!container.contains(pos)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Executes when constructor find a connector instance in the provided path.
      *
@@ -101,6 +240,22 @@ abstract public class Consumer<C extends IConnectable, N> {
      */
     protected abstract void onConnectorCatch(long connectorPos, C connector);
 
+    /**
+     * @return Creates an empty aggregate of a chain, or null to catch the links of chains one by one.
+     */
+    protected ChainAggregate<C> createAggregate() {
+        return null;
+    }
+
+    /**
+     * Executes when constructor find a chain the provided path passes as a whole, instead of
+     * {@link #onConnectorCatch(long, IConnectable)} for each of its links.
+     *
+     * @param aggregate The aggregate of the chain, created by {@link #createAggregate()}.
+     */
+    protected void onChainCatch(ChainAggregate<C> aggregate) {
+    }
+
     /**
      * @return Returns the priority of this node as a number.
      */
@@ -1,9 +1,39 @@
 package tesseract.api;
 
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.core.Direction;
 import net.minecraft.world.level.Level;
+import org.jetbrains.annotations.NotNull;
+import tesseract.Tesseract;
+import tesseract.TesseractConfig;
 import tesseract.graph.Graph;
+import tesseract.graph.Grid;
 import tesseract.graph.Group;
 import tesseract.graph.INode;
+import tesseract.graph.NodeCache;
+import tesseract.graph.Path;
+import tesseract.graph.traverse.BFTree;
+import tesseract.util.Pos;
+
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 /**
@@ -11,7 +41,26 @@ import tesseract.graph.INode;
  */
 abstract public class Controller<T, C extends IConnectable, N> implements ITickingController<T, C, N> {
 
+    // Off-thread searches of all groups, one at a time, created on demand and stopped with the server.
+    private static ExecutorService rebuilds;
+    // Off-thread rebuilds in a row a group may drop to a change before it is rebuilt on the server thread.
+    public static final int MAX_DROPPED_REBUILDS = 3;
+
     protected int tick;
+    protected boolean changed;
+    protected int coalesced; // structure changes that were folded into a pending rebuild
+    protected final LongSet stale = new LongOpenHashSet(); // producers whose routes are rebuilt on the next flush
+    protected int version; // the group version the routes were built for
+    private CompletableFuture<Controller<T, C, N>> pending; // the off-thread rebuild, if one is running
+    private PathSearch<C> searched; // the paths of an off-thread search, used by the next full build
+    private int pendingVersion, pendingCoalesced;
+    private int dropped; // off-thread rebuilds in a row which were outdated by a change before they were swapped in
+    private int inserts, traffic, waited; // insert traffic and rebuild wait time, for the rebuild scheduler
+    private int idle; // ticks since the last insert or change
+    private long priority;
+    protected DistributionStrategy distribution = DistributionStrategy.NEAREST_FIRST;
+    private final Long2ObjectMap<int[]> cursors = new Long2ObjectOpenHashMap<>(); // the distribution cursors of the producers, by side
+    private long[] demands = new long[0]; // the demands of the consumers of the current insert, for a proportional distribution
     protected final Level dim;
     protected Group<T, C, N> group;
     protected final Graph.INodeGetter<N> getter;
@@ -36,21 +85,722 @@ abstract public class Controller<T, C extends IConnectable, N> implements ITicki
         return this;
     }
 
+    @Override
+    public void markChanged() {
+        wake();
+        if (changed) {
+            coalesced++;
+        }
+        changed = true;
+    }
+
+    @Override
+    public void markChanged(long pos) {
+        wake();
+        if (changed || !retain(this, LongSets.singleton(pos))) {
+            markChanged();
+        }
+    }
+
+    @Override
+    public void markRemoved(LongSet removed) {
+        wake();
+        for (long pos : removed) {
+            cursors.remove(pos);
+        }
+        if (changed || !retain(this, touched(removed))) {
+            markChanged();
+        }
+    }
+
+    @Override
+    public void markAdded(long pos) {
+        wake();
+        LongSet touched = touched(LongSets.singleton(pos));
+        if (changed || !retain(this, touched)) {
+            markChanged();
+            return;
+        }
+        // The position and its neighbouring nodes may have no routes yet, so they are rebuilt outright.
+        for (long side : touched) {
+            if (group.getNodes().containsKey(side)) {
+                stale.add(side);
+            }
+        }
+        for (Grid<C> grid : group.getGrids().values()) {
+            if (!grid.contains(pos)) {
+                continue;
+            }
+            Long2ObjectMap<List<Path<C>>> paths = grid.getPathsThrough(pos, group.getNodes()::containsKey);
+            if (paths == null) {
+                // The position closed a loop, so any route in the grid may have become shorter.
+                stale.addAll(grid.getNodes().keySet());
+                for (long connector : grid.getConnectors().keySet()) {
+                    for (Direction direction : Graph.DIRECTIONS) {
+                        long side = Pos.offset(connector, direction);
+                        if (group.getNodes().containsKey(side)) {
+                            stale.add(side);
+                        }
+                    }
+                }
+                continue;
+            }
+            for (Long2ObjectMap.Entry<List<Path<C>>> e : paths.long2ObjectEntrySet()) {
+                long origin = e.getLongKey();
+                NodeCache<N> cache = group.getNodes().get(origin);
+                if (cache == null || stale.contains(origin)) {
+                    continue;
+                }
+                for (Map.Entry<Direction, N> side : cache.values()) {
+                    Direction direction = side.getKey();
+                    if (group.getGridAt(Pos.offset(origin, direction), direction) == grid) {
+                        extend(origin, direction, e.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void mergeWith(ITickingController<T, C, N> other) {
+        wake();
+        if (other instanceof Controller<T, C, N> merged) {
+            copyCursors(merged);
+        }
+        if (changed || !(other instanceof Controller<T, C, N> merged) || merged.changed || !retain(merged, LongSets.EMPTY_SET)) {
+            markChanged();
+        }
+    }
+
+    @Override
+    public ITickingController<T, C, N> clone(INode group, LongSet removed) {
+        ITickingController<T, C, N> controller = clone(group);
+        if (controller instanceof Controller<T, C, N> split) {
+            split.copyCursors(this);
+        }
+        if (changed || !(controller instanceof Controller<T, C, N> split) || !split.retain(this, touched(removed))) {
+            controller.markChanged();
+        }
+        return controller;
+    }
+
+    @Override
+    public void flushChanged() {
+        // Called at the start of every insert.
+        inserts++;
+        wake();
+        flush();
+    }
+
+    /**
+     * Rebuilds the routes if a change was marked since the last rebuild.
+     */
+    void flush() {
+        waited = 0;
+        if (!changed && stale.isEmpty()) {
+            // The routes were kept up to date, the controller of a missing group has none at all.
+            if (group != null) {
+                version = group.getVersion();
+            }
+            return;
+        }
+        if (changed && dropped < MAX_DROPPED_REBUILDS && TesseractConfig.ASYNC_REBUILD != null && TesseractConfig.ASYNC_REBUILD.get()) {
+            // The current routes keep serving until the rebuilt ones are swapped in on a tick.
+            if (pending == null) {
+                submit();
+            }
+            return;
+        }
+        boolean full = changed;
+        changed = false;
+        dropped = 0;
+        try {
+            if (full) {
+                change();
+                pruneCursors();
+            } else {
+                stale.forEach(this::rebuild);
+            }
+        } catch (Exception ex) {
+            Tesseract.LOGGER.warn("Error updating controller : " + ex);
+        }
+        stale.clear();
+        version = group.getVersion();
+    }
+
+    /**
+     * Resets the idle time, and puts the group back on the ticked groups if it was asleep.
+     */
+    protected void wake() {
+        idle = 0;
+        if (group != null && group.wake()) {
+            onWake();
+        }
+    }
+
+    /**
+     * Executes when the group wakes up, before the insert or the change waking it is handled. The per-tick state of
+     * the nodes was not reset while the group was asleep.
+     */
+    protected void onWake() {
+    }
+
+    @Override
+    public boolean canSleep() {
+        int ticks = TesseractConfig.SLEEP_TICKS != null ? TesseractConfig.SLEEP_TICKS.get() : 0;
+        // At least one frame has to pass, so the frame totals are cleared before the group sleeps.
+        return ticks > 0 && idle >= Math.max(ticks, 20) && !isChanged() && pending == null;
+    }
+
+    /**
+     * Adds the information shared by all controllers, the subclasses add their own before calling it.
+     */
+    @Override
+    public void getInfo(long pos, @NotNull List<String> list) {
+        list.add(String.format("Coalesced rebuilds: %d", this.coalesced));
+    }
+
+    /**
+     * @return Checks whether a rebuild is due.
+     */
+    public boolean isChanged() {
+        return changed || !stale.isEmpty();
+    }
+
+    /**
+     * @return Checks whether an off-thread rebuild is still running.
+     */
+    protected boolean isRebuilding() {
+        return pending != null && !pending.isDone();
+    }
+
+    /**
+     * @return Gets the rebuild priority, higher for larger groups with more insert traffic and for rebuilds which
+     * waited longer.
+     */
+    public long getPriority() {
+        return priority;
+    }
+
+    /**
+     * Starts a rebuild on a snapshot of the group. The outputs of the producers are collected on the server thread,
+     * only the search of their paths runs off it, and the routes are built from the paths once they are swapped in.
+     */
+    @SuppressWarnings("unchecked")
+    private void submit() {
+        Controller<T, C, N> controller = (Controller<T, C, N>) clone(group.snapshot());
+        PathSearch<C> search = controller.collect();
+        controller.searched = search;
+        pendingVersion = controller.group.getVersion();
+        pendingCoalesced = coalesced;
+        pending = CompletableFuture.supplyAsync(() -> {
+            search.run(false);
+            return controller;
+        }, getRebuilds());
+    }
+
+    /**
+     * Takes over the routes of a finished off-thread rebuild, unless the group changed while it was running.
+     */
+    private void swap() {
+        if (pending == null || !pending.isDone()) {
+            return;
+        }
+        Controller<T, C, N> built = null;
+        try {
+            built = pending.join();
+        } catch (Exception ex) {
+            Tesseract.LOGGER.warn("Error updating controller : " + ex);
+        }
+        pending = null;
+        // Any change during the rebuild is folded into the pending one, so it shows as a coalesced change.
+        if (built == null || !changed || pendingVersion != group.getVersion() || pendingCoalesced != coalesced) {
+            if (changed) {
+                // A group changing faster than it is rebuilt would never be swapped, it is rebuilt in place instead.
+                dropped++;
+            }
+            return;
+        }
+        try {
+            built.change();
+        } catch (Exception ex) {
+            Tesseract.LOGGER.warn("Error updating controller : " + ex);
+            return;
+        } finally {
+            built.searched = null;
+        }
+        if (adopt(built)) {
+            pruneCursors();
+            changed = false;
+            dropped = 0;
+            stale.clear();
+            version = pendingVersion;
+        }
+    }
+
+    private static synchronized ExecutorService getRebuilds() {
+        if (rebuilds == null) {
+            rebuilds = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Tesseract Rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return rebuilds;
+    }
+
+    /**
+     * Stops the off-thread rebuilds and drops the pending ones, so they keep no graph of an unloaded level. Called
+     * when the server stops, a later server starts them again.
+     */
+    public static synchronized void shutdownRebuilds() {
+        if (rebuilds != null) {
+            rebuilds.shutdownNow();
+            rebuilds = null;
+        }
+    }
+
+    /**
+     * Sets the strategy which spreads the inserts over the consumers of a producer.
+     *
+     * @param distribution The distribution strategy.
+     */
+    public void setDistributionStrategy(DistributionStrategy distribution) {
+        this.distribution = distribution;
+    }
+
+    /**
+     * @param pos  The position of the producer.
+     * @param side The side of the producer.
+     * @return Gets the distribution cursor of the producer side.
+     */
+    protected int getCursor(long pos, Direction side) {
+        int[] cursor = cursors.get(pos);
+        return cursor != null ? cursor[side.get3DDataValue()] : 0;
+    }
+
+    /**
+     * Sets the distribution cursor of the producer side, a cursor outside the current routes starts over.
+     *
+     * @param pos    The position of the producer.
+     * @param side   The side of the producer.
+     * @param cursor The cursor.
+     */
+    protected void setCursor(long pos, Direction side, int cursor) {
+        int[] sides = cursors.get(pos);
+        if (sides == null) {
+            if (cursor == 0) {
+                return;
+            }
+            sides = new int[6];
+            cursors.put(pos, sides);
+        }
+        sides[side.get3DDataValue()] = cursor;
+    }
+
+    /**
+     * Copies the distribution cursors of the producers of this group from another controller, so a merge or a split
+     * keeps the round-robin order of the producers.
+     *
+     * @param source The controller to copy the cursors from.
+     */
+    private void copyCursors(Controller<T, C, N> source) {
+        if (source.cursors.isEmpty() || group == null) {
+            return;
+        }
+        Long2ObjectMap<NodeCache<N>> nodes = group.getNodes();
+        for (Long2ObjectMap.Entry<int[]> e : source.cursors.long2ObjectEntrySet()) {
+            if (nodes.containsKey(e.getLongKey())) {
+                cursors.put(e.getLongKey(), e.getValue().clone());
+            }
+        }
+    }
+
+    /**
+     * Drops the distribution cursors of the producers which left the group.
+     */
+    private void pruneCursors() {
+        Long2ObjectMap<NodeCache<N>> nodes = group.getNodes();
+        ObjectIterator<Long2ObjectMap.Entry<int[]>> it = Long2ObjectMaps.fastIterator(cursors);
+        while (it.hasNext()) {
+            if (!nodes.containsKey(it.next().getLongKey())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @param size The number of consumers.
+     * @return Gets the array to keep the demands of the consumers in, which is reused by every insert.
+     */
+    protected long[] getDemands(int size) {
+        if (demands.length < size) {
+            demands = new long[Math.max(size, demands.length * 2)];
+        }
+        return demands;
+    }
+
+    /**
+     * Replaces the routes of this controller with the routes of another controller of the same group.
+     *
+     * @param source The controller to take the routes from.
+     * @return False if the routes can not be taken over.
+     */
+    protected boolean adopt(Controller<T, C, N> source) {
+        return false;
+    }
+
+    /**
+     * @param consumer The consumer to check.
+     * @return Checks whether the route to the consumer can be used, which may not be the case while the routes are
+     * outdated by an off-thread rebuild.
+     */
+    protected boolean isValid(Consumer<C, N> consumer) {
+        return version == group.getVersion() || consumer.runsIn(group);
+    }
+
+    /**
+     * Takes over the routes of the source controller which belong to this group and stay clear of the touched
+     * positions. The producers of the dropped routes are rebuilt on the next flush.
+     *
+     * @param source  The controller to take the routes from, this controller itself to filter in place.
+     * @param touched The positions the kept routes must avoid.
+     * @return False if the controller keeps no routes and has to be rebuilt in full, true otherwise.
+     */
+    protected boolean retain(Controller<T, C, N> source, LongSet touched) {
+        return false;
+    }
+
+    /**
+     * Rebuilds the routes of a single producer.
+     *
+     * @param pos The position of the producer.
+     */
+    protected void rebuild(long pos) {
+    }
+
+    /**
+     * Builds the routes of every producer in the group into the data map, in the order of the group nodes.
+     * <p>
+     * Groups of at least {@link TesseractConfig#PARALLEL_REBUILD_SIZE} nodes search the paths of their producers on
+     * the common fork join pool first. The search only reads the graph, every task searches with trees of its own, as
+     * the trees of a grid can not be shared. The nodes and their capabilities belong to the server thread, so the
+     * outputs to search are collected before, and the routes are built from the found paths after, on the calling
+     * thread. The data map is the same as the one of a sequential build.
+     * </p>
+     *
+     * @param into    The data map of this controller.
+     * @param builder The routes builder of a single producer.
+     * @return whether or not an issue arose checking nodes.
+     */
+    protected <X> boolean buildAll(Long2ObjectMap<Map<Direction, List<X>>> into, RouteBuilder<C, N, X> builder) {
+        Long2ObjectMap<NodeCache<N>> nodes = group.getNodes();
+        int size = TesseractConfig.PARALLEL_REBUILD_SIZE == null ? 0 : TesseractConfig.PARALLEL_REBUILD_SIZE.get();
+        PathSource<C> paths = Grid::getPaths;
+        if (searched != null) {
+            paths = searched;
+        } else if (size > 0 && nodes.size() >= size) {
+            PathSearch<C> search = collect();
+            search.run(true);
+            paths = search;
+        }
+        for (Long2ObjectMap.Entry<NodeCache<N>> e : nodes.long2ObjectEntrySet()) {
+            Map<Direction, List<X>> routes = new EnumMap<>(Direction.class);
+            if (!builder.build(e.getLongKey(), e.getValue(), paths, routes))
+                return false;
+            if (!routes.isEmpty()) {
+                into.put(e.getLongKey(), routes);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the searches of a full build, one for every grid at an output side of a producer.
+     *
+     * @return The searches, not run yet.
+     */
+    private PathSearch<C> collect() {
+        PathSearch<C> search = new PathSearch<>();
+        for (Long2ObjectMap.Entry<NodeCache<N>> e : group.getNodes().long2ObjectEntrySet()) {
+            long pos = e.getLongKey();
+            for (Map.Entry<Direction, N> side : e.getValue().values()) {
+                Direction direction = side.getKey();
+                if (canOutput(side.getValue(), direction)) {
+                    Grid<C> grid = group.getGridAt(Pos.offset(pos, direction), direction);
+                    if (grid != null) {
+                        search.add(pos, grid);
+                    }
+                }
+            }
+        }
+        return search;
+    }
+
+    /**
+     * @param node      The node.
+     * @param direction The side of the node.
+     * @return Checks that the node outputs at the side, only these sides are searched for paths ahead of a build.
+     */
+    protected boolean canOutput(N node, Direction direction) {
+        return true;
+    }
+
+    /**
+     * Adds the consumers reached by new paths to the routes of a producer.
+     *
+     * @param pos       The position of the producer.
+     * @param direction The output side of the producer.
+     * @param paths     The new paths from the producer.
+     */
+    protected void extend(long pos, Direction direction, List<Path<C>> paths) {
+    }
+
+    /**
+     * Moves the routes of the producers in this group from one data map into another, leaving out the routes which
+     * touch any of the given positions.
+     *
+     * @param source  The controller which owns the source map.
+     * @param from    The source data map.
+     * @param into    The data map of this controller.
+     * @param touched The positions the kept routes must avoid.
+     */
+    protected <X extends Consumer<C, N>> void partition(Controller<T, C, N> source, Long2ObjectMap<Map<Direction, List<X>>> from,
+                                                        Long2ObjectMap<Map<Direction, List<X>>> into, LongSet touched) {
+        Long2ObjectMap<NodeCache<N>> nodes = group.getNodes();
+        ObjectIterator<Long2ObjectMap.Entry<Map<Direction, List<X>>>> it = Long2ObjectMaps.fastIterator(from);
+        while (it.hasNext()) {
+            Long2ObjectMap.Entry<Map<Direction, List<X>>> e = it.next();
+            long pos = e.getLongKey();
+            boolean contained = nodes.containsKey(pos);
+
+            if (contained && !touched.contains(pos) && avoids(pos, e.getValue(), touched)) {
+                if (source != this) {
+                    into.put(pos, e.getValue());
+                    it.remove();
+                }
+                continue;
+            }
+            if (contained) {
+                stale.add(pos);
+            }
+            // Producers of other fragments stay with the source until their own group takes them.
+            if (contained || source == this) {
+                it.remove();
+            }
+            if (!contained && source == this) {
+                cursors.remove(pos);
+            }
+        }
+
+        if (source != this) {
+            for (long pos : source.stale) {
+                if (nodes.containsKey(pos)) {
+                    stale.add(pos);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param pos     The position of the producer.
+     * @param map     The consumers of the producer by side.
+     * @param touched The positions to avoid.
+     * @return Checks whether all routes of the producer avoid the positions and still run in their grids.
+     */
+    private <X extends Consumer<C, N>> boolean avoids(long pos, Map<Direction, List<X>> map, LongSet touched) {
+        for (Map.Entry<Direction, List<X>> e : map.entrySet()) {
+            Direction direction = e.getKey().getOpposite();
+            long side = Pos.offset(pos, direction);
+            // A grid can also be split far from the route, so the route has to stay within the grid at the side.
+            Grid<C> grid = group.getGridAt(side, direction);
+            for (X consumer : e.getValue()) {
+                if (!consumer.avoids(touched, side) || (grid != null && !consumer.runsIn(grid))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param removed The removed positions.
+     * @return Gets the removed positions together with their neighbors, whose connectivity changed.
+     */
+    private static LongSet touched(LongSet removed) {
+        LongSet touched = new LongOpenHashSet(removed.size() * 7);
+        for (long pos : removed) {
+            touched.add(pos);
+            for (Direction direction : Graph.DIRECTIONS) {
+                touched.add(Pos.offset(pos, direction));
+            }
+        }
+        return touched;
+    }
+
+    /**
+     * Gets the paths from a producer within a grid of the group.
+     */
+    @FunctionalInterface
+    protected interface PathSource<C extends IConnectable> {
+
+        /**
+         * @param grid The grid at the output side of the producer.
+         * @param pos  The position of the producer.
+         * @return Returns paths from the producer.
+         */
+        List<Path<C>> getPaths(Grid<C> grid, long pos);
+    }
+
+    /**
+     * Collects the consumers available for each output side of a producer.
+     */
+    @FunctionalInterface
+    protected interface RouteBuilder<C extends IConnectable, N, X> {
+
+        /**
+         * @param pos    The position of the producer.
+         * @param cache  The producer node.
+         * @param paths  The source of the paths, it must be used instead of the grid itself.
+         * @param routes The consumers of the producer by side, to fill in.
+         * @return whether or not an issue arose checking nodes.
+         */
+        boolean build(long pos, NodeCache<N> cache, PathSource<C> paths, Map<Direction, List<X>> routes);
+    }
+
+    /**
+     * The paths of the producers of a group, searched ahead of a build. A search only reads the graph, so the paths
+     * can be found off the server thread, while the routes are built from them on it.
+     */
+    private static final class PathSearch<C extends IConnectable> implements PathSource<C> {
+
+        private final LongArrayList positions = new LongArrayList();
+        private final ObjectArrayList<Grid<C>> grids = new ObjectArrayList<>();
+        private final Long2IntMap first = new Long2IntOpenHashMap(); // the first search of every producer
+        private List<Path<C>>[] paths;
+
+        private PathSearch() {
+            first.defaultReturnValue(-1);
+        }
+
+        /**
+         * Adds a search, the searches of a producer are added one after another.
+         *
+         * @param pos  The position of the producer.
+         * @param grid The grid at an output side of the producer.
+         */
+        private void add(long pos, Grid<C> grid) {
+            int index = first.get(pos);
+            if (index == -1) {
+                first.put(pos, positions.size());
+            } else {
+                for (int i = index; i < positions.size(); i++) {
+                    if (grids.get(i) == grid) {
+                        return;
+                    }
+                }
+            }
+            positions.add(pos);
+            grids.add(grid);
+        }
+
+        /**
+         * Runs the searches.
+         *
+         * @param parallel True to spread the searches over the common fork join pool, false to run them on the
+         *                 calling thread.
+         */
+        @SuppressWarnings("unchecked")
+        private void run(boolean parallel) {
+            paths = new List[positions.size()];
+            SearchTask<C> task = new SearchTask<>(this, 0, positions.size());
+            if (parallel) {
+                ForkJoinPool.commonPool().invoke(task);
+            } else {
+                task.compute();
+            }
+        }
+
+        @Override
+        public List<Path<C>> getPaths(Grid<C> grid, long pos) {
+            int index = first.get(pos);
+            if (index != -1) {
+                for (int i = index; i < positions.size() && positions.getLong(i) == pos; i++) {
+                    if (grids.get(i) == grid) {
+                        return paths[i];
+                    }
+                }
+            }
+            // The node started to output after the searches were collected.
+            return grid.getPaths(pos);
+        }
+    }
+
+    /**
+     * Runs a range of searches, splitting it among the pool until it is small enough.
+     */
+    private static final class SearchTask<C extends IConnectable> extends RecursiveAction {
+
+        private final PathSearch<C> search;
+        private final int from, to, leaf;
+
+        private SearchTask(PathSearch<C> search, int from, int to) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+            this.leaf = Math.max(16, search.positions.size() / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > leaf) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SearchTask<>(search, from, middle), new SearchTask<>(search, middle, to));
+                return;
+            }
+            // The trees of this task, one for each grid it searches.
+            Map<Grid<C>, BFTree> trees = new IdentityHashMap<>();
+            for (int i = from; i < to; i++) {
+                Grid<C> grid = search.grids.get(i);
+                search.paths[i] = grid.getPaths(search.positions.getLong(i), trees.computeIfAbsent(grid, Grid::createTree));
+            }
+        }
+    }
+
     /**
      * Executes on the tick updates.
      */
     @Override
     public void tick() {
+        swap();
+        traffic = traffic - (traffic >> 1) + inserts;
+        inserts = 0;
+        if (isChanged()) {
+            waited++;
+            priority = (long) group.countBlocks() * (traffic + waited);
+        }
+        if (RebuildScheduler.getBudget() <= 0) {
+            flush();
+        }
         tick++;
         if (tick % 20 == 0) {
             onFrame();
         }
+        idle++;
     }
     /**
      * Frame handler, which executes each second.
      */
     protected abstract void onFrame();
 
+    /**
+     * @return Gets the current tick of the world, which the per-tick state is stamped with.
+     */
+    protected long getGameTime() {
+        // The controllers of the tests have no world.
+        return dim != null ? dim.getGameTime() : tick;
+    }
+
     @Override
     public Level getWorld() {
         return this.dim;
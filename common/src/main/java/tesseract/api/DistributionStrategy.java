@@ -0,0 +1,106 @@
+package tesseract.api;
+
+/**
+ * A DistributionStrategy is an interface that decides how an insert is spread over the consumers of a producer.
+ * <p>
+ * The consumers are visited once per insert, in the order of the routes starting at {@link #getStart(int, int)} and
+ * wrapping around. Each producer side keeps a cursor, which is updated after every consumer that was served, so a
+ * strategy can carry on where the last insert stopped. A proportional strategy first asks every consumer for its
+ * demand, and no consumer is given more than its share of the inserted amount.
+ * </p>
+ */
+public interface DistributionStrategy {
+
+    /**
+     * Fills the consumers in the order of the routes, the nearest first.
+     */
+    DistributionStrategy NEAREST_FIRST = new DistributionStrategy() {
+        @Override
+        public int getStart(int cursor, int size) {
+            return 0;
+        }
+
+        @Override
+        public int getCursor(int cursor, int served, int size) {
+            return cursor;
+        }
+    };
+
+    /**
+     * Starts every insert at the consumer after the last one served.
+     */
+    DistributionStrategy ROUND_ROBIN = new DistributionStrategy() {
+        @Override
+        public int getStart(int cursor, int size) {
+            return cursor < size ? cursor : 0;
+        }
+
+        @Override
+        public int getCursor(int cursor, int served, int size) {
+            return served + 1 < size ? served + 1 : 0;
+        }
+    };
+
+    /**
+     * Spreads every insert over the consumers in proportion to their demand.
+     */
+    DistributionStrategy PROPORTIONAL = new DistributionStrategy() {
+        @Override
+        public int getStart(int cursor, int size) {
+            // The shares are rounded up, so the consumers take turns to come first.
+            return cursor < size ? cursor : 0;
+        }
+
+        @Override
+        public int getCursor(int cursor, int served, int size) {
+            return served + 1 < size ? served + 1 : 0;
+        }
+
+        @Override
+        public boolean isProportional() {
+            return true;
+        }
+    };
+
+    /**
+     * @param cursor The cursor of the producer side.
+     * @param size   The number of consumers.
+     * @return Gets the index of the first consumer to visit.
+     */
+    int getStart(int cursor, int size);
+
+    /**
+     * @param cursor The cursor of the producer side.
+     * @param served The index of the consumer that was served.
+     * @param size   The number of consumers.
+     * @return Gets the new cursor of the producer side.
+     */
+    int getCursor(int cursor, int served, int size);
+
+    /**
+     * @return Checks that the consumers are only given their share of the inserted amount.
+     */
+    default boolean isProportional() {
+        return false;
+    }
+
+    /**
+     * @param start The index of the first consumer to visit.
+     * @param n     The number of consumers visited before.
+     * @param size  The number of consumers.
+     * @return Gets the index of the consumer to visit.
+     */
+    static int getIndex(int start, int n, int size) {
+        return start + n < size ? start + n : start + n - size;
+    }
+
+    /**
+     * @param available The inserted amount.
+     * @param demand    The demand of the consumer.
+     * @param total     The demand of all consumers.
+     * @return Gets the share of the consumer, rounded up.
+     */
+    static long getShare(long available, long demand, long total) {
+        return total <= 0 ? 0 : (long) Math.ceil((double) available * demand / total);
+    }
+}
@@ -0,0 +1,265 @@
+package tesseract.api;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import tesseract.graph.Path;
+import tesseract.graph.PathTree;
+
+
+/**
+ * The FlowLedger is a class that accounts the load of the connectors from the routes used during a tick, instead of
+ * adding to every connector of a route on each commit.
+ * <p>
+ * The routes of a producer share one {@link PathTree}, so a commit only adds its amount at the end of its route, and
+ * removes it again where the route joins routes the same packet has already covered. Once per tick, the ledger is
+ * settled: the marks are summed from the ends towards the origin, which gives every connector the total load of the
+ * routes passing it, and the loads are reported to the controller, which checks them against the limits.
+ * </p>
+ */
+public class FlowLedger<C extends IConnectable, K> {
+
+    private final Reference2ObjectMap<PathTree<C>, Object2ObjectMap<K, Sheet<C, K>>> sheets = new Reference2ObjectOpenHashMap<>();
+    // The loads of the packets spread over several trees, which are accounted per connector.
+    private final Object2ObjectMap<K, Long2LongMap> direct = new Object2ObjectOpenHashMap<>();
+    private final Long2ObjectMap<C> values = new Long2ObjectOpenHashMap<>();
+    // The crossroad connectors of these packets.
+    private final LongSet crossing = new LongOpenHashSet();
+    // The routes of the current packet.
+    private final ObjectArrayList<Path<C>> packet = new ObjectArrayList<>();
+
+    /**
+     * Adds the amount to every connector of the route.
+     *
+     * @param path   The route.
+     * @param key    The key the load is accounted for, like the fluid.
+     * @param amount The amount.
+     */
+    public void add(Path<C> path, K key, long amount) {
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+
+        PathTree<C> tree = path.getTree();
+        int leaf = path.getLeaf();
+        if (leaf != 0) {
+            getSheet(tree, key).mark(tree.getParent(leaf), amount);
+        }
+    }
+
+    /**
+     * Includes the route in the current packet, which is accounted once for every connector it passes, however many
+     * of its routes share it.
+     *
+     * @param path The route.
+     */
+    public void include(Path<C> path) {
+        if (path != null && !path.isEmpty() && path.getLeaf() != 0) {
+            packet.add(path);
+        }
+    }
+
+    /**
+     * Adds the amount to every connector of the routes included since the last commit.
+     *
+     * @param key    The key the load is accounted for.
+     * @param amount The amount.
+     */
+    public void commit(K key, long amount) {
+        try {
+            if (packet.isEmpty()) {
+                return;
+            }
+
+            PathTree<C> tree = packet.get(0).getTree();
+            for (int i = 1; i < packet.size(); i++) {
+                if (packet.get(i).getTree() != tree) {
+                    commitDirect(key, amount);
+                    return;
+                }
+            }
+
+            Sheet<C, K> sheet = getSheet(tree, key);
+            for (int i = 0; i < packet.size(); i++) {
+                int end = tree.getParent(packet.get(i).getLeaf());
+                sheet.mark(end, amount);
+
+                // The covered part of the route runs up to the deepest entry it shares with the earlier routes.
+                int covered = -1;
+                for (int j = 0; j < i; j++) {
+                    int common = tree.getCommon(end, tree.getParent(packet.get(j).getLeaf()));
+                    covered = Math.max(covered, common);
+                }
+                if (covered != -1) {
+                    sheet.mark(covered, -amount);
+                }
+            }
+        } finally {
+            packet.clear();
+        }
+    }
+
+    /**
+     * Adds the amount to the union of the connectors of the current packet, one connector at a time.
+     *
+     * @param key    The key the load is accounted for.
+     * @param amount The amount.
+     */
+    private void commitDirect(K key, long amount) {
+        Long2ObjectMap<C> union = new Long2ObjectOpenHashMap<>();
+        for (Path<C> path : packet) {
+            union.putAll(path.getFull());
+            crossing.addAll(path.getCross().keySet());
+        }
+
+        Long2LongMap loads = direct.computeIfAbsent(key, k -> new Long2LongOpenHashMap());
+        for (Long2ObjectMap.Entry<C> e : union.long2ObjectEntrySet()) {
+            loads.mergeLong(e.getLongKey(), amount, Long::sum);
+            values.put(e.getLongKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Reports the load of every connector used since the last settle and clears the ledger. A connector used by the
+     * routes of several trees is reported once for each of them, so the reported loads have to be added up.
+     *
+     * @param crossroads True to only report the crossroad connectors, false to report all connectors.
+     * @param consumer   The consumer of the loads.
+     */
+    public void settle(boolean crossroads, Settler<C, K> consumer) {
+        if (sheets.isEmpty() && direct.isEmpty()) {
+            return;
+        }
+        ObjectIterator<Reference2ObjectMap.Entry<PathTree<C>, Object2ObjectMap<K, Sheet<C, K>>>> trees = sheets.reference2ObjectEntrySet().iterator();
+        while (trees.hasNext()) {
+            Object2ObjectMap<K, Sheet<C, K>> keys = trees.next().getValue();
+            ObjectIterator<Sheet<C, K>> it = keys.values().iterator();
+            while (it.hasNext()) {
+                Sheet<C, K> sheet = it.next();
+                if (sheet.touched.isEmpty()) {
+                    // Unused for a whole tick, the routes of the tree are likely gone.
+                    it.remove();
+                } else {
+                    sheet.settle(crossroads, consumer);
+                }
+            }
+            if (keys.isEmpty()) {
+                trees.remove();
+            }
+        }
+
+        for (Object2ObjectMap.Entry<K, Long2LongMap> e : direct.object2ObjectEntrySet()) {
+            for (Long2LongMap.Entry load : e.getValue().long2LongEntrySet()) {
+                if (crossroads && !crossing.contains(load.getLongKey())) {
+                    continue;
+                }
+                consumer.accept(load.getLongKey(), values.get(load.getLongKey()), e.getKey(), load.getLongValue());
+            }
+        }
+        direct.clear();
+        values.clear();
+        crossing.clear();
+    }
+
+    /**
+     * Drops all the loads without reporting them.
+     */
+    public void clear() {
+        sheets.clear();
+        direct.clear();
+        values.clear();
+        crossing.clear();
+        packet.clear();
+    }
+
+    private Sheet<C, K> getSheet(PathTree<C> tree, K key) {
+        Object2ObjectMap<K, Sheet<C, K>> keys = sheets.get(tree);
+        if (keys == null) {
+            keys = new Object2ObjectOpenHashMap<>();
+            sheets.put(tree, keys);
+        }
+        Sheet<C, K> sheet = keys.get(key);
+        if (sheet == null) {
+            sheet = new Sheet<>(tree, key);
+            keys.put(key, sheet);
+        }
+        return sheet;
+    }
+
+    /**
+     * Consumes the loads of the settled connectors.
+     */
+    @FunctionalInterface
+    public interface Settler<C extends IConnectable, K> {
+
+        /**
+         * @param pos       The position of the connector.
+         * @param connector The connector.
+         * @param key       The key the load was accounted for.
+         * @param load      The load of the connector.
+         */
+        void accept(long pos, C connector, K key, long load);
+    }
+
+    /**
+     * The marks of one tree and key.
+     */
+    private static final class Sheet<C extends IConnectable, K> {
+
+        private final PathTree<C> tree;
+        private final K key;
+        private final long[] loads;
+        private final boolean[] seen;
+        private final IntArrayList touched = new IntArrayList();
+
+        private Sheet(PathTree<C> tree, K key) {
+            this.tree = tree;
+            this.key = key;
+            this.loads = new long[tree.size()];
+            this.seen = new boolean[tree.size()];
+        }
+
+        private void mark(int index, long amount) {
+            loads[index] += amount;
+            touched.add(index);
+        }
+
+        private void settle(boolean crossroads, Settler<C, K> consumer) {
+            // Collect the entries above the marks, only these can carry a load.
+            int marked = touched.size();
+            for (int i = 0; i < marked; i++) {
+                for (int index = touched.getInt(i); index > 0 && !seen[index]; index = tree.getParent(index)) {
+                    seen[index] = true;
+                    touched.add(index);
+                }
+            }
+
+            // A parent always comes before its children, so the children are summed up first.
+            int[] entries = touched.elements();
+            IntArrays.quickSort(entries, marked, touched.size());
+            for (int i = touched.size() - 1; i >= marked; i--) {
+                int index = entries[i];
+                long load = loads[index];
+                if (load != 0 && (crossroads ? tree.isCrossroad(index) : tree.isConnector(index))) {
+                    consumer.accept(tree.getPosition(index), tree.getValue(index), key, load);
+                }
+                loads[tree.getParent(index)] += load;
+                loads[index] = 0;
+                seen[index] = false;
+            }
+            loads[0] = 0;
+            touched.clear();
+        }
+    }
+}
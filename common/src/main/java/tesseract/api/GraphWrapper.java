@@ -1,5 +1,8 @@
 package tesseract.api;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
@@ -22,6 +25,7 @@ import tesseract.util.Pos;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.LongFunction;
 
 public class GraphWrapper<T, C extends IConnectable, N> {
 
@@ -30,7 +34,8 @@ public class GraphWrapper<T, C extends IConnectable, N> {
     protected final Object2ObjectMap<LevelAccessor, Graph<T, C, N>> graph = new Object2ObjectOpenHashMap<>();
     protected final BiFunction<Level, INodeGetter<N>, Controller<T, C, N>> supplier;
     protected final ICapabilityGetter<N> getter;
-    private final Map<Level, LongSet> pendingConnectors = new Object2ObjectOpenHashMap<>();
+    private final Map<Level, LongSet> pendingConnectors = new Object2ObjectOpenHashMap<>(); // their adjacent nodes are added on the first tick
+    private final Map<Level, RebuildScheduler> schedulers = new Object2ObjectOpenHashMap<>();
 
     /**
      * Creates a graph wrapper.
@@ -68,7 +73,7 @@ public class GraphWrapper<T, C extends IConnectable, N> {
             return;
         if (regular) {
             getGraph(dim).addConnector(pos, Cache.of(connector));
-            if (!Tesseract.hadFirstTick(dim)) {
+            if (!hadFirstTick(dim)) {
                 pendingConnectors.computeIfAbsent(dim, d -> new LongOpenHashSet()).add(pos);
             } else {
                 addAdjacentNodes(dim, pos);
@@ -76,6 +81,34 @@ public class GraphWrapper<T, C extends IConnectable, N> {
         }
     }
 
+    /**
+     * Registers a batch of connectors into Tesseract, e.g. on a chunk load or a schematic paste. The groups and grids
+     * are built in a single pass and each controller is rebuilt once. Like single connectors, the connectors are in
+     * the graph at once, while their adjacent nodes are only added from the first tick on.
+     *
+     * @param dim        The dimension id where the connectors will be added.
+     * @param positions  The positions of the connectors.
+     * @param connectors The connector object by position, null is skipped.
+     */
+    public void registerConnectors(Level dim, LongCollection positions, LongFunction<C> connectors) {
+        if (!Tesseract.TEST && dim.isClientSide())
+            return;
+        Long2ObjectMap<Cache<C>> batch = new Long2ObjectLinkedOpenHashMap<>(positions.size());
+        for (long pos : positions) {
+            C connector = connectors.apply(pos);
+            if (connector != null) {
+                batch.put(pos, Cache.of(connector));
+            }
+        }
+
+        getGraph(dim).addConnectors(batch);
+        if (!hadFirstTick(dim)) {
+            pendingConnectors.computeIfAbsent(dim, d -> new LongOpenHashSet()).addAll(batch.keySet());
+        } else {
+            addAdjacentNodes(dim, batch.keySet());
+        }
+    }
+
     public void blockUpdate(Level dim, long connector, long node) {
         //if (dimdim.isClientSide()) return;
         update(dim, node, Pos.subToDir(connector, node), false);
@@ -137,7 +170,7 @@ public class GraphWrapper<T, C extends IConnectable, N> {
         } else {
             if (isInvalidate) {
                 if (cache.updateSide(side)) {
-                    group.getController().change();
+                    group.getController().markChanged();
                     return;
                 }
             }
@@ -154,16 +187,47 @@ public class GraphWrapper<T, C extends IConnectable, N> {
         Graph<T, C, N> graph = getGraph(dim);
         INodeGetter<N> get = (a, b, c) -> getter.get(dim, a, b, c);
         for (Direction dir : Graph.DIRECTIONS) {
-            final long nodePos = Pos.offset(pos, dir);
-            NodeCache<N> cache = new NodeCache<>(nodePos, get, a -> this.validate(graph, a.direction(), a.position()), a -> this.update(dim, a.position(), a.direction(), true));
-            graph.addNode(cache);
+            addNode(dim, graph, get, Pos.offset(pos, dir));
         }
     }
 
+    /**
+     * Adds the nodes next to a set of connectors, a node touching several of them is only added once.
+     *
+     * @param positions The positions of the connectors.
+     */
+    private void addAdjacentNodes(Level dim, LongCollection positions) {
+        LongSet adjacent = new LongOpenHashSet();
+        for (long pos : positions) {
+            for (Direction dir : Graph.DIRECTIONS) {
+                adjacent.add(Pos.offset(pos, dir));
+            }
+        }
+        Graph<T, C, N> graph = getGraph(dim);
+        INodeGetter<N> get = (a, b, c) -> getter.get(dim, a, b, c);
+        for (long nodePos : adjacent) {
+            addNode(dim, graph, get, nodePos);
+        }
+    }
+
+    private void addNode(Level dim, Graph<T, C, N> graph, INodeGetter<N> get, long nodePos) {
+        NodeCache<N> cache = new NodeCache<>(nodePos, get, a -> this.validate(graph, a.direction(), a.position()), a -> this.update(dim, a.position(), a.direction(), true));
+        graph.addNode(cache);
+    }
+
 
     public void onFirstTick(Level dim) {
-        LongSet set = pendingConnectors.remove(dim);
-        if (set != null) set.forEach(l -> this.addAdjacentNodes(dim, l));
+        LongSet pending = pendingConnectors.remove(dim);
+        if (pending != null) addAdjacentNodes(dim, pending);
+    }
+
+    /**
+     * @param dim The dimension.
+     * @return Checks that the dimension had its first tick, before it the adjacent nodes of the connectors are not
+     * added yet.
+     */
+    protected boolean hadFirstTick(Level dim) {
+        return Tesseract.hadFirstTick(dim);
     }
 
 
@@ -182,7 +246,7 @@ public class GraphWrapper<T, C extends IConnectable, N> {
                 graph.addNode(cache);
             }
         } else {
-            group.getController().change();
+            group.getController().markChanged(nodePos);
         }
     }
 
@@ -234,13 +298,60 @@ public class GraphWrapper<T, C extends IConnectable, N> {
     public boolean remove(Level dim, long pos) {
         if (!Tesseract.TEST && dim.isClientSide())
             return false;
+        LongSet pending = pendingConnectors.get(dim);
+        if (pending != null) {
+            pending.remove(pos);
+        }
         return removeAt(getGraph(dim), pos);
     }
 
+    /**
+     * Removes a set of instances at once, e.g. for an explosion or a chunk unload. Each affected group is divided
+     * once and each remaining neighbor is updated once, so every affected controller is rebuilt once.
+     *
+     * @param dim       The dimension id where the components will be removed.
+     * @param positions The positions of the components.
+     * @return True if any of the components was removed.
+     */
+    public boolean removeAll(Level dim, LongSet positions) {
+        if (!Tesseract.TEST && dim.isClientSide())
+            return false;
+        LongSet pending = pendingConnectors.get(dim);
+        if (pending != null) {
+            pending.removeAll(positions);
+        }
+
+        Graph<T, C, N> graph = getGraph(dim);
+        LongSet removed = graph.removeAll(positions);
+
+        LongSet neighbors = new LongOpenHashSet();
+        for (long pos : removed) {
+            for (Direction dir : Graph.DIRECTIONS) {
+                long side = Pos.offset(pos, dir);
+                if (!removed.contains(side)) {
+                    neighbors.add(side);
+                }
+            }
+        }
+        for (long pos : neighbors) {
+            updateNode(graph, pos);
+        }
+        return !removed.isEmpty();
+    }
+
     public void tick(Level dim) {
         Graph<T, C, N> g = graph.get(dim);
-        if (g != null)
-            g.getGroups().forEach((pos, gr) -> gr.getController().tick());
+        if (g == null)
+            return;
+        // Without a budget every controller rebuilds on its own tick.
+        RebuildScheduler scheduler = RebuildScheduler.getBudget() > 0 ? schedulers.computeIfAbsent(dim, d -> new RebuildScheduler()) : null;
+        // Only the awake groups are ticked, idle groups sleep until an insert or a change wakes them.
+        g.tick(gr -> {
+            gr.getController().tick();
+            if (scheduler != null) scheduler.offer(gr.getController());
+        });
+        if (scheduler != null)
+            scheduler.run();
     }
 
     public static Set<GraphWrapper<?,?,?>> getWrappers() {
@@ -249,10 +360,14 @@ public class GraphWrapper<T, C extends IConnectable, N> {
 
     public void removeWorld(Level world) {
         this.graph.remove(world);
+        this.pendingConnectors.remove(world);
+        this.schedulers.remove(world);
     }
 
     public void clear() {
         this.graph.clear();
+        this.pendingConnectors.clear();
+        this.schedulers.clear();
     }
 
     public void healthCheck() {
@@ -1,5 +1,6 @@
 package tesseract.api;
 
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.core.Direction;
 import net.minecraft.world.level.Level;
 import org.jetbrains.annotations.NotNull;
@@ -18,11 +19,58 @@ public interface ITickingController<T, C extends IConnectable, N> {
      */
     void tick();
 
+    /**
+     * @return Checks that nothing was inserted into the controller and its group did not change for long enough, so
+     * the group can stop ticking until it is woken by an insert or a change.
+     */
+    boolean canSleep();
+
     /**
      * Notify the controller about group structure change.
      */
     void change();
 
+    /**
+     * Marks the group structure as changed. The controller is rebuilt once, at the start of the next tick or insert,
+     * no matter how many changes were marked in the meantime.
+     */
+    void markChanged();
+
+    /**
+     * Marks a single node as changed. Only the routes starting at, passing through or leading to the node are rebuilt.
+     *
+     * @param pos The position of the node.
+     */
+    void markChanged(long pos);
+
+    /**
+     * Notify the controller that positions were removed from the group. Routes which stay clear of the removed
+     * positions and their neighbors are kept, the others are rebuilt.
+     *
+     * @param removed The removed positions.
+     */
+    void markRemoved(LongSet removed);
+
+    /**
+     * Notify the controller that an entry was added to the group, possibly joining networks. The existing routes are
+     * kept and only the routes through the added position are computed.
+     *
+     * @param pos The position of the added entry.
+     */
+    void markAdded(long pos);
+
+    /**
+     * Takes over the routes of a group merged into the group of this controller.
+     *
+     * @param other The controller of the merged group.
+     */
+    void mergeWith(ITickingController<T, C, N> other);
+
+    /**
+     * Rebuilds the controller if a change was marked since the last rebuild.
+     */
+    void flushChanged();
+
     /**
      * Creates new controller for split group.
      *
@@ -31,6 +79,16 @@ public interface ITickingController<T, C extends IConnectable, N> {
      */
     ITickingController<T, C, N> clone(INode group);
 
+    /**
+     * Creates new controller for a group which was split off by removing positions. The routes of the producers moved
+     * into the new group are carried over as with {@link #markRemoved(LongSet)}.
+     *
+     * @param group   New group.
+     * @param removed The removed positions.
+     * @return New controller for the group.
+     */
+    ITickingController<T, C, N> clone(INode group, LongSet removed);
+
     /**
      * @return To get simple things like a some information.
      */
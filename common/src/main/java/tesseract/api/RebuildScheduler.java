@@ -0,0 +1,46 @@
+package tesseract.api;
+
+import it.unimi.dsi.fastutil.objects.ObjectHeapPriorityQueue;
+import tesseract.TesseractConfig;
+
+/**
+ * Rebuilds the changed controllers of a level within a time budget per tick, in the order of their priority. The
+ * controllers left over wait for the next ticks, unless something is inserted into them first.
+ */
+public class RebuildScheduler {
+
+    private final ObjectHeapPriorityQueue<Controller<?, ?, ?>> queue = new ObjectHeapPriorityQueue<>((a, b) -> Long.compare(b.getPriority(), a.getPriority()));
+
+    /**
+     * @return Gets the time budget per tick and level in milliseconds, or 0 if the controllers rebuild on their own tick.
+     */
+    public static int getBudget() {
+        return TesseractConfig.REBUILD_BUDGET == null ? 0 : TesseractConfig.REBUILD_BUDGET.get();
+    }
+
+    /**
+     * Queues the controller if it has to be rebuilt.
+     *
+     * @param controller The controller of a group.
+     */
+    public void offer(ITickingController<?, ?, ?> controller) {
+        if (controller instanceof Controller<?, ?, ?> ticking && ticking.isChanged()) {
+            queue.enqueue(ticking);
+        }
+    }
+
+    /**
+     * Rebuilds the queued controllers until the budget is spent, at least one of them. The queue is empty afterwards.
+     */
+    public void run() {
+        long deadline = System.nanoTime() + getBudget() * 1_000_000L;
+        boolean first = true;
+        while (!queue.isEmpty()) {
+            Controller<?, ?, ?> controller = queue.dequeue();
+            if (first || System.nanoTime() < deadline) {
+                controller.flush();
+                first = false;
+            }
+        }
+    }
+}
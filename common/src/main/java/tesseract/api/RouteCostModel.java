@@ -0,0 +1,49 @@
+package tesseract.api;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A RouteCostModel is an interface that orders the routes of a producer, the routes are tried in ascending order of
+ * their costs.
+ * <p>
+ * The cost of a route is a single primitive key, taken once per route when the routes are sorted, so the ordering
+ * does not walk the paths on every comparison. A key ordered by several criteria is packed with {@link #pack(int, int)}.
+ * </p>
+ */
+@FunctionalInterface
+public interface RouteCostModel<X extends Consumer<?, ?>> {
+
+    Comparator<Consumer<?, ?>> COMPARATOR = (t1, t2) -> Long.compare(t1.getCost(), t2.getCost());
+
+    /**
+     * @param consumer The route.
+     * @return Gets the cost of the route.
+     */
+    long getCost(X consumer);
+
+    /**
+     * Sorts the routes by their costs, routes of the same cost keep their order.
+     *
+     * @param consumers The routes.
+     * @param model     The cost model.
+     */
+    static <X extends Consumer<?, ?>> void sort(List<X> consumers, RouteCostModel<? super X> model) {
+        for (int i = 0; i < consumers.size(); i++) {
+            X consumer = consumers.get(i);
+            consumer.setCost(model.getCost(consumer));
+        }
+        consumers.sort(COMPARATOR);
+    }
+
+    /**
+     * Packs two keys into one, which orders by the first key and then by the second one.
+     *
+     * @param first  The first key.
+     * @param second The second key.
+     * @return The packed key.
+     */
+    static long pack(int first, int second) {
+        return (long) first << 32 | (second ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+}
@@ -2,42 +2,61 @@ package tesseract.api;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
 
+/**
+ * A transaction is the log of the data transferred by a simulated insert, which is applied on commit.
+ * <p>
+ * The data and their commit callbacks are appended together, the callback of a data is stored at the same index in
+ * an array growing along with the data list, so adding data, setting its callback and chaining callbacks never shift
+ * the log.
+ * </p>
+ */
 public abstract class Transaction<T> {
-    private final ObjectArrayList<Consumer<T>> onCommit;
+    private static final Consumer<?>[] NO_CALLBACKS = new Consumer<?>[0];
+
     private final ObjectArrayList<T> transmitted;
+    // The commit callback of each data, by the index of the data, null if it has none.
+    private Consumer<T>[] onCommit;
     private final Consumer<T> consumer;
     private boolean committed;
 
+    @SuppressWarnings("unchecked")
     public Transaction(final Consumer<T> consumed) {
         this.transmitted = new ObjectArrayList<>(1);
-        this.onCommit = new ObjectArrayList<>(1);
+        this.onCommit = (Consumer<T>[]) NO_CALLBACKS;
         this.consumer = consumed;
         this.committed = false;
     }
 
     protected T addData(T t) {
         if (committed) return t;
+        int index = transmitted.size();
+        if (index == onCommit.length) {
+            onCommit = Arrays.copyOf(onCommit, Math.max(4, index * 2));
+        }
         this.transmitted.add(t);
         return t;
     }
 
+    /**
+     * Clears the data and the callbacks, so the transaction can be used again.
+     */
+    protected void reset() {
+        Arrays.fill(onCommit, 0, transmitted.size(), null);
+        this.transmitted.clear();
+        this.committed = false;
+    }
+
     public T getLast() {
         if (transmitted.size() == 0) throw new IllegalStateException("call to Transaction::getLast without data");
         return transmitted.get(transmitted.size()-1);
     }
 
     public Iterable<T> getOffset(int j) {
-        return () ->{
-            Iterator<T> t = this.transmitted.iterator();
-            for (int i = 0; i < j; i++) {
-                t.next();
-            }
-            return t;
-        };
+        return () -> this.transmitted.listIterator(j);
     }
 
     public List<T> getData() {
@@ -48,32 +67,54 @@ public abstract class Transaction<T> {
         return this.committed && this.transmitted.size() > 0;
     }
 
+    /**
+     * Sets the callback of the last added data, which runs when it is committed. A data given several callbacks runs
+     * them in the order they were set.
+     *
+     * @param consumer The callback, null for none.
+     */
     public void onCommit(Consumer<T> consumer) {
-        if (committed) return;
-        this.onCommit.ensureCapacity(transmitted.size());
-        this.onCommit.add(transmitted.size() - 1, consumer);
+        if (committed || consumer == null) return;
+        int index = transmitted.size() - 1;
+        if (index < 0) throw new IllegalStateException("call to Transaction::onCommit without data");
+        Consumer<T> value = onCommit[index];
+        onCommit[index] = value == null ? consumer : value.andThen(consumer);
     }
 
+    /**
+     * Runs the consumer before the callbacks of the data from the offset on.
+     *
+     * @param offset   The index of the first data.
+     * @param consumer The consumer.
+     */
     public void withCallbackBefore(int offset, Consumer<T> consumer) {
-        for (int i = offset; i < this.onCommit.size(); i++) {
-            var value = this.onCommit.get(i);
-            this.onCommit.add(i, consumer.andThen(value));
+        for (int i = offset; i < transmitted.size(); i++) {
+            Consumer<T> value = onCommit[i];
+            onCommit[i] = value == null ? consumer : consumer.andThen(value);
         }
     }
 
+    /**
+     * Runs the consumer after the callbacks of the data from the offset on.
+     *
+     * @param offset   The index of the first data.
+     * @param consumer The consumer.
+     */
     public void withCallbackAfter(int offset, Consumer<T> consumer) {
-        for (int i = offset; i < this.onCommit.size(); i++) {
-            var value = this.onCommit.get(i);
-            this.onCommit.add(i, value.andThen(consumer));
+        for (int i = offset; i < transmitted.size(); i++) {
+            Consumer<T> value = onCommit[i];
+            onCommit[i] = value == null ? consumer : value.andThen(consumer);
         }
     }
+
     public void commit() {
         if (committed) return;
         for (int i = 0; i < transmitted.size(); i++) {
-            if (onCommit.get(i) != null) {
-                onCommit.get(i).accept(transmitted.get(i));
+            T t = transmitted.get(i);
+            if (onCommit[i] != null) {
+                onCommit[i].accept(t);
             }
-            this.consumer.accept(transmitted.get(i));
+            this.consumer.accept(t);
         }
         committed = true;
     }
@@ -10,14 +10,27 @@ import tesseract.api.gt.*;
 import tesseract.graph.Graph;
 import tesseract.util.Pos;
 
+import java.util.function.Consumer;
+
 public class TesseractGTCapability<T extends BlockEntity & IGTCable> extends TesseractBaseCapability<T> implements IEnergyHandler {
 
     private final IGTCable cable;
     private GTTransaction old;
-
+    // The data the modifiers are asked with before inserting around the pipe, reused while the transaction is.
+    private GTTransaction.TransferData probe;
+    // The handlers around the pipe and the callbacks committing to them, by direction, so a transfer does not capture
+    // them in a new lambda.
+    private final IEnergyHandler[] handlers = new IEnergyHandler[Graph.DIRECTIONS.length];
+    private final Consumer<GTTransaction.TransferData>[] commits;
+
+    @SuppressWarnings("unchecked")
     public TesseractGTCapability(T tile, Direction dir, boolean isNode, ITransactionModifier modifier) {
         super(tile, dir, isNode, modifier);
         this.cable = tile;
+        this.commits = new Consumer[Graph.DIRECTIONS.length];
+        for (Direction direction : Graph.DIRECTIONS) {
+            commits[direction.get3DDataValue()] = t -> commitAroundPipe(t, direction);
+        }
     }
 
     @Override
@@ -28,7 +41,7 @@ public class TesseractGTCapability<T extends BlockEntity & IGTCable> extends Tes
             old.commit();
         } else {
             long pos = tile.getBlockPos().asLong();
-            GTTransaction transaction = new GTTransaction(voltage, t -> {});
+            GTTransaction transaction = old != null && old.voltage == voltage ? old.reuse() : new GTTransaction(voltage, t -> {});
             if (!this.isNode) {
                 TesseractGraphWrappers.GT_ENERGY.getController(tile.getLevel(), pos).insert(pos, side, transaction, callback);
             } else {
@@ -65,7 +78,8 @@ public class TesseractGTCapability<T extends BlockEntity & IGTCable> extends Tes
                 }
 
                 long remainingEu = lossAdded ? transaction.eu : transaction.eu - loss;
-                GTTransaction.TransferData data = new GTTransaction.TransferData(transaction, remainingEu, transaction.voltage).setLoss(cable.getLoss());
+                GTTransaction.TransferData data = probe != null && probe.transaction == transaction ? probe.set(remainingEu, transaction.voltage) : new GTTransaction.TransferData(transaction, remainingEu, transaction.voltage);
+                probe = data.setLoss(cable.getLoss());
                 if (this.callback.modify(data, dir, false, true) || this.callback.modify(data, side, true, true)){
                     continue;
                 }
@@ -74,12 +88,8 @@ public class TesseractGTCapability<T extends BlockEntity & IGTCable> extends Tes
                 if (remainingEu <= 0) return;
                 long inserted = handler.insertEu(remainingEu, true);
                 if (inserted > 0){
-                    transaction.addData(inserted, inserted, cable.getLoss(), t -> {
-                        if (this.callback.modify(t, dir, false, false) || this.callback.modify(data, side, true, false)){
-                            return;
-                        }
-                        handler.insertEu(t.getEu(), false);
-                    });
+                    handlers[dir.get3DDataValue()] = handler;
+                    transaction.addData(inserted, inserted, cable.getLoss(), commits[dir.get3DDataValue()]);
                     if (transaction.voltage > this.cable.getVoltage()){
                         ((IGTEvent)TesseractGraphWrappers.GT_ENERGY.getController(tile.getLevel(), pos)).onCableOverVoltage(tile.getLevel(), pos, transaction.voltage);
                     }
@@ -89,6 +99,13 @@ public class TesseractGTCapability<T extends BlockEntity & IGTCable> extends Tes
         }
     }
 
+    private void commitAroundPipe(GTTransaction.TransferData data, Direction dir) {
+        if (this.callback.modify(data, dir, false, false) || this.callback.modify(data, side, true, false)){
+            return;
+        }
+        handlers[dir.get3DDataValue()].insertEu(data.getEu(), false);
+    }
+
     @Override
     public long getEnergy() {
         return 0;
@@ -13,6 +13,7 @@ import tesseract.TesseractGraphWrappers;
 import tesseract.api.item.IItemNode;
 import tesseract.api.item.IItemPipe;
 import tesseract.api.item.ItemTransaction;
+import tesseract.api.item.SlotHints;
 import tesseract.graph.Graph;
 import tesseract.util.ItemHandlerUtils;
 import tesseract.util.Pos;
@@ -24,6 +25,8 @@ public class TesseractItemCapability<T extends BlockEntity & IItemPipe> extends
     
     private ItemTransaction old;
     private final Predicate<Direction> canOutput;
+    // The slot hints of the handlers around a node pipe, by direction.
+    private final SlotHints[] hints = new SlotHints[Graph.DIRECTIONS.length];
     
     public TesseractItemCapability(T tile, Direction dir, boolean isNode, ITransactionModifier onTransaction, Predicate<Direction> canOutput) {
         super(tile, dir, isNode, onTransaction);
@@ -93,11 +96,12 @@ public class TesseractItemCapability<T extends BlockEntity & IItemPipe> extends
                 if (cap.isEmpty()) continue;
                 //Perform insertion, and add to the transaction.
                 var handler = cap.get();
-                var newStack = ItemHandlerUtils.insertItem(handler, stack, true);
+                SlotHints slotHints = getHints(dir);
+                var newStack = ItemHandlerUtils.insertItem(handler, stack, true, slotHints, otherTile);
                 if (newStack.getCount() < stack.getCount()) {
                     transaction.addData(stack.getCount() - newStack.getCount(), a -> {
                         if (this.callback.modify(a, dir, false, false)) return;
-                        ItemHandlerUtils.insertItem(handler, a, false);
+                        ItemHandlerUtils.insertItem(handler, a, false, slotHints, otherTile);
                     });
                     stackIn = newStack;
                 }
@@ -106,6 +110,15 @@ public class TesseractItemCapability<T extends BlockEntity & IItemPipe> extends
         }
     }
 
+    private SlotHints getHints(Direction dir) {
+        SlotHints slotHints = hints[dir.get3DDataValue()];
+        if (slotHints == null) {
+            slotHints = new SlotHints();
+            hints[dir.get3DDataValue()] = slotHints;
+        }
+        return slotHints;
+    }
+
     @NotNull
     @Override
     public ItemStack extractItem(int slot, int amount, boolean simulate) {
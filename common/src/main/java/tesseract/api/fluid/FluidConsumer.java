@@ -2,8 +2,10 @@ package tesseract.api.fluid;
 
 import earth.terrarium.botarium.common.fluid.base.FluidHolder;
 import net.minecraft.core.Direction;
+import tesseract.api.ChainAggregate;
 import tesseract.api.ConnectionType;
 import tesseract.api.Consumer;
+import tesseract.api.RouteCostModel;
 import tesseract.graph.Path;
 
 
@@ -25,6 +27,9 @@ public class FluidConsumer extends Consumer<IFluidPipe, IFluidNode> {
 
     public long lowestPipePosition = -1;
 
+    // Way of the sorting by the priority level, and by the distance to the node when there is no priority
+    public static final RouteCostModel<FluidConsumer> COST = c -> RouteCostModel.pack(-c.getPriority(), c.getPriority() == 0 ? c.getDistance() : 0);
+
     /**
      * Creates instance of the consumer.
      *
@@ -78,9 +83,49 @@ public class FluidConsumer extends Consumer<IFluidPipe, IFluidNode> {
         isProof = Math.min(isProof, pipe.isGasProof() ? 1 : 0);
         minTemperature = Math.min(minTemperature, pipe.getTemperature());
         minCapacity = Math.min(minCapacity, pipe.getCapacity());
-        if (pipe.getPressure() < minPressure && connection == ConnectionType.SINGLE) {
-            lowestPipePosition = this.getFull().long2ObjectEntrySet().stream().filter(t -> t.getValue() == pipe).findFirst().get().getLongKey();
+        if (pipe.getPressureInDroplets() < minPressure && connection == ConnectionType.SINGLE) {
+            lowestPipePosition = pos;
         }
         minPressure = Math.min(minPressure, pipe.getPressureInDroplets());
     }
+
+    @Override
+    protected ChainAggregate<IFluidPipe> createAggregate() {
+        return new PipeRun();
+    }
+
+    @Override
+    protected void onChainCatch(ChainAggregate<IFluidPipe> aggregate) {
+        PipeRun run = (PipeRun) aggregate;
+        isProof = Math.min(isProof, run.isProof);
+        minTemperature = Math.min(minTemperature, run.minTemperature);
+        minCapacity = Math.min(minCapacity, run.minCapacity);
+        if (run.minPressure < minPressure && connection == ConnectionType.SINGLE) {
+            lowestPipePosition = run.lowestPipePosition;
+        }
+        minPressure = Math.min(minPressure, run.minPressure);
+    }
+
+    /**
+     * The limits of a chain of pipes, and the first pipe of the lowest pressure counted from the head of the chain.
+     */
+    private static class PipeRun implements ChainAggregate<IFluidPipe> {
+
+        private int isProof = 1;
+        private int minCapacity = Integer.MAX_VALUE;
+        private long minPressure = Long.MAX_VALUE;
+        private int minTemperature = Integer.MAX_VALUE;
+        private long lowestPipePosition = -1;
+
+        @Override
+        public void add(long pos, IFluidPipe pipe) {
+            isProof = Math.min(isProof, pipe.isGasProof() ? 1 : 0);
+            minTemperature = Math.min(minTemperature, pipe.getTemperature());
+            minCapacity = Math.min(minCapacity, pipe.getCapacity());
+            if (pipe.getPressureInDroplets() < minPressure) {
+                lowestPipePosition = pos;
+            }
+            minPressure = Math.min(minPressure, pipe.getPressureInDroplets());
+        }
+    }
 }
@@ -5,20 +5,26 @@ import it.unimi.dsi.fastutil.longs.Long2LongMap;
 import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.core.Direction;
 import net.minecraft.world.level.Level;
 import org.jetbrains.annotations.NotNull;
+import net.minecraft.world.level.material.Fluid;
 import tesseract.FluidPlatformUtils;
+import tesseract.TesseractConfig;
 import tesseract.api.ConnectionType;
-import tesseract.api.Consumer;
 import tesseract.api.Controller;
+import tesseract.api.DistributionStrategy;
+import tesseract.api.FlowLedger;
 import tesseract.api.ITickingController;
+import tesseract.api.RouteCostModel;
 import tesseract.api.capability.ITransactionModifier;
 import tesseract.graph.Cache;
 import tesseract.graph.Graph;
 import tesseract.graph.Grid;
 import tesseract.graph.INode;
+import tesseract.graph.NodeCache;
 import tesseract.graph.Path;
 import tesseract.util.Node;
 import tesseract.util.Pos;
@@ -41,6 +47,10 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
     private boolean isLeaking, lastLeaking;
     private final Long2ObjectMap<Map<Direction, List<FluidConsumer>>> data = new Long2ObjectLinkedOpenHashMap<>();
     private final Long2LongMap pressureData = new Long2LongOpenHashMap(10);
+    // Pipe pressure accounting, when it is settled once per tick.
+    private final FlowLedger<IFluidPipe, Fluid> ledger = new FlowLedger<>();
+    private final FlowLedger.Settler<IFluidPipe, Fluid> settler = this::onSettle;
+    private RouteCostModel<FluidConsumer> costModel = FluidConsumer.COST;
 
     /**
      * Creates instance of the controller.
@@ -51,48 +61,110 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
         super(world, getter);
     }
 
+    /**
+     * Sets the order the routes of the producers are tried in, the routes are rebuilt with it.
+     *
+     * @param costModel The cost model of the routes.
+     */
+    public void setRouteCostModel(RouteCostModel<FluidConsumer> costModel) {
+        this.costModel = costModel;
+        markChanged();
+    }
+
     @Override
     public void change() {
         if (!SLOOSH) {
             data.clear();
-            for (var entry : this.group.getNodes().long2ObjectEntrySet()) {
-                long pos = entry.getLongKey();
-                var producers = entry.getValue();
-
-                for (Map.Entry<Direction, IFluidNode> tup : producers.values()) {
-                    IFluidNode producer = tup.getValue();
-                    Direction direction = tup.getKey();
-                    if (producer.canOutput(direction)) {
-                        List<FluidConsumer> consumers = new ObjectArrayList<>();
-                        long side = Pos.offset(pos, direction);
-                        
-                        Grid<IFluidPipe> grid = group.getGridAt(side, direction);
-                        if (grid != null) {
-                            for (Path<IFluidPipe> path : grid.getPaths(pos)) {
-                                if (!path.isEmpty()) {
-                                    Node target = path.target();
-                                    assert target != null;
-                                    onCheck(producer, consumers, path, target.getDirection(), target.asLong());
-                                }
-                            }
-                        } else if (group.getNodes().containsKey(side)) {
-                            onCheck(producer, consumers, null, direction.getOpposite(), side);
-                        }
+            buildAll(data, this::build);
+        }
+    }
 
-                        if (!consumers.isEmpty()) {
-                            data.computeIfAbsent(pos, map -> new EnumMap<>(Direction.class))
-                                    .put(direction.getOpposite(), consumers);
+    /**
+     * Collects the consumers available for each output side of the producer.
+     *
+     * @param pos       The position of the producer.
+     * @param producers The producer node.
+     * @param paths     The source of the paths.
+     * @param routes    The consumers by side, to fill in.
+     * @return whether or not an issue arose checking nodes.
+     */
+    private boolean build(long pos, NodeCache<IFluidNode> producers, PathSource<IFluidPipe> paths, Map<Direction, List<FluidConsumer>> routes) {
+        for (Map.Entry<Direction, IFluidNode> tup : producers.values()) {
+            IFluidNode producer = tup.getValue();
+            Direction direction = tup.getKey();
+            if (producer.canOutput(direction)) {
+                List<FluidConsumer> consumers = new ObjectArrayList<>();
+                long side = Pos.offset(pos, direction);
+
+                Grid<IFluidPipe> grid = group.getGridAt(side, direction);
+                if (grid != null) {
+                    for (Path<IFluidPipe> path : paths.getPaths(grid, pos)) {
+                        if (!path.isEmpty()) {
+                            Node target = path.target();
+                            assert target != null;
+                            onCheck(producer, consumers, path, target.getDirection(), target.asLong());
                         }
                     }
+                } else if (group.getNodes().containsKey(side)) {
+                    onCheck(producer, consumers, null, direction.getOpposite(), side);
                 }
-            }
 
-            for (Map<Direction, List<FluidConsumer>> map : data.values()) {
-                for (List<FluidConsumer> consumers : map.values()) {
-                    consumers.sort(Consumer.COMPARATOR);
+                if (!consumers.isEmpty()) {
+                    RouteCostModel.sort(consumers, costModel);
+                    routes.put(direction.getOpposite(), consumers);
                 }
             }
         }
+        return true;
+    }
+
+    @Override
+    protected void extend(long pos, Direction direction, List<Path<IFluidPipe>> paths) {
+        IFluidNode producer = group.getNodes().get(pos).value(direction);
+        if (producer == null || !producer.canOutput(direction))
+            return;
+        List<FluidConsumer> consumers = new ObjectArrayList<>();
+        for (Path<IFluidPipe> path : paths) {
+            Node target = path.target();
+            onCheck(producer, consumers, path, target.getDirection(), target.asLong());
+        }
+        if (!consumers.isEmpty()) {
+            List<FluidConsumer> list = data.computeIfAbsent(pos, m -> new EnumMap<>(Direction.class))
+                    .computeIfAbsent(direction.getOpposite(), d -> new ObjectArrayList<>());
+            list.addAll(consumers);
+            RouteCostModel.sort(list, costModel);
+        }
+    }
+
+    @Override
+    protected void rebuild(long pos) {
+        data.remove(pos);
+        NodeCache<IFluidNode> cache = group.getNodes().get(pos);
+        if (!SLOOSH && cache != null) {
+            Map<Direction, List<FluidConsumer>> routes = new EnumMap<>(Direction.class);
+            build(pos, cache, Grid::getPaths, routes);
+            if (!routes.isEmpty()) {
+                data.put(pos, routes);
+            }
+        }
+    }
+
+    @Override
+    protected boolean retain(Controller<FluidTransaction, IFluidPipe, IFluidNode> source, LongSet touched) {
+        partition(source, ((FluidController) source).data, data, touched);
+        return true;
+    }
+
+    @Override
+    protected boolean canOutput(IFluidNode node, Direction direction) {
+        return node.canOutput(direction);
+    }
+
+    @Override
+    protected boolean adopt(Controller<FluidTransaction, IFluidPipe, IFluidNode> source) {
+        data.clear();
+        data.putAll(((FluidController) source).data);
+        return true;
     }
 
     /**
@@ -111,6 +183,7 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
 
     @Override
     public void insert(long producerPos, Direction side, FluidTransaction transaction, ITransactionModifier modifier) {
+        flushChanged();
         if (SLOOSH || !transaction.isValid())
             return;
 
@@ -123,13 +196,38 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
 
         pressureData.clear();
 
-        loop: for (FluidConsumer consumer : list) {
+        long pos = Pos.offset(producerPos, side);
+        int size = list.size();
+        long available = transaction.stack.getFluidAmount();
+        long[] demands = null;
+        long total = 0;
+        if (distribution.isProportional()) {
+            demands = getDemands(size);
+            for (int i = 0; i < size; i++) {
+                FluidConsumer consumer = list.get(i);
+                FluidHolder data = transaction.stack.copyHolder();
+                demands[i] = isValid(consumer) && consumer.canHold(data) ? Math.max(0, consumer.insert(data, true)) : 0;
+                total += demands[i];
+            }
+        }
+        int cursor = getCursor(pos, side);
+        int start = distribution.getStart(cursor, size);
+
+        loop: for (int n = 0; n < size; n++) {
+            int i = DistributionStrategy.getIndex(start, n, size);
+            FluidConsumer consumer = list.get(i);
+            if (!isValid(consumer)) {
+                continue;
+            }
             FluidHolder data = transaction.stack.copyHolder();
             if (!consumer.canHold(data)) {
                 continue;
             }
 
             long amount = consumer.insert(data, true);
+            if (demands != null) {
+                amount = Math.min(amount, DistributionStrategy.getShare(available, demands[i], total));
+            }
             if (amount <= 0) {
                 continue;
             }
@@ -138,12 +236,12 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
                     if (consumer.lowestPipePosition == -1) {
                         amount = Math.min(amount, consumer.getMinPressure() * 20);
                     } else {
-                        amount = Math.min(amount, this.group.getConnector(consumer.lowestPipePosition).value().getHolder().getPressureAvailable());
+                        amount = Math.min(amount, getHolder(this.group.getConnector(consumer.lowestPipePosition).value()).getPressureAvailable());
                     }
                 } else {
                     for (Long2ObjectMap.Entry<IFluidPipe> entry : consumer.getCross()
                             .long2ObjectEntrySet()) {
-                        PipeFluidHolder holder = entry.getValue().getHolder();
+                        PipeFluidHolder holder = getHolder(entry.getValue());
                         if (!holder.allowFluid(data.getFluid())) {
                             amount = 0;
                             break;
@@ -166,10 +264,12 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
                 }
             }
             transaction.addData(data.copyHolder(), a -> commitFluid(consumer, a));
+            cursor = distribution.getCursor(cursor, i, size);
 
             if (transaction.stack.isEmpty())
                 break;
         }
+        setCursor(pos, side, cursor);
     }
     public void commitFluid(FluidConsumer consumer, FluidHolder stack) {
         int temperature = FluidPlatformUtils.INSTANCE.getFluidTemperature(stack.getFluid());
@@ -180,6 +280,8 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
             for (Long2ObjectMap.Entry<IFluidPipe> p : consumer.getFull().long2ObjectEntrySet()) {
                 long pos = p.getLongKey();
                 IFluidPipe pipe = p.getValue();
+                // The handler checks the fluids of the holder, which have to be up to the current tick.
+                advance(pipe);
                 switch (pipe.getHandler(stack, temperature, isGaseous)) {
                     case FAIL_TEMP -> {
                         onPipeOverTemp(getWorld(), pos, temperature);
@@ -197,6 +299,9 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
 
         if (consumer.getConnection() == ConnectionType.SINGLE) {
            if (!checkCommitPipe(consumer.lowestPipePosition, amount, stack)) return;
+        } else if (consumer.getConnection() == ConnectionType.VARIATE && usesLedger()) {
+            // The pipes are checked when the ledger is settled, on the next tick.
+            ledger.add(consumer.getPath(), stack.getFluid(), stack.getFluidAmount());
         } else if (consumer.getConnection() == ConnectionType.VARIATE) {
             for (Long2ObjectMap.Entry<IFluidPipe> pathHolderEntry : consumer.getCross()
                     .long2ObjectEntrySet()) {
@@ -209,7 +314,7 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
     }
 
     private boolean checkCommitPipe(long pos, long amount, FluidHolder stack) {
-        PipeFluidHolder holder = this.group.getConnector(pos).value().getHolder();
+        PipeFluidHolder holder = getHolder(this.group.getConnector(pos).value());
         holder.use(stack.getFluidAmount(), stack.getFluid(), getWorld().getGameTime());
         if (holder.isOverPressure()) {
             onPipeOverPressure(getWorld(), pos, amount, stack);
@@ -225,11 +330,57 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
     @Override
     public void tick() {
         super.tick();
-        for (Cache<IFluidPipe> pipe : this.group.connectors()) {
-            pipe.value().getHolder().tick(getWorld().getGameTime());
+        // The holders of the pipes are brought up to the tick when they are used, so they need no update here.
+        ledger.settle(true, settler);
+    }
+
+    /**
+     * Applies the fluid a pipe carried during the last tick, from the ledger.
+     *
+     * @param pos    The position of the pipe.
+     * @param pipe   The pipe.
+     * @param fluid  The fluid.
+     * @param amount The amount of the fluid through the pipe.
+     */
+    private void onSettle(long pos, IFluidPipe pipe, Fluid fluid, long amount) {
+        Cache<IFluidPipe> cache = group.getConnector(pos);
+        if (cache == null || cache.value() != pipe) {
+            return;
+        }
+        PipeFluidHolder holder = getHolder(pipe);
+        holder.use(amount, fluid, getWorld().getGameTime());
+        if (holder.isOverPressure()) {
+            onPipeOverPressure(getWorld(), pos, amount, FluidPlatformUtils.createFluidStack(fluid, amount));
+        } else if (holder.isOverCapacity()) {
+            onPipeOverCapacity(getWorld(), pos, amount, FluidPlatformUtils.createFluidStack(fluid, amount));
         }
     }
 
+    /**
+     * @param pipe The pipe.
+     * @return Gets the holder of the pipe, brought up to the current tick.
+     */
+    private PipeFluidHolder getHolder(IFluidPipe pipe) {
+        advance(pipe);
+        return pipe.getHolder();
+    }
+
+    /**
+     * Brings the holder of the pipe up to the current tick.
+     *
+     * @param pipe The pipe.
+     */
+    private void advance(IFluidPipe pipe) {
+        pipe.getHolder().tick(getWorld().getGameTime());
+    }
+
+    /**
+     * @return Checks that the pipe pressure is accounted by the ledger.
+     */
+    private static boolean usesLedger() {
+        return TesseractConfig.FLOW_LEDGER != null && TesseractConfig.FLOW_LEDGER.get();
+    }
+
     @Override
     protected void onFrame() {
         lastTemperature = maxTemperature;
@@ -245,12 +396,16 @@ public class FluidController extends Controller<FluidTransaction, IFluidPipe, IF
         if (this.group != null) {
             this.group.getGroupInfo(pos, list);
             list.add(String.format("Fluid Data size: %d", this.data.size()));
+            super.getInfo(pos, list);
         }
     }
 
     @Override
     public ITickingController clone(INode group) {
-        return new FluidController(dim, getter).set(group);
+        FluidController controller = new FluidController(dim, getter);
+        controller.costModel = costModel;
+        controller.distribution = distribution;
+        return controller.set(group);
     }
 
 }
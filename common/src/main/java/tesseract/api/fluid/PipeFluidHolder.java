@@ -6,17 +6,26 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.material.Fluid;
 import tesseract.FluidPlatformUtils;
 
+import java.util.Arrays;
 import java.util.Set;
 
 /**
  * A class that acts as holder of the fluid that has passed thought pipes.
+ * <p>
+ * The fluids of a pipe are kept as the fluids and the ticks they were last added at, in arrays sized to the capacity
+ * of the pipe, so using and checking a pipe neither allocates nor looks up the registry. The fluids are registry
+ * objects, so they are compared by identity.
+ * </p>
  */
 public class PipeFluidHolder {
 
     private long pressureAvailable;
     public long tickPressure;
     public final int maxCapacity;
-    private final Set<SetHolder> fluids = new ObjectOpenHashSet<>();
+    private long lastTick = -1;
+    private Fluid[] fluids;
+    private long[] added; // the ticks the fluids were last added at
+    private int size;
 
     /**
      * Creates instance of the holder.
@@ -28,11 +37,35 @@ public class PipeFluidHolder {
         this.tickPressure = pipe.getPressureInDroplets();
 
         this.pressureAvailable = tickPressure * 20L;
+        this.fluids = new Fluid[Math.max(maxCapacity, 1)];
+        this.added = new long[fluids.length];
     }
 
+    /**
+     * Brings the holder up to the given tick, restoring the pressure of the ticks passed since it was last brought up
+     * and dropping the fluids added a second ago. The holder is only brought up when it is used, so an idle pipe
+     * costs nothing per tick.
+     *
+     * @param time The current tick.
+     */
     public void tick(long time) {
-        pressureAvailable = Math.min(pressureAvailable + tickPressure, tickPressure * 20);
-        this.fluids.removeIf(t -> time - t.timeAdded >= 20);
+        if (time == lastTick) {
+            return;
+        }
+        long passed = lastTick < 0 ? 20 : Math.min(time - lastTick, 20);
+        lastTick = time;
+        if (passed > 0) {
+            pressureAvailable = Math.min(pressureAvailable + tickPressure * passed, tickPressure * 20);
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (time - added[i] < 20) {
+                fluids[kept] = fluids[i];
+                added[kept++] = added[i];
+            }
+        }
+        Arrays.fill(fluids, kept, size, null);
+        size = kept;
     }
 
     /**
@@ -42,13 +75,30 @@ public class PipeFluidHolder {
      */
     public void use(long pressure, Fluid fluid, long currentTime) {
         this.pressureAvailable -= pressure;
-        SetHolder holder = new SetHolder(fluid, currentTime);
-        fluids.remove(holder);
-        fluids.add(holder);
+        int index = indexOf(fluid);
+        if (index == -1) {
+            // The pipe can be pushed over its capacity, which bursts it.
+            if (size == fluids.length) {
+                fluids = Arrays.copyOf(fluids, size * 2);
+                added = Arrays.copyOf(added, size * 2);
+            }
+            index = size++;
+            fluids[index] = fluid;
+        }
+        added[index] = currentTime;
+    }
+
+    private int indexOf(Fluid fluid) {
+        for (int i = 0; i < size; i++) {
+            if (fluids[i] == fluid) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
-     * @return Gets the current available pressure. If 0 then no liquid can be sent
+     * @return Gets the available pressure as of the tick the holder was last brought up to. If 0 then no liquid can be sent
      */
     public long getPressureAvailable() {
         return pressureAvailable;
@@ -58,7 +108,7 @@ public class PipeFluidHolder {
      * @return Gets a current capacity.
      */
     public int getCapacity() {
-        return fluids.size();
+        return size;
     }
 
     /**
@@ -72,23 +122,33 @@ public class PipeFluidHolder {
      * @return Checks that the holder is not able to handle pressure.
      */
     public boolean isOverCapacity() {
-        return maxCapacity < fluids.size();
+        return maxCapacity < size;
     }
 
     public boolean allowFluid(Fluid fluid) {
-        SetHolder holder = new SetHolder(fluid, 0);
-        if (fluids.contains(holder)) {
+        if (size < maxCapacity) {
             return true;
         }
-        return maxCapacity > fluids.size();
+        return indexOf(fluid) != -1;
     }
 
+    /**
+     * The fluids are kept in arrays, so this is a snapshot taken on every call rather than the live set of the holder.
+     * Changes to it are not written back, use {@link #use(long, Fluid, long)} and {@link #clear()} instead.
+     *
+     * @return Gets a copy of the fluids of the holder.
+     */
     public Set<SetHolder> getFluids() {
-        return fluids;
+        Set<SetHolder> set = new ObjectOpenHashSet<>(size);
+        for (int i = 0; i < size; i++) {
+            set.add(new SetHolder(fluids[i], added[i]));
+        }
+        return set;
     }
 
     public void clear() {
-        this.fluids.clear();
+        Arrays.fill(fluids, 0, size, null);
+        this.size = 0;
         this.pressureAvailable = tickPressure*20;
     }
 
@@ -1,13 +1,15 @@
 package tesseract.api.gt;
 
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
+import tesseract.api.ChainAggregate;
 import tesseract.api.Consumer;
+import tesseract.api.RouteCostModel;
 import tesseract.graph.Path;
 
 import java.util.Comparator;
-
-import static java.lang.Integer.compare;
+import java.util.List;
 
 /**
  * A class that acts as a container for an electrical consumer.
@@ -18,8 +20,19 @@ public class GTConsumer extends Consumer<IGTCable, IGTNode> {
     private long minVoltage = Integer.MAX_VALUE;
     private int minAmperage = Integer.MAX_VALUE;
 
-    // Way of the sorting by the loss and the distance to the node
-    public static final Comparator<GTConsumer> COMPARATOR = (t1, t2) -> (t1.getDistance() == t2.getDistance()) ? Double.compare(t1.getLoss(), t2.getLoss()) : compare(t1.getDistance(), t2.getDistance());
+    // The loss is kept in fixed point below the distance, in steps of 1/65536 and up to 2^24
+    private static final int LOSS_BITS = 40;
+    private static final double LOSS_SCALE = 1 << 16;
+    private static final long LOSS_MASK = (1L << LOSS_BITS) - 1;
+
+    // Way of the sorting by the distance to the node and the loss
+    public static final RouteCostModel<GTConsumer> COST = c -> (long) c.getDistance() << LOSS_BITS | Math.min(LOSS_MASK, Math.round(Math.max(0, c.getLoss()) * LOSS_SCALE));
+
+    /**
+     * @deprecated Sort with {@link RouteCostModel#sort(List, RouteCostModel)} and {@link #COST}.
+     */
+    @Deprecated
+    public static final Comparator<GTConsumer> COMPARATOR = Comparator.comparingLong(COST::getCost);
 
     public final LongSet uninsulatedCables = new LongOpenHashSet();
 
@@ -76,6 +89,7 @@ public class GTConsumer extends Consumer<IGTCable, IGTNode> {
         loss = consumer.loss;
         full = consumer.full;
         cross = consumer.cross;
+        path = consumer.path;
         minVoltage = consumer.minVoltage;
         minAmperage = consumer.minAmperage;
     }
@@ -90,6 +104,41 @@ public class GTConsumer extends Consumer<IGTCable, IGTNode> {
         }
     }
 
+    @Override
+    protected ChainAggregate<IGTCable> createAggregate() {
+        return new CableRun();
+    }
+
+    @Override
+    protected void onChainCatch(ChainAggregate<IGTCable> aggregate) {
+        CableRun run = (CableRun) aggregate;
+        loss += run.loss;
+        minVoltage = Math.min(minVoltage, run.minVoltage);
+        minAmperage = Math.min(minAmperage, run.minAmperage);
+        uninsulatedCables.addAll(run.uninsulated);
+    }
+
+    /**
+     * The summed loss and the limits of a chain of cables.
+     */
+    private static class CableRun implements ChainAggregate<IGTCable> {
+
+        private double loss;
+        private long minVoltage = Integer.MAX_VALUE;
+        private int minAmperage = Integer.MAX_VALUE;
+        private final LongArrayList uninsulated = new LongArrayList();
+
+        @Override
+        public void add(long pos, IGTCable cable) {
+            loss += cable.getLoss();
+            minVoltage = Math.min(minVoltage, cable.getVoltage());
+            minAmperage = Math.min(minAmperage, cable.getAmps());
+            if (!cable.insulated()) {
+                uninsulated.add(pos);
+            }
+        }
+    }
+
     public static class State {
         long ampsReceived;
         long ampsSent;
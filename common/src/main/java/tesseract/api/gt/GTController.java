@@ -7,19 +7,25 @@ import net.minecraft.core.Direction;
 import net.minecraft.world.level.Level;
 import org.jetbrains.annotations.NotNull;
 import tesseract.Tesseract;
+import tesseract.TesseractConfig;
 import tesseract.api.ConnectionType;
 import tesseract.api.Controller;
+import tesseract.api.DistributionStrategy;
+import tesseract.api.FlowLedger;
 import tesseract.api.ITickingController;
+import tesseract.api.RouteCostModel;
 import tesseract.api.capability.ITransactionModifier;
+import tesseract.graph.Cache;
 import tesseract.graph.Graph;
 import tesseract.graph.Grid;
 import tesseract.graph.INode;
 import tesseract.graph.NodeCache;
 import tesseract.graph.Path;
+import tesseract.graph.PathTree;
 import tesseract.util.Node;
 import tesseract.util.Pos;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +33,7 @@ import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 
 /**
  * Class acts as a controller in the group of an electrical components.
@@ -40,8 +47,28 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
     private Long2LongMap previousFrameHolder = new Long2LongLinkedOpenHashMap();
     // private final Object2IntMap<IGTNode> obtains = new Object2IntOpenHashMap<>();
     private final Long2ObjectMap<Map<Direction, List<GTConsumer>>> data = new Long2ObjectLinkedOpenHashMap<>();
+    // Cable amperage accounting, when it is settled once per tick.
+    private final FlowLedger<IGTCable, Void> ledger = new FlowLedger<>();
+    private final FlowLedger.Settler<IGTCable, Void> settler = this::onSettle;
+    // The union of the cables of the packet being committed.
+    private final LongSet unionSeen = new LongOpenHashSet();
+    private long[] unionPositions = new long[16];
+    private IGTCable[] unionCables = new IGTCable[16];
+    private int unionSize;
+    private static final Consumer<GTTransaction.TransferData> COMMIT = GTController::commit;
+    private static final Consumer<NodeCache<IGTNode>> TICK_NODE = node -> {
+        for (Direction direction : Graph.DIRECTIONS) {
+            IGTNode value = node.value(direction);
+            if (value != null) {
+                value.tesseractTick();
+                break;
+            }
+        }
+    };
 
     public final LongSet cableIsActive = new LongOpenHashSet();
+    private final LongConsumer activate = cableIsActive::add;
+    private RouteCostModel<GTConsumer> costModel = GTConsumer.COST;
 
     /**
      * Creates instance of the controller.
@@ -52,6 +79,16 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
         super(dim, getter);
     }
 
+    /**
+     * Sets the order the routes of the producers are tried in, the routes are rebuilt with it.
+     *
+     * @param costModel The cost model of the routes.
+     */
+    public void setRouteCostModel(RouteCostModel<GTConsumer> costModel) {
+        this.costModel = costModel;
+        markChanged();
+    }
+
     /**
      * Executes when the group structure has changed.
      * <p>
@@ -75,40 +112,95 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
 
     private boolean changeInternal() {
         data.clear();
-        for (Long2ObjectMap.Entry<NodeCache<IGTNode>> e : group.getNodes().long2ObjectEntrySet()) {
-            long pos = e.getLongKey();
-            for (Map.Entry<Direction, IGTNode> tup : e.getValue().values()) {
-                IGTNode producer = tup.getValue();
-                Direction direction = tup.getKey();
-                if (producer.canOutput(direction)) {
-                    long side = Pos.offset(pos, direction);
-                    List<GTConsumer> consumers = new ObjectArrayList<>();
-
-                    Grid<IGTCable> grid = group.getGridAt(side, direction);
-                    if (grid != null) {
-                        for (Path<IGTCable> path : grid.getPaths(pos)) {
-                            if (!path.isEmpty()) {
-                                Node target = path.target();
-                                assert target != null;
-                                if (!onCheck(producer, consumers, path, target.asLong(), target.getDirection()))
-                                    return false;
-                            }
+        return buildAll(data, this::build);
+    }
+
+    /**
+     * Collects the consumers available for each output side of the producer.
+     *
+     * @param pos    The position of the producer.
+     * @param cache  The producer node.
+     * @param paths  The source of the paths.
+     * @param routes The consumers by side, to fill in.
+     * @return whether or not an issue arose checking nodes.
+     */
+    private boolean build(long pos, NodeCache<IGTNode> cache, PathSource<IGTCable> paths, Map<Direction, List<GTConsumer>> routes) {
+        for (Map.Entry<Direction, IGTNode> tup : cache.values()) {
+            IGTNode producer = tup.getValue();
+            Direction direction = tup.getKey();
+            if (producer.canOutput(direction)) {
+                long side = Pos.offset(pos, direction);
+                List<GTConsumer> consumers = new ObjectArrayList<>();
+
+                Grid<IGTCable> grid = group.getGridAt(side, direction);
+                if (grid != null) {
+                    for (Path<IGTCable> path : paths.getPaths(grid, pos)) {
+                        if (!path.isEmpty()) {
+                            Node target = path.target();
+                            assert target != null;
+                            if (!onCheck(producer, consumers, path, target.asLong(), target.getDirection()))
+                                return false;
                         }
-                    } else if (group.getNodes().containsKey(side)) {
-                        onCheck(producer, consumers, null, side, direction.getOpposite());
                     }
-                    if (!consumers.isEmpty())
-                        data.computeIfAbsent(pos, m -> new EnumMap<>(Direction.class))
-                                .put(direction.getOpposite(), consumers);
+                } else if (group.getNodes().containsKey(side)) {
+                    onCheck(producer, consumers, null, side, direction.getOpposite());
+                }
+                if (!consumers.isEmpty()) {
+                    RouteCostModel.sort(consumers, costModel);
+                    routes.put(direction.getOpposite(), consumers);
                 }
             }
         }
+        return true;
+    }
 
-        for (Map<Direction, List<GTConsumer>> map : data.values()) {
-            for (List<GTConsumer> consumers : map.values()) {
-                consumers.sort(GTConsumer.COMPARATOR);
-            }
+    @Override
+    protected void extend(long pos, Direction direction, List<Path<IGTCable>> paths) {
+        IGTNode producer = group.getNodes().get(pos).value(direction);
+        if (producer == null || !producer.canOutput(direction))
+            return;
+        List<GTConsumer> consumers = new ObjectArrayList<>();
+        for (Path<IGTCable> path : paths) {
+            Node target = path.target();
+            onCheck(producer, consumers, path, target.asLong(), target.getDirection());
+        }
+        if (!consumers.isEmpty()) {
+            List<GTConsumer> list = data.computeIfAbsent(pos, m -> new EnumMap<>(Direction.class))
+                    .computeIfAbsent(direction.getOpposite(), d -> new ObjectArrayList<>());
+            list.addAll(consumers);
+            RouteCostModel.sort(list, costModel);
+        }
+    }
+
+    @Override
+    protected void rebuild(long pos) {
+        data.remove(pos);
+        NodeCache<IGTNode> cache = group.getNodes().get(pos);
+        if (cache == null)
+            return;
+        Map<Direction, List<GTConsumer>> routes = new EnumMap<>(Direction.class);
+        if (!build(pos, cache, Grid::getPaths, routes)) {
+            Tesseract.LOGGER.warn("Error during GTController::rebuild.");
+        } else if (!routes.isEmpty()) {
+            data.put(pos, routes);
         }
+    }
+
+    @Override
+    protected boolean retain(Controller<GTTransaction, IGTCable, IGTNode> source, LongSet touched) {
+        partition(source, ((GTController) source).data, data, touched);
+        return true;
+    }
+
+    @Override
+    protected boolean canOutput(IGTNode node, Direction direction) {
+        return node.canOutput(direction);
+    }
+
+    @Override
+    protected boolean adopt(Controller<GTTransaction, IGTCable, IGTNode> source) {
+        data.clear();
+        data.putAll(((GTController) source).data);
         return true;
     }
 
@@ -139,28 +231,37 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
         return true;
     }
 
-    Long2IntMap pipeMap;
     int inserted;
 
     @Override
     public void tick() {
         super.tick();
-        for (var connector : this.group.connectors()) {
-            connector.value().setHolder(GTHolder.create(connector.value(), 0));
-        }
-        for (var node : this.group.getNodes().values()) {
-            for (Map.Entry<Direction, IGTNode> n : node.values()) {
-                n.getValue().tesseractTick();
-                break;
-            }
-        }
-        pipeMap = new Long2IntOpenHashMap();
+        // The holders of the cables are stamped with the tick, so they need no reset.
+        ledger.settle(false, settler);
+        tickNodes();
         // obtains.clear();
         inserted = 0;
     }
 
+    /**
+     * Resets the nodes once, the ticks skipped while the group was asleep are not run. A node tick only clears the
+     * amperage the node took during the last tick, so one reset brings the nodes up to date.
+     */
+    @Override
+    protected void onWake() {
+        tickNodes();
+    }
+
+    /**
+     * Resets the per-tick state of the nodes.
+     */
+    private void tickNodes() {
+        this.group.getNodes().values().forEach(TICK_NODE);
+    }
+
     @Override
     public void insert(long pipePos, Direction side, GTTransaction stack, ITransactionModifier modifier) {
+        flushChanged();
         Map<Direction, List<GTConsumer>> map = this.data.get(Pos.offset(pipePos, side));
         if (map == null)
             return;
@@ -182,17 +283,41 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
          * }
          */
         inserted++;
-        List<Consumer<Long2ObjectMap<IGTCable>>> transferList = new ArrayList<>();
+        int first = stack.getData().size();
+
+        long producerPos = Pos.offset(pipePos, side);
+        int size = list.size();
+        long available = stack.eu;
+        long[] demands = null;
+        long total = 0;
+        if (distribution.isProportional()) {
+            demands = getDemands(size);
+            for (int i = 0; i < size; i++) {
+                GTConsumer consumer = list.get(i);
+                long lossyEu = available - Math.round(consumer.getLoss());
+                demands[i] = isValid(consumer) && lossyEu > 0 ? Math.max(0, consumer.getNode().insertEu(lossyEu, true)) : 0;
+                total += demands[i];
+            }
+        }
+        int cursor = getCursor(producerPos, side);
+        int start = distribution.getStart(cursor, size);
+        // The loss is charged relative to the previous route only while the routes are visited in their order.
+        boolean ordered = start == 0;
 
         double previousLoss = 0;
-        for (GTConsumer consumer : list) {
+        for (int n = 0; n < size; n++) {
+            int i = DistributionStrategy.getIndex(start, n, size);
+            GTConsumer consumer = list.get(i);
+            if (!isValid(consumer)) {
+                continue;
+            }
             long remainingEu = stack.eu;
 
             if (remainingEu <= 0) {
                 break;
             }
             double loss = consumer.getLoss();
-            double appliedLoss = loss == 0 ? 0 : loss > previousLoss ? loss - previousLoss : previousLoss - loss;
+            double appliedLoss = !ordered ? loss : loss == 0 ? 0 : loss > previousLoss ? loss - previousLoss : previousLoss - loss;
             previousLoss = loss;
             long roundedAppliedLoss = Math.round(appliedLoss);
             if (roundedAppliedLoss < 0 || roundedAppliedLoss > remainingEu) {
@@ -200,6 +325,9 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
             }
 
             long lossyEu = remainingEu - roundedAppliedLoss;
+            if (demands != null) {
+                lossyEu = Math.min(lossyEu, DistributionStrategy.getShare(available, demands[i], total));
+            }
             long euInserted = consumer.getNode().insertEu(lossyEu, true);
             if (euInserted <= 0) { // if this consumer received all the energy from the other producers
                 continue;
@@ -207,15 +335,72 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
             // If we are here, then path had some invalid cables which not suits the limits
             // of amps/voltage
 
-            GTTransaction.TransferData data1 = stack.addData(euInserted, euInserted + roundedAppliedLoss, appliedLoss, a -> {});
-            transferList.add((l) -> dataCommit(l, consumer, data1));
+            GTTransaction.TransferData data1 = stack.addData(euInserted, euInserted + roundedAppliedLoss, appliedLoss, null);
+            stack.setRoute(data1, consumer);
+            cursor = distribution.getCursor(cursor, i, size);
+        }
+        setCursor(producerPos, side, cursor);
+        if (stack.getData().size() > first) {
+            // The routes are committed together, as one packet through the union of their cables.
+            stack.setInsert(stack.addData(0, 0, 0, COMMIT), this, first);
+        }
+    }
+
+    /**
+     * Callback from the transaction, that commits the routes of an insert.
+     *
+     * @param data The transfer data closing the insert.
+     */
+    private static void commit(GTTransaction.TransferData data) {
+        GTTransaction transaction = data.getTransaction();
+        int index = data.getIndex();
+        transaction.getController(index).commit(transaction, transaction.getFirst(index), index);
+    }
+
+    /**
+     * Sends the data of the routes to the consumers and verifies the cable voltage/amperage.
+     *
+     * @param transaction The transaction.
+     * @param first       The index of the first transfer data of the insert.
+     * @param last        The index of the transfer data closing the insert.
+     */
+    private void commit(GTTransaction transaction, int first, int last) {
+        boolean ledgered = usesLedger();
+        for (int i = first; i < last; i++) {
+            GTConsumer consumer = transaction.getRoute(i);
+            if (consumer != null) {
+                dataCommit(consumer, transaction.getData().get(i), ledgered);
+            }
         }
-        if (!transferList.isEmpty()){
-            stack.addData(0, 0, 0, d-> dataCommit(transferList));
+        if (ledgered) {
+            // The cables are checked when the ledger is settled, on the next tick.
+            ledger.commit(null, 1);
+            totalAmperage++;
+            return;
+        }
+
+        try {
+            for (int i = 0; i < unionSize; i++) {
+                if (addAmperage(unionPositions[i], unionCables[i], 1)) {
+                    return;
+                }
+            }
+            totalAmperage++;
+        } finally {
+            Arrays.fill(unionCables, 0, unionSize, null);
+            unionSize = 0;
+            unionSeen.clear();
         }
     }
 
-    public void dataCommit(Long2ObjectMap<IGTCable> cableList, GTConsumer consumer, GTTransaction.TransferData data){
+    /**
+     * Sends the data of a route to the consumer, and adds its cables to the packet.
+     *
+     * @param consumer The consumer.
+     * @param data     The transfer data.
+     * @param ledgered True if the cables are accounted by the ledger.
+     */
+    private void dataCommit(GTConsumer consumer, GTTransaction.TransferData data, boolean ledgered) {
         if (!consumer.canHandle(data.getVoltage())) {
             for (Long2ObjectMap.Entry<IGTCable> c : consumer.getFull().long2ObjectEntrySet()) {
                 long pos = c.getLongKey();
@@ -225,34 +410,71 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
                     return;
                 }
             }
-        } else {
-            for (Long2ObjectMap.Entry<IGTCable> c : consumer.getFull().long2ObjectEntrySet()) {
-                IGTCable cable = c.getValue();
-                if (!cableList.containsKey(c.getLongKey())) cableList.put(c.getLongKey(), cable);
+        } else if (ledgered) {
+            ledger.include(consumer.getPath());
+        } else if (consumer.getPath() != null) {
+            // Walk the tree of the path, the views of the path would allocate their entries.
+            Path<IGTCable> path = consumer.getPath();
+            PathTree<IGTCable> tree = path.getTree();
+            for (int i = tree.getParent(path.getLeaf()); i > 0; i = tree.getParent(i)) {
+                if (tree.isConnector(i) && unionSeen.add(tree.getPosition(i))) {
+                    if (unionSize == unionPositions.length) {
+                        unionPositions = Arrays.copyOf(unionPositions, unionSize * 2);
+                        unionCables = Arrays.copyOf(unionCables, unionSize * 2);
+                    }
+                    unionPositions[unionSize] = tree.getPosition(i);
+                    unionCables[unionSize++] = tree.getValue(i);
+                }
             }
         }
-        cableIsActive.addAll(consumer.uninsulatedCables);
+        if (!consumer.uninsulatedCables.isEmpty()) {
+            consumer.uninsulatedCables.forEach(activate);
+        }
 
         this.totalLoss += data.getLoss();
         this.totalVoltage += data.getEu();
         consumer.getNode().insertEu(data.getEu(), false);
     }
 
-    public void dataCommit(List<Consumer<Long2ObjectMap<IGTCable>>> list){
-        Long2ObjectMap<IGTCable> cableList = new Long2ObjectOpenHashMap<>();
-        for (var pair : list) {
-            pair.accept(cableList);
+    /**
+     * Applies the amperage a cable carried during the last tick, from the ledger.
+     *
+     * @param pos   The position of the cable.
+     * @param cable The cable.
+     * @param key   Unused.
+     * @param load  The number of packets through the cable.
+     */
+    private void onSettle(long pos, IGTCable cable, Void key, long load) {
+        Cache<IGTCable> cache = group.getConnector(pos);
+        if (cache == null || cache.value() != cable) {
+            return;
         }
-        for (Long2ObjectMap.Entry<IGTCable> c : cableList.long2ObjectEntrySet()) {
-            long pos = c.getLongKey();
-            IGTCable cable = c.getValue();
-            cable.setHolder(GTHolder.add(cable.getHolder(), 1));
-            if (GTHolder.isOverAmperage(cable.getHolder())) {
-                onCableOverAmperage(getWorld(), pos, GTHolder.getAmperage(cable.getHolder()));
-                return;
-            }
+        addAmperage(pos, cable, load);
+    }
+
+    /**
+     * Adds the amperage to the holder of the cable, for the current tick.
+     *
+     * @param pos      The position of the cable.
+     * @param cable    The cable.
+     * @param amperage The added amperage.
+     * @return Checks that the cable is over its amperage.
+     */
+    private boolean addAmperage(long pos, IGTCable cable, long amperage) {
+        int epoch = (int) getGameTime();
+        cable.setHolder(GTHolder.add(cable.getHolder(), epoch, amperage));
+        if (GTHolder.isOverAmperage(cable, cable.getHolder(), epoch)) {
+            onCableOverAmperage(getWorld(), pos, GTHolder.getAmperage(cable.getHolder()));
+            return true;
         }
-        totalAmperage++;
+        return false;
+    }
+
+    /**
+     * @return Checks that the cable amperage is accounted by the ledger.
+     */
+    private static boolean usesLedger() {
+        return TesseractConfig.FLOW_LEDGER != null && TesseractConfig.FLOW_LEDGER.get();
     }
 
     /**
@@ -286,9 +508,7 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
             for (Long2ObjectMap.Entry<IGTCable> c : consumer.getCross().long2ObjectEntrySet()) {
                 long pos = c.getLongKey();
                 IGTCable cable = c.getValue();
-                cable.setHolder(GTHolder.add(cable.getHolder(), 1));
-                if (GTHolder.isOverAmperage(cable.getHolder())) {
-                    onCableOverAmperage(getWorld(), pos, GTHolder.getAmperage(cable.getHolder()));
+                if (addAmperage(pos, cable, 1)) {
                     return;
                 }
             }
@@ -309,8 +529,10 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
         lastLoss = totalLoss;
         totalAmperage = totalVoltage = 0L;
         totalLoss = 0;
+        Long2LongMap holders = previousFrameHolder;
         previousFrameHolder = frameHolders;
-        frameHolders = new Long2LongOpenHashMap();
+        frameHolders = holders;
+        frameHolders.clear();
         cableIsActive.clear();
     }
 
@@ -319,6 +541,7 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
         if (this.group != null) {
             this.group.getGroupInfo(pos, list);
             list.add(String.format("GT Data size: %d", this.data.size()));
+            super.getInfo(pos, list);
         }
         /*
          * int amp = GTHolder.getAmperage(previousFrameHolder.get(pos));
@@ -357,6 +580,9 @@ public class GTController extends Controller<GTTransaction, IGTCable, IGTNode> i
 
     @Override
     public ITickingController clone(INode group) {
-        return new GTController(dim, getter).set(group);
+        GTController controller = new GTController(dim, getter);
+        controller.costModel = costModel;
+        controller.distribution = distribution;
+        return controller.set(group);
     }
 }
@@ -2,32 +2,47 @@ package tesseract.api.gt;
 
 /**
  * A class that imitates a holder of the packets that has passed thought cables.
+ * <p>
+ * The holder is stamped with the tick it was last written in, and a holder written in an earlier tick reads as
+ * empty, so the holders never need to be reset.
+ * </p>
  */
 public class GTHolder {
 
     /**
-     * Creates long with the packed holder.
+     * Creates long with the packed holder, stamped with no tick.
      *
      * @param cable    The cable connector.
      * @param amperage The initial amperage.
      */
     public static long create(IGTCable cable, long amperage) {
-        return (long) cable.getAmps() << 32 | amperage;
+        return create(0, amperage);
+    }
+
+    /**
+     * Creates long with the packed holder.
+     *
+     * @param epoch    The tick the holder is written in.
+     * @param amperage The amperage.
+     */
+    public static long create(int epoch, long amperage) {
+        return (long) epoch << 32 | (amperage & 0xFFFFFFFFL);
     }
 
     /**
      * Adds a new amperage.
      *
      * @param holder   The long with the packed holder.
+     * @param epoch    The current tick.
      * @param amperage The added amperage.
      */
-    public static long add(long holder, long amperage) {
-        return (long) getMaxAmperage(holder) << 32 | getAmperage(holder) + amperage;
+    public static long add(long holder, int epoch, long amperage) {
+        return create(epoch, getAmperage(holder, epoch) + amperage);
     }
 
     /**
      * @param holder The long with the packed holder.
-     * @return Gets a current amperage.
+     * @return Gets the amperage of the tick the holder was last written in.
      */
     public static int getAmperage(long holder) {
         return (int) (holder);
@@ -35,17 +50,28 @@ public class GTHolder {
 
     /**
      * @param holder The long with the packed holder.
-     * @return Gets a maximum amperage.
+     * @param epoch  The current tick.
+     * @return Gets a current amperage.
+     */
+    public static int getAmperage(long holder, int epoch) {
+        return getEpoch(holder) == epoch ? getAmperage(holder) : 0;
+    }
+
+    /**
+     * @param holder The long with the packed holder.
+     * @return Gets the tick the holder was last written in.
      */
-    public static int getMaxAmperage(long holder) {
-        return (int) (holder >> 32);
+    public static int getEpoch(long holder) {
+        return (int) (holder >>> 32);
     }
 
     /**
+     * @param cable  The cable connector.
      * @param holder The long with the packed holder.
+     * @param epoch  The current tick.
      * @return Checks that the holder is not able to handle it.
      */
-    public static boolean isOverAmperage(long holder) {
-        return getMaxAmperage(holder) < getAmperage(holder);
+    public static boolean isOverAmperage(IGTCable cable, long holder, int epoch) {
+        return cable.getAmps() < getAmperage(holder, epoch);
     }
 }
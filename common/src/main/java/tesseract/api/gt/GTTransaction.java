@@ -1,13 +1,30 @@
 package tesseract.api.gt;
 
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import tesseract.api.Transaction;
 
+import java.util.Arrays;
 import java.util.function.Consumer;
 
+/**
+ * A transaction of electrical packets.
+ * <p>
+ * A transaction can be reset and used again for a packet of the same voltage, which reuses its transfer data as well,
+ * so a producer pushing energy every tick does not allocate anything. The transfer data of a reset transaction must
+ * not be kept.
+ * </p>
+ */
 public class GTTransaction extends Transaction<GTTransaction.TransferData> {
 
     public final long voltage;
     public long eu;
+    // The transfer data, reused after a reset.
+    private final ObjectArrayList<TransferData> pool = new ObjectArrayList<>(1);
+    // The routes of the controllers, by the index of the transfer data: the consumer of a route, and for the data
+    // closing an insert, the controller and the index of the first route of the insert.
+    private GTConsumer[] routes = new GTConsumer[4];
+    private GTController[] controllers = new GTController[4];
+    private int[] firsts = new int[4];
 
     public GTTransaction(long voltage, Consumer<TransferData> consumer) {
         super(consumer);
@@ -15,6 +32,19 @@ public class GTTransaction extends Transaction<GTTransaction.TransferData> {
         this.eu = voltage;
     }
 
+    /**
+     * Clears the transaction, so it can be used for another packet of its voltage.
+     *
+     * @return This transaction.
+     */
+    public GTTransaction reuse() {
+        int size = getData().size();
+        Arrays.fill(routes, 0, Math.min(size, routes.length), null);
+        Arrays.fill(controllers, 0, Math.min(size, controllers.length), null);
+        super.reset();
+        this.eu = voltage;
+        return this;
+    }
 
     @Override
     public boolean isValid() {
@@ -26,20 +56,85 @@ public class GTTransaction extends Transaction<GTTransaction.TransferData> {
         return eu > 0;
     }
 
-
-
     public TransferData addData(long eu, long consumedEu, double loss, Consumer<TransferData> data) {
         eu = Math.min(eu, this.eu);
-        TransferData dat = this.addData(new TransferData(this, eu, this.voltage).setLoss(loss));
+        int index = getData().size();
+        TransferData dat;
+        if (index < pool.size()) {
+            dat = pool.get(index).set(eu, this.voltage);
+        } else {
+            dat = new TransferData(this, eu, this.voltage);
+            pool.add(dat);
+        }
+        dat.index = index;
+        this.addData(dat.setLoss(loss));
         this.eu -= Math.min(this.eu, consumedEu);
         this.onCommit(data);
         return dat;
     }
 
+    /**
+     * Sets the consumer a transfer data is routed to.
+     *
+     * @param data     The transfer data.
+     * @param consumer The consumer.
+     */
+    void setRoute(TransferData data, GTConsumer consumer) {
+        grow(data.index);
+        routes[data.index] = consumer;
+    }
+
+    /**
+     * Marks a transfer data as closing the routes of an insert.
+     *
+     * @param data       The transfer data.
+     * @param controller The controller of the insert.
+     * @param first      The index of the first transfer data of the insert.
+     */
+    void setInsert(TransferData data, GTController controller, int first) {
+        grow(data.index);
+        controllers[data.index] = controller;
+        firsts[data.index] = first;
+    }
+
+    /**
+     * @param index The index of the transfer data.
+     * @return Gets the consumer the transfer data is routed to, or null.
+     */
+    GTConsumer getRoute(int index) {
+        return index < routes.length ? routes[index] : null;
+    }
+
+    /**
+     * @param index The index of the transfer data closing an insert.
+     * @return Gets the controller of the insert.
+     */
+    GTController getController(int index) {
+        return controllers[index];
+    }
+
+    /**
+     * @param index The index of the transfer data closing an insert.
+     * @return Gets the index of the first transfer data of the insert.
+     */
+    int getFirst(int index) {
+        return firsts[index];
+    }
+
+    private void grow(int index) {
+        if (index >= routes.length) {
+            int length = Math.max(index + 1, routes.length * 2);
+            routes = Arrays.copyOf(routes, length);
+            controllers = Arrays.copyOf(controllers, length);
+            firsts = Arrays.copyOf(firsts, length);
+        }
+    }
+
     public static class TransferData {
-        private final long voltage;
+        private long voltage;
         private long eu;
         private double loss;
+        private int index = -1;
         public final GTTransaction transaction;
 
         public TransferData(GTTransaction transaction, long eu, long voltage) {
@@ -49,6 +144,20 @@ public class GTTransaction extends Transaction<GTTransaction.TransferData> {
             this.transaction = transaction;
         }
 
+        /**
+         * Clears the data, so it can be used again for the same transaction.
+         *
+         * @param eu      The energy.
+         * @param voltage The voltage.
+         * @return This data.
+         */
+        public TransferData set(long eu, long voltage) {
+            this.voltage = voltage;
+            this.loss = 0;
+            this.eu = eu;
+            return this;
+        }
+
         public long getEnergy(long amps, boolean input) {
             return input ? (voltage - Math.round(loss)) * amps : voltage * amps;
         }
@@ -83,5 +192,12 @@ public class GTTransaction extends Transaction<GTTransaction.TransferData> {
         public GTTransaction getTransaction() {
             return transaction;
         }
+
+        /**
+         * @return Gets the index of the data in its transaction, or -1 if it was not added by the transaction.
+         */
+        int getIndex() {
+            return index;
+        }
     }
 }
@@ -1,10 +1,13 @@
 package tesseract.api.item;
 
 import net.minecraft.core.Direction;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import tesseract.TesseractCapUtils;
 import tesseract.api.GraphWrapper;
 
+import java.util.Set;
+
 
 /**
  * An item node is the unit of interaction with item inventories.
@@ -68,5 +71,26 @@ public interface IItemNode extends ExtendedItemContainer {
         return true;
     }
 
+    /**
+     * Used to index the consumers of a network by the items they take. The items have to cover every item
+     * {@link #canInput(ItemStack, Direction)} may accept, it is still asked for the items of the set.
+     *
+     * @param direction Direction to the input.
+     * @return The only items the storage can input at the direction, or null if it is not limited to a set of items.
+     */
+    default Set<Item> getInputFilter(Direction direction) {
+        return null;
+    }
+
+    /**
+     * Has to change whenever the items returned by {@link #getInputFilter(Direction)} change, so the networks
+     * reindex the storage.
+     *
+     * @return The version of the input filter.
+     */
+    default int getFilterVersion() {
+        return 0;
+    }
+
     GraphWrapper.ICapabilityGetter<IItemNode> GETTER = (TesseractCapUtils.INSTANCE::getItemNode);
 }
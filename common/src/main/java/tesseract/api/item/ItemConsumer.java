@@ -1,18 +1,29 @@
 package tesseract.api.item;
 
 import net.minecraft.core.Direction;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
+import tesseract.api.ChainAggregate;
 import tesseract.api.Consumer;
+import tesseract.api.RouteCostModel;
+import tesseract.api.capability.TesseractItemCapability;
 import tesseract.graph.Path;
 
+import java.util.Set;
+
 
 /**
  * A class that acts as a container for a item consumer.
  */
 public class ItemConsumer extends Consumer<IItemPipe, IItemNode> {
 
+    // Way of the sorting by the total stepsize of the path and the consumer
+    public static final RouteCostModel<ItemConsumer> COST = ItemConsumer::getStepsize;
+
     private int minCapacity = Integer.MAX_VALUE;
+    private long stepsize;
     private final Direction input;
+    private final SlotHints hints = new SlotHints();
 
     /**
      * Creates instance of the consumer.
@@ -25,6 +36,9 @@ public class ItemConsumer extends Consumer<IItemPipe, IItemNode> {
         super(consumer,producer, path);
         init();
         input = dir;
+        if (consumer instanceof TesseractItemCapability<?> itemCapability) {
+            stepsize += itemCapability.tile.getStepsize();
+        }
     }
 
     /**
@@ -38,11 +52,26 @@ public class ItemConsumer extends Consumer<IItemPipe, IItemNode> {
      **/
     public int insert(ItemStack stack, boolean simulate) {
         int count = stack.getCount();
-        for (int i = 0; i < node.getContainerSize(); i++) {
+        int slots = node.getContainerSize();
+        if (slots == 0) {
+            return count;
+        }
+        Item item = stack.getItem();
+        hints.validate(node, node.getChangeCount());
+        // Start at the slot which took the item last, the slots before it are probed last.
+        int start = hints.getStart(item, slots);
+        for (int n = 0; n < slots; n++) {
+            int i = start + n < slots ? start + n : start + n - slots;
+            // The start slot is probed even if it refused the item, it is the likeliest one to take it.
+            if (n > 0 && hints.isFull(item, i)) {
+                continue;
+            }
             ItemStack inserted = node.insertItem(i, stack, simulate);
             if (inserted.getCount() < stack.getCount()) {
+                hints.onInserted(item, i);
                 return inserted.getCount();
             }
+            hints.onRefused(item, i);
         }
         return count;
     }
@@ -55,6 +84,20 @@ public class ItemConsumer extends Consumer<IItemPipe, IItemNode> {
         return node.canInput(item, input);
     }
 
+    /**
+     * @return The only items the storage can hold, or null if it is not limited to a set of items.
+     */
+    public Set<Item> getFilter() {
+        return node.getInputFilter(input);
+    }
+
+    /**
+     * @return Gets the version of the filter of the storage.
+     */
+    public int getFilterVersion() {
+        return node.getFilterVersion();
+    }
+
     /**
      * @return Returns the priority of this node as a number.
      */
@@ -69,8 +112,43 @@ public class ItemConsumer extends Consumer<IItemPipe, IItemNode> {
         return minCapacity;
     }
 
+    /**
+     * @return Gets the total stepsize of the path and the consumer.
+     */
+    public long getStepsize() {
+        return stepsize;
+    }
+
     @Override
     protected void onConnectorCatch(long pos, IItemPipe pipe) {
         minCapacity = Math.min(minCapacity, pipe.getCapacity());
+        stepsize += pipe.getStepsize();
+    }
+
+    @Override
+    protected ChainAggregate<IItemPipe> createAggregate() {
+        return new PipeRun();
+    }
+
+    @Override
+    protected void onChainCatch(ChainAggregate<IItemPipe> aggregate) {
+        PipeRun run = (PipeRun) aggregate;
+        minCapacity = Math.min(minCapacity, run.minCapacity);
+        stepsize += run.stepsize;
+    }
+
+    /**
+     * The summed stepsize and the lowest capacity of a chain of pipes.
+     */
+    private static class PipeRun implements ChainAggregate<IItemPipe> {
+
+        private int minCapacity = Integer.MAX_VALUE;
+        private long stepsize;
+
+        @Override
+        public void add(long pos, IItemPipe pipe) {
+            minCapacity = Math.min(minCapacity, pipe.getCapacity());
+            stepsize += pipe.getStepsize();
+        }
     }
 }
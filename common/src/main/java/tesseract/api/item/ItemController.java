@@ -4,6 +4,8 @@ import it.unimi.dsi.fastutil.longs.Long2IntMap;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.core.Direction;
 import net.minecraft.world.item.ItemStack;
@@ -12,9 +14,10 @@ import org.jetbrains.annotations.NotNull;
 import tesseract.api.ConnectionType;
 import tesseract.api.Consumer;
 import tesseract.api.Controller;
+import tesseract.api.DistributionStrategy;
 import tesseract.api.ITickingController;
+import tesseract.api.RouteCostModel;
 import tesseract.api.capability.ITransactionModifier;
-import tesseract.api.capability.TesseractItemCapability;
 import tesseract.graph.Graph;
 import tesseract.graph.Grid;
 import tesseract.graph.INode;
@@ -35,6 +38,9 @@ public class ItemController extends Controller<ItemTransaction, IItemPipe, IItem
 
     private int transferred;
     private final Long2ObjectMap<Map<Direction, List<ItemConsumer>>> data = new Long2ObjectLinkedOpenHashMap<>();
+    // The routes of the producers indexed by item.
+    private final Long2ObjectMap<Map<Direction, ItemRoutes>> routing = new Long2ObjectOpenHashMap<>();
+    private RouteCostModel<ItemConsumer> costModel = ItemConsumer.COST;
 
     /**
      * Creates instance of the controller.
@@ -45,56 +51,168 @@ public class ItemController extends Controller<ItemTransaction, IItemPipe, IItem
         super(dim, getter);
     }
 
+    /**
+     * Sets the order the routes of the producers are tried in, the routes are rebuilt with it.
+     *
+     * @param costModel The cost model of the routes.
+     */
+    public void setRouteCostModel(RouteCostModel<ItemConsumer> costModel) {
+        this.costModel = costModel;
+        markChanged();
+    }
+
     @Override
     protected void onFrame() {
-        for (var connector : this.group.connectors()) {
-            connector.value().setHolder(0);
-        }
+        // The holders of the pipes are stamped with the frame, so they need no reset.
+    }
+
+    /**
+     * @return Gets the current frame, which the holders of the pipes are stamped with.
+     */
+    private int getFrame() {
+        return (int) (getWorld().getGameTime() / 20);
     }
 
     @Override
     public void change() {
         data.clear();
-        for (Long2ObjectMap.Entry<NodeCache<IItemNode>> e : group.getNodes().long2ObjectEntrySet()) {
-            for (Map.Entry<Direction, IItemNode> tup : e.getValue().values()) {
-                IItemNode producer = tup.getValue();
-                long pos = e.getLongKey();
-                Direction direction = tup.getKey();
-                if (producer.canOutput(direction)) {
-                    List<ItemConsumer> consumers = new ObjectArrayList<>();
-                    long side = Pos.offset(pos, direction);
-                    Grid<IItemPipe> grid = group.getGridAt(side, direction);
-                    if (grid != null) {
-                        for (Path<IItemPipe> path : grid.getPaths(pos)) {
-                            if (!path.isEmpty()) {
-                                Node target = path.target();
-                                assert target != null;
-                                onCheck(producer, consumers, path, target.getDirection(), target.asLong());
-                            }
+        buildAll(data, this::build);
+        indexAll();
+    }
+
+    /**
+     * Indexes the routes of every producer by item.
+     */
+    private void indexAll() {
+        // The indices of the producers which are left keep their distribution cursors.
+        routing.keySet().retainAll(data.keySet());
+        for (Long2ObjectMap.Entry<Map<Direction, List<ItemConsumer>>> e : data.long2ObjectEntrySet()) {
+            indexSides(e.getLongKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Indexes the routes of every side of a producer by item.
+     *
+     * @param pos    The position of the producer.
+     * @param routes The routes by side.
+     */
+    private void indexSides(long pos, Map<Direction, List<ItemConsumer>> routes) {
+        Map<Direction, ItemRoutes> indexed = routing.get(pos);
+        if (indexed != null) {
+            indexed.keySet().retainAll(routes.keySet());
+        }
+        for (Map.Entry<Direction, List<ItemConsumer>> e : routes.entrySet()) {
+            index(pos, e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Indexes the routes of a producer side by item.
+     *
+     * @param pos       The position of the producer.
+     * @param side      The side of the producer.
+     * @param consumers The routes.
+     * @return The index.
+     */
+    private ItemRoutes index(long pos, Direction side, List<ItemConsumer> consumers) {
+        Map<Direction, ItemRoutes> indexed = routing.computeIfAbsent(pos, m -> new EnumMap<>(Direction.class));
+        ItemRoutes routes = new ItemRoutes(consumers, tick, indexed.get(side));
+        indexed.put(side, routes);
+        return routes;
+    }
+
+    /**
+     * Collects the consumers available for each output side of the producer.
+     *
+     * @param pos    The position of the producer.
+     * @param cache  The producer node.
+     * @param paths  The source of the paths.
+     * @param routes The consumers by side, to fill in.
+     * @return whether or not an issue arose checking nodes.
+     */
+    private boolean build(long pos, NodeCache<IItemNode> cache, PathSource<IItemPipe> paths, Map<Direction, List<ItemConsumer>> routes) {
+        for (Map.Entry<Direction, IItemNode> tup : cache.values()) {
+            IItemNode producer = tup.getValue();
+            Direction direction = tup.getKey();
+            if (producer.canOutput(direction)) {
+                List<ItemConsumer> consumers = new ObjectArrayList<>();
+                long side = Pos.offset(pos, direction);
+                Grid<IItemPipe> grid = group.getGridAt(side, direction);
+                if (grid != null) {
+                    for (Path<IItemPipe> path : paths.getPaths(grid, pos)) {
+                        if (!path.isEmpty()) {
+                            Node target = path.target();
+                            assert target != null;
+                            onCheck(producer, consumers, path, target.getDirection(), target.asLong());
                         }
-                    } else if (group.getNodes().containsKey(side)) {
-                        onCheck(producer, consumers, null, direction.getOpposite(), side);
                     }
+                } else if (group.getNodes().containsKey(side)) {
+                    onCheck(producer, consumers, null, direction.getOpposite(), side);
+                }
 
-                    if (!consumers.isEmpty()) {
-                        data.computeIfAbsent(pos, m -> new EnumMap<>(Direction.class))
-                                .put(direction.getOpposite(), consumers);
-                    }
+                if (!consumers.isEmpty()) {
+                    RouteCostModel.sort(consumers, costModel);
+                    routes.put(direction.getOpposite(), consumers);
                 }
             }
         }
+        return true;
+    }
 
-        for (Map<Direction, List<ItemConsumer>> map : data.values()) {
-            for (List<ItemConsumer> consumers : map.values()) {
-                consumers.sort((c1, c2) -> {
-                    long stepsize1 = c1.getFull().values().stream().mapToLong(IItemPipe::getStepsize).sum();
-                    if (c1.getNode() instanceof TesseractItemCapability<?> itemCapability) stepsize1 += itemCapability.tile.getStepsize();
-                    long stepsize2 = c2.getFull().values().stream().mapToLong(IItemPipe::getStepsize).sum();
-                    if (c2.getNode() instanceof TesseractItemCapability<?> itemCapability) stepsize2 += itemCapability.tile.getStepsize();
-                    return Long.compare(stepsize1, stepsize2);
-                });
+    @Override
+    protected void extend(long pos, Direction direction, List<Path<IItemPipe>> paths) {
+        IItemNode producer = group.getNodes().get(pos).value(direction);
+        if (producer == null || !producer.canOutput(direction))
+            return;
+        List<ItemConsumer> consumers = new ObjectArrayList<>();
+        for (Path<IItemPipe> path : paths) {
+            Node target = path.target();
+            onCheck(producer, consumers, path, target.getDirection(), target.asLong());
+        }
+        if (!consumers.isEmpty()) {
+            List<ItemConsumer> list = data.computeIfAbsent(pos, m -> new EnumMap<>(Direction.class))
+                    .computeIfAbsent(direction.getOpposite(), d -> new ObjectArrayList<>());
+            list.addAll(consumers);
+            RouteCostModel.sort(list, costModel);
+            index(pos, direction.getOpposite(), list);
+        }
+    }
+
+    @Override
+    protected void rebuild(long pos) {
+        data.remove(pos);
+        NodeCache<IItemNode> cache = group.getNodes().get(pos);
+        if (cache != null) {
+            Map<Direction, List<ItemConsumer>> routes = new EnumMap<>(Direction.class);
+            build(pos, cache, Grid::getPaths, routes);
+            if (!routes.isEmpty()) {
+                data.put(pos, routes);
+                indexSides(pos, routes);
+                return;
             }
         }
+        routing.remove(pos);
+    }
+
+    @Override
+    protected boolean retain(Controller<ItemTransaction, IItemPipe, IItemNode> source, LongSet touched) {
+        partition(source, ((ItemController) source).data, data, touched);
+        indexAll();
+        return true;
+    }
+
+    @Override
+    protected boolean canOutput(IItemNode node, Direction direction) {
+        return node.canOutput(direction);
+    }
+
+    @Override
+    protected boolean adopt(Controller<ItemTransaction, IItemPipe, IItemNode> source) {
+        data.clear();
+        data.putAll(((ItemController) source).data);
+        indexAll();
+        return true;
     }
 
     Long2IntMap pipeMap;
@@ -107,6 +225,7 @@ public class ItemController extends Controller<ItemTransaction, IItemPipe, IItem
 
     @Override
     public void insert(long producerPos, Direction side, ItemTransaction transaction, ITransactionModifier modifier) {
+        flushChanged();
         Map<Direction, List<ItemConsumer>> map = this.data.get(Pos.offset(producerPos, side));
         ItemStack stack = transaction.stack;
         if (map == null)
@@ -115,9 +234,36 @@ public class ItemController extends Controller<ItemTransaction, IItemPipe, IItem
         if (list == null)
             return;
 
-        // Here the verification starts.
+        Map<Direction, ItemRoutes> indexed = routing.get(Pos.offset(producerPos, side));
+        ItemRoutes routes = indexed != null ? indexed.get(side) : null;
+        if (routes == null || !routes.indexes(list)) {
+            routes = index(Pos.offset(producerPos, side), side, list);
+        }
+
+        ItemConsumer[] candidates = routes.get(stack.getItem(), tick);
+        int size = candidates.length;
+        int available = stack.getCount();
+        long[] demands = null;
+        long total = 0;
+        if (distribution.isProportional()) {
+            demands = getDemands(size);
+            for (int i = 0; i < size; i++) {
+                ItemConsumer consumer = candidates[i];
+                demands[i] = isValid(consumer) && consumer.canAccept(stack) ? available - consumer.insert(stack, true) : 0;
+                total += demands[i];
+            }
+        }
+        int cursor = routes.getCursor(stack.getItem());
+        int start = distribution.getStart(cursor, size);
+
+        // Here the verification starts, only with the consumers which may take the item.
         Long2ObjectMap<IItemPipe> pipes = new Long2ObjectLinkedOpenHashMap<>();
-        for (ItemConsumer consumer : list) {
+        for (int n = 0; n < size; n++) {
+            int i = DistributionStrategy.getIndex(start, n, size);
+            ItemConsumer consumer = candidates[i];
+            if (!isValid(consumer)) {
+                continue;
+            }
             if (!consumer.canAccept(stack)) {
                 continue;
             }
@@ -126,11 +272,14 @@ public class ItemController extends Controller<ItemTransaction, IItemPipe, IItem
                 continue;
             }
             int actual = stack.getCount() - amount;
+            if (demands != null) {
+                actual = (int) Math.min(actual, DistributionStrategy.getShare(available, demands[i], total));
+            }
 
             for (Long2ObjectMap.Entry<IItemPipe> p : consumer.getFull().long2ObjectEntrySet()) {
                 long pos = p.getLongKey();
                 IItemPipe pipe = p.getValue();
-                int stacksUsed = pipe.getHolder() + pipeMap.get(pos);
+                int stacksUsed = ItemHolder.getCount(pipe.getHolder(), getFrame()) + pipeMap.get(pos);
                 if (pipe.getCapacity() == stacksUsed) {
                     actual = 0;
                     break;
@@ -152,9 +301,11 @@ public class ItemController extends Controller<ItemTransaction, IItemPipe, IItem
                 pipes.putIfAbsent(p.getLongKey(), p.getValue());
             }
             transaction.addData(insert, t -> transferItem(consumer, t, side, modifier, act));
+            cursor = distribution.getCursor(cursor, i, size);
             if (transaction.stack.getCount() == 0)
                 break;
         }
+        routes.setCursor(stack.getItem(), cursor);
         for (Long2ObjectMap.Entry<IItemPipe> p : pipes.long2ObjectEntrySet()) {
             pipeMap.compute(p.getLongKey(), (a, b) -> {
                 if (b == null) {
@@ -172,7 +323,7 @@ public class ItemController extends Controller<ItemTransaction, IItemPipe, IItem
         this.transferred += transferred;
         if (consumer.getConnection() == ConnectionType.VARIATE) {
             for (Long2ObjectMap.Entry<IItemPipe> entry : consumer.getCross().long2ObjectEntrySet()) {
-                entry.getValue().setHolder(entry.getValue().getHolder() + 1);
+                entry.getValue().setHolder(ItemHolder.add(entry.getValue().getHolder(), getFrame(), 1));
             }
 
         }
@@ -198,6 +349,7 @@ public class ItemController extends Controller<ItemTransaction, IItemPipe, IItem
         if (this.group != null) {
             this.group.getGroupInfo(pos, list);
             list.add(String.format("Item Data size: %d", this.data.size()));
+            super.getInfo(pos, list);
         }
     }
 
@@ -206,11 +358,14 @@ public class ItemController extends Controller<ItemTransaction, IItemPipe, IItem
     }
 
     public int getCableTransferred(long pos) {
-        return group.getConnector(pos).value().getHolder();
+        return ItemHolder.getCount(group.getConnector(pos).value().getHolder(), getFrame());
     }
 
     @Override
     public ITickingController<ItemTransaction, IItemPipe, IItemNode> clone(INode group) {
-        return new ItemController(dim, getter).set(group);
+        ItemController controller = new ItemController(dim, getter);
+        controller.costModel = costModel;
+        controller.distribution = distribution;
+        return controller.set(group);
     }
 }
@@ -0,0 +1,42 @@
+package tesseract.api.item;
+
+/**
+ * A class that imitates a holder of the stacks that has passed thought pipes.
+ * <p>
+ * The holder is stamped with the frame it was last written in, and a holder written in an earlier frame reads as
+ * empty, so the holders never need to be reset. The stamp keeps the low 16 bits of the frame, so a pipe left unused
+ * for a multiple of 65536 frames reads its old count once.
+ * </p>
+ */
+public class ItemHolder {
+
+    /**
+     * Creates int with the packed holder.
+     *
+     * @param epoch The frame the holder is written in.
+     * @param count The number of stacks.
+     */
+    public static int create(int epoch, int count) {
+        return epoch << 16 | (Math.min(count, 0xFFFF) & 0xFFFF);
+    }
+
+    /**
+     * Adds new stacks.
+     *
+     * @param holder The int with the packed holder.
+     * @param epoch  The current frame.
+     * @param count  The added number of stacks.
+     */
+    public static int add(int holder, int epoch, int count) {
+        return create(epoch, getCount(holder, epoch) + count);
+    }
+
+    /**
+     * @param holder The int with the packed holder.
+     * @param epoch  The current frame.
+     * @return Gets the number of stacks passed in the current frame.
+     */
+    public static int getCount(int holder, int epoch) {
+        return (holder >>> 16) == (epoch & 0xFFFF) ? holder & 0xFFFF : 0;
+    }
+}
@@ -0,0 +1,149 @@
+package tesseract.api.item;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.world.item.Item;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The consumers of a producer side indexed by the items they take.
+ * <p>
+ * The consumers with an input filter are put in the bucket of each item of the filter, the others in a catch-all
+ * bucket. The candidates of an item are the consumers of its bucket and of the catch-all bucket, in the order of the
+ * routes, and are merged once per item. The filters are checked against their versions once per tick, and any change
+ * reindexes the routes. The distribution cursor of every item counts its candidates, and is kept when the routes of
+ * the producer side are indexed again.
+ * </p>
+ */
+class ItemRoutes {
+
+    private static final ItemConsumer[] NONE = new ItemConsumer[0];
+
+    private final List<ItemConsumer> consumers;
+    private final int[] versions;
+    private final IntArrayList open = new IntArrayList();
+    private final Reference2ObjectMap<Item, IntArrayList> buckets = new Reference2ObjectOpenHashMap<>();
+    private final Reference2ObjectMap<Item, ItemConsumer[]> candidates = new Reference2ObjectOpenHashMap<>();
+    private final Reference2IntMap<Item> cursors = new Reference2IntOpenHashMap<>();
+    private int checked;
+
+    /**
+     * Creates the index of the routes.
+     *
+     * @param consumers The routes, sorted in the order they are tried.
+     * @param tick      The current tick.
+     * @param previous  The previous index of the producer side, to keep the cursors of, or null.
+     */
+    ItemRoutes(List<ItemConsumer> consumers, int tick, ItemRoutes previous) {
+        this.consumers = consumers;
+        if (previous != null) {
+            cursors.putAll(previous.cursors);
+        }
+        this.versions = new int[consumers.size()];
+        // The filters are checked again on the first lookup, they may change later in the tick.
+        this.checked = tick - 1;
+        index();
+    }
+
+    /**
+     * @param consumers The routes.
+     * @return Checks that these routes are the indexed ones, and were not changed since.
+     */
+    boolean indexes(List<ItemConsumer> consumers) {
+        return this.consumers == consumers && versions.length == consumers.size();
+    }
+
+    /**
+     * @param item The item.
+     * @param tick The current tick.
+     * @return Gets the consumers which may take the item, in the order of the routes.
+     */
+    ItemConsumer[] get(Item item, int tick) {
+        if (checked != tick) {
+            checked = tick;
+            for (int i = 0; i < versions.length; i++) {
+                if (versions[i] != consumers.get(i).getFilterVersion()) {
+                    index();
+                    break;
+                }
+            }
+        }
+
+        ItemConsumer[] found = candidates.get(item);
+        if (found == null) {
+            found = merge(buckets.get(item));
+            candidates.put(item, found);
+        }
+        return found;
+    }
+
+    /**
+     * @param item The item.
+     * @return Gets the distribution cursor of the item.
+     */
+    int getCursor(Item item) {
+        return cursors.getInt(item);
+    }
+
+    /**
+     * @param item   The item.
+     * @param cursor The distribution cursor of the item.
+     */
+    void setCursor(Item item, int cursor) {
+        if (cursor != 0 || cursors.containsKey(item)) {
+            cursors.put(item, cursor);
+        }
+    }
+
+    private void index() {
+        open.clear();
+        buckets.clear();
+        candidates.clear();
+        for (int i = 0; i < consumers.size(); i++) {
+            ItemConsumer consumer = consumers.get(i);
+            versions[i] = consumer.getFilterVersion();
+            Set<Item> filter = consumer.getFilter();
+            if (filter == null) {
+                open.add(i);
+                continue;
+            }
+            for (Item item : filter) {
+                IntArrayList bucket = buckets.get(item);
+                if (bucket == null) {
+                    bucket = new IntArrayList();
+                    buckets.put(item, bucket);
+                }
+                bucket.add(i);
+            }
+        }
+    }
+
+    /**
+     * @param bucket The indices of the filtered consumers taking the item, or null.
+     * @return Gets the consumers of the bucket and of the catch-all bucket, in the order of the routes.
+     */
+    private ItemConsumer[] merge(IntArrayList bucket) {
+        int size = open.size() + (bucket != null ? bucket.size() : 0);
+        if (size == 0) {
+            return NONE;
+        }
+
+        ItemConsumer[] merged = new ItemConsumer[size];
+        int a = 0, b = 0;
+        for (int n = 0; n < size; n++) {
+            int next;
+            if (bucket == null || b == bucket.size() || (a < open.size() && open.getInt(a) < bucket.getInt(b))) {
+                next = open.getInt(a++);
+            } else {
+                next = bucket.getInt(b++);
+            }
+            merged[n] = consumers.get(next);
+        }
+        return merged;
+    }
+}
@@ -107,4 +107,14 @@ public interface PlatformItemHandler {
      *         false if the slot can never insert the ItemStack in any situation.
      */
     boolean isItemValid(int slot, @NotNull ItemStack stack);
+
+    /**
+     * Has to change whenever the contents of the handler change, like on {@code setChanged()}, so the slots which
+     * refused an item are only skipped until they may take it again.
+     *
+     * @return The change count of the contents, or -1 if the handler does not count its changes.
+     */
+    default long getChangeCount() {
+        return -1;
+    }
 }
@@ -0,0 +1,89 @@
+package tesseract.api.item;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.world.item.Item;
+
+import java.util.BitSet;
+
+/**
+ * The slots of a storage an item is likely to fit into, which spares probing a large storage from the first slot on
+ * every insert.
+ * <p>
+ * For every item, the hints keep the slot which took it last, where the next insert starts and wraps around, and the
+ * slots which refused it. A slot is only skipped as long as the storage reports no change of its contents, while the
+ * start slot is always probed, so an outdated start slot only makes the insert scan further.
+ * </p>
+ */
+public class SlotHints {
+
+    private final Reference2IntMap<Item> next = new Reference2IntOpenHashMap<>();
+    private final Reference2ObjectMap<Item, BitSet> full = new Reference2ObjectOpenHashMap<>();
+    private Object storage;
+    private long version;
+
+    /**
+     * Drops the refused slots if the storage or its contents changed since they were found.
+     *
+     * @param storage The storage the hints are used for.
+     * @param version The change count of the contents of the storage, or -1 if it does not count its changes, then
+     *                the refused slots are only kept for the current insert.
+     */
+    public void validate(Object storage, long version) {
+        if (this.storage != storage) {
+            this.storage = storage;
+            next.clear();
+            full.clear();
+        } else if (this.version != version || version < 0) {
+            full.clear();
+        }
+        this.version = version;
+    }
+
+    /**
+     * @param item  The item.
+     * @param slots The number of slots of the storage.
+     * @return Gets the slot to start probing for the item.
+     */
+    public int getStart(Item item, int slots) {
+        int slot = next.getInt(item);
+        return slot < slots ? slot : 0;
+    }
+
+    /**
+     * @param item The item.
+     * @param slot The slot.
+     * @return Checks that the slot refused the item since the last change of the storage.
+     */
+    public boolean isFull(Item item, int slot) {
+        BitSet slots = full.get(item);
+        return slots != null && slots.get(slot);
+    }
+
+    /**
+     * Marks the slot as taking the item, the next insert of the item starts there.
+     *
+     * @param item The item.
+     * @param slot The slot.
+     */
+    public void onInserted(Item item, int slot) {
+        next.put(item, slot);
+    }
+
+    /**
+     * Marks the slot as refusing the item, until the storage changes.
+     *
+     * @param item The item.
+     * @param slot The slot.
+     */
+    public void onRefused(Item item, int slot) {
+        BitSet slots = full.get(item);
+        if (slots == null) {
+            slots = new BitSet();
+            full.put(item, slots);
+        }
+        slots.set(slot);
+    }
+}
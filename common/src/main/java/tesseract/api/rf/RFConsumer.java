@@ -1,11 +1,11 @@
 package tesseract.api.rf;
 
 import tesseract.api.Consumer;
+import tesseract.api.RouteCostModel;
 import tesseract.graph.Path;
 
 import java.util.Comparator;
-
-import static java.lang.Integer.compare;
+import java.util.List;
 
 /**
  * A class that acts as a container for a item consumer.
@@ -15,8 +15,13 @@ public class RFConsumer extends Consumer<IRFCable, IRFNode> {
     private long minCapacity = Long.MAX_VALUE;
 
     // Way of the sorting by the distance to the node
-    @SuppressWarnings("ComparatorCombinators")
-    public static final Comparator<RFConsumer> COMPARATOR = (t1, t2) -> compare(t1.getDistance(), t2.getDistance());
+    public static final RouteCostModel<RFConsumer> COST = Consumer::getDistance;
+
+    /**
+     * @deprecated Sort with {@link RouteCostModel#sort(List, RouteCostModel)} and {@link #COST}.
+     */
+    @Deprecated
+    public static final Comparator<RFConsumer> COMPARATOR = Comparator.comparingLong(COST::getCost);
 
     /**
      * Creates instance of the consumer.
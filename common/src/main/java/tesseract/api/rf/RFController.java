@@ -4,6 +4,7 @@ import it.unimi.dsi.fastutil.longs.Long2LongMap;
 import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
@@ -12,7 +13,9 @@ import net.minecraft.world.level.Level;
 import org.jetbrains.annotations.NotNull;
 import tesseract.Tesseract;
 import tesseract.api.Controller;
+import tesseract.api.DistributionStrategy;
 import tesseract.api.ITickingController;
+import tesseract.api.RouteCostModel;
 import tesseract.api.capability.ITransactionModifier;
 import tesseract.api.gt.GTConsumer;
 import tesseract.api.gt.IGTCable;
@@ -33,6 +36,7 @@ public class RFController extends Controller<RFTransaction, IRFCable, IRFNode> {
     private long totalEnergy, lastEnergy;
     private final Long2LongMap holders = new Long2LongOpenHashMap();
     private final Long2ObjectMap<Map<Direction, List<RFConsumer>>> data = new Long2ObjectLinkedOpenHashMap<>();
+    private RouteCostModel<RFConsumer> costModel = RFConsumer.COST;
 
     /**
      * Creates instance of the controller.
@@ -44,6 +48,16 @@ public class RFController extends Controller<RFTransaction, IRFCable, IRFNode> {
         holders.defaultReturnValue(-1L);
     }
 
+    /**
+     * Sets the order the routes of the producers are tried in, the routes are rebuilt with it.
+     *
+     * @param costModel The cost model of the routes.
+     */
+    public void setRouteCostModel(RouteCostModel<RFConsumer> costModel) {
+        this.costModel = costModel;
+        markChanged();
+    }
+
     /**
      * Executes when the group structure has changed.
      * <p>
@@ -64,40 +78,95 @@ public class RFController extends Controller<RFTransaction, IRFCable, IRFNode> {
 
     private boolean changeInternal() {
         data.clear();
-        for (Long2ObjectMap.Entry<NodeCache<IRFNode>> e : group.getNodes().long2ObjectEntrySet()) {
-            long pos = e.getLongKey();
-            for (Map.Entry<Direction, IRFNode> tup : e.getValue().values()) {
-                IRFNode producer = tup.getValue();
-                Direction direction = tup.getKey();
-                if (producer.canOutput(direction)) {
-                    long side = Pos.offset(pos, direction);
-                    List<RFConsumer> consumers = new ObjectArrayList<>();
-
-                    Grid<IRFCable> grid = group.getGridAt(side, direction);
-                    if (grid != null) {
-                        for (Path<IRFCable> path : grid.getPaths(pos)) {
-                            if (!path.isEmpty()) {
-                                Node target = path.target();
-                                assert target != null;
-                                if (!onCheck(producer, consumers, path, target.asLong(), target.getDirection()))
-                                    return false;
-                            }
+        return buildAll(data, this::build);
+    }
+
+    /**
+     * Collects the consumers available for each output side of the producer.
+     *
+     * @param pos    The position of the producer.
+     * @param cache  The producer node.
+     * @param paths  The source of the paths.
+     * @param routes The consumers by side, to fill in.
+     * @return whether or not an issue arose checking nodes.
+     */
+    private boolean build(long pos, NodeCache<IRFNode> cache, PathSource<IRFCable> paths, Map<Direction, List<RFConsumer>> routes) {
+        for (Map.Entry<Direction, IRFNode> tup : cache.values()) {
+            IRFNode producer = tup.getValue();
+            Direction direction = tup.getKey();
+            if (producer.canOutput(direction)) {
+                long side = Pos.offset(pos, direction);
+                List<RFConsumer> consumers = new ObjectArrayList<>();
+
+                Grid<IRFCable> grid = group.getGridAt(side, direction);
+                if (grid != null) {
+                    for (Path<IRFCable> path : paths.getPaths(grid, pos)) {
+                        if (!path.isEmpty()) {
+                            Node target = path.target();
+                            assert target != null;
+                            if (!onCheck(producer, consumers, path, target.asLong(), target.getDirection()))
+                                return false;
                         }
-                    } else if (group.getNodes().containsKey(side)) {
-                        onCheck(producer, consumers, null, side, direction.getOpposite());
                     }
-                    if (!consumers.isEmpty())
-                        data.computeIfAbsent(pos, m -> new EnumMap<>(Direction.class))
-                                .put(direction.getOpposite(), consumers);
+                } else if (group.getNodes().containsKey(side)) {
+                    onCheck(producer, consumers, null, side, direction.getOpposite());
+                }
+                if (!consumers.isEmpty()) {
+                    RouteCostModel.sort(consumers, costModel);
+                    routes.put(direction.getOpposite(), consumers);
                 }
             }
         }
+        return true;
+    }
 
-        for (Map<Direction, List<RFConsumer>> map : data.values()) {
-            for (List<RFConsumer> consumers : map.values()) {
-                consumers.sort(RFConsumer.COMPARATOR);
-            }
+    @Override
+    protected void extend(long pos, Direction direction, List<Path<IRFCable>> paths) {
+        IRFNode producer = group.getNodes().get(pos).value(direction);
+        if (producer == null || !producer.canOutput(direction))
+            return;
+        List<RFConsumer> consumers = new ObjectArrayList<>();
+        for (Path<IRFCable> path : paths) {
+            Node target = path.target();
+            onCheck(producer, consumers, path, target.asLong(), target.getDirection());
+        }
+        if (!consumers.isEmpty()) {
+            List<RFConsumer> list = data.computeIfAbsent(pos, m -> new EnumMap<>(Direction.class))
+                    .computeIfAbsent(direction.getOpposite(), d -> new ObjectArrayList<>());
+            list.addAll(consumers);
+            RouteCostModel.sort(list, costModel);
         }
+    }
+
+    @Override
+    protected void rebuild(long pos) {
+        data.remove(pos);
+        NodeCache<IRFNode> cache = group.getNodes().get(pos);
+        if (cache == null)
+            return;
+        Map<Direction, List<RFConsumer>> routes = new EnumMap<>(Direction.class);
+        if (!build(pos, cache, Grid::getPaths, routes)) {
+            Tesseract.LOGGER.warn("Error during RFController::rebuild.");
+        } else if (!routes.isEmpty()) {
+            data.put(pos, routes);
+        }
+    }
+
+    @Override
+    protected boolean retain(Controller<RFTransaction, IRFCable, IRFNode> source, LongSet touched) {
+        partition(source, ((RFController) source).data, data, touched);
+        return true;
+    }
+
+    @Override
+    protected boolean canOutput(IRFNode node, Direction direction) {
+        return node.canOutput(direction);
+    }
+
+    @Override
+    protected boolean adopt(Controller<RFTransaction, IRFCable, IRFNode> source) {
+        data.clear();
+        data.putAll(((RFController) source).data);
         return true;
     }
 
@@ -238,6 +307,7 @@ public class RFController extends Controller<RFTransaction, IRFCable, IRFNode> {
     public void getInfo(long pos, @NotNull List<String> list) {
         this.group.getGroupInfo(pos, list);
         list.add(String.format("FE Data size: %d", this.data.size()));
+        super.getInfo(pos, list);
     }
 
     /*@Override
@@ -247,11 +317,15 @@ public class RFController extends Controller<RFTransaction, IRFCable, IRFNode> {
 
     @Override
     public ITickingController clone(INode group) {
-        return new RFController(dim, getter).set(group);
+        RFController controller = new RFController(dim, getter);
+        controller.costModel = costModel;
+        controller.distribution = distribution;
+        return controller.set(group);
     }
 
     @Override
     public void insert(long pipePos, Direction side, RFTransaction transaction, ITransactionModifier modifier) {
+        flushChanged();
         Map<Direction, List<RFConsumer>> map = this.data.get(Pos.offset(pipePos, side));
         if (map == null)
             return;
@@ -259,10 +333,33 @@ public class RFController extends Controller<RFTransaction, IRFCable, IRFNode> {
         if (list == null)
             return;
 
-        for (RFConsumer consumer : list) {
-            long added = consumer.insert(Math.min(transaction.rf, consumer.getNode().maxInsert()), true);
+        long producerPos = Pos.offset(pipePos, side);
+        int size = list.size();
+        long available = transaction.rf;
+        long[] demands = null;
+        long total = 0;
+        if (distribution.isProportional()) {
+            demands = getDemands(size);
+            for (int i = 0; i < size; i++) {
+                RFConsumer consumer = list.get(i);
+                demands[i] = isValid(consumer) ? Math.max(0, consumer.insert(Math.min(available, consumer.getNode().maxInsert()), true)) : 0;
+                total += demands[i];
+            }
+        }
+        int cursor = getCursor(producerPos, side);
+        int start = distribution.getStart(cursor, size);
+
+        for (int n = 0; n < size; n++) {
+            int i = DistributionStrategy.getIndex(start, n, size);
+            RFConsumer consumer = list.get(i);
+            if (!isValid(consumer)) continue;
+            long limit = Math.min(transaction.rf, consumer.getNode().maxInsert());
+            if (demands != null) limit = Math.min(limit, DistributionStrategy.getShare(available, demands[i], total));
+            long added = consumer.insert(limit, true);
             if (added <= 0) continue;
             transaction.addData(added, rf -> consumer.insert(rf, false));
+            cursor = distribution.getCursor(cursor, i, size);
         }
+        setCursor(producerPos, side, cursor);
     }
 }
\ No newline at end of file
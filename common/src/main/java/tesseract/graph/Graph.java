@@ -7,14 +7,22 @@ import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.longs.Long2IntLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.core.Direction;
 import tesseract.api.Controller;
 import tesseract.api.IConnectable;
 import tesseract.util.CID;
 import tesseract.util.Pos;
+import tesseract.util.UnionFind;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -25,6 +33,7 @@ public class Graph<T, C extends IConnectable, N> implements INode {
   public static final Direction[] DIRECTIONS = Direction.values();
   private final Int2ObjectMap<Group<T, C, N>> groups = new Int2ObjectLinkedOpenHashMap<>();
   private final Long2IntMap positions = new Long2IntLinkedOpenHashMap(); // group positions
+  private final ObjectArrayList<Group<T, C, N>> awake = new ObjectArrayList<>(); // the ticked groups, in the order they woke up
   private final Supplier<Controller<T, C, N>> controller;
 
   public Graph(Supplier<Controller<T, C, N>> controller) {
@@ -85,6 +94,86 @@ public class Graph<T, C extends IConnectable, N> implements INode {
     }
   }
 
+  /**
+   * Adds a batch of connectors to the graph, as done on chunk loads. The groups are resolved in a single union-find
+   * pass over the batch, so every group touched by the batch is merged at most once and each resulting group builds
+   * its grids once.
+   *
+   * @param batch the cached connectors by position, positions already present in the graph are skipped.
+   */
+  public void addConnectors(Long2ObjectMap<Cache<C>> batch) {
+    LongArrayList added = new LongArrayList(batch.size());
+    for (long pos : batch.keySet()) {
+      if (!contains(pos)) {
+        added.add(pos);
+      }
+    }
+
+    int size = added.size();
+    Long2IntMap slots = new Long2IntOpenHashMap(size);
+    slots.defaultReturnValue(-1);
+    for (int i = 0; i < size; i++) {
+      slots.put(added.getLong(i), i);
+    }
+
+    UnionFind sets = new UnionFind(size);
+    for (int i = 0; i < size; i++) {
+      long pos = added.getLong(i);
+      for (Direction direction : Graph.DIRECTIONS) {
+        int slot = slots.get(Pos.offset(pos, direction));
+        if (slot != -1) {
+          sets.union(i, slot);
+        }
+      }
+    }
+
+    Int2ObjectMap<Long2ObjectMap<Cache<C>>> parts = new Int2ObjectLinkedOpenHashMap<>();
+    for (int i = 0; i < size; i++) {
+      long pos = added.getLong(i);
+      parts.computeIfAbsent(sets.find(i), k -> new Long2ObjectLinkedOpenHashMap<>()).put(pos, batch.get(pos));
+    }
+
+    for (Long2ObjectMap<Cache<C>> part : parts.values()) {
+      // Neighbors are looked up here, as the parts handled before may have merged some of them.
+      IntSet mergers = new IntLinkedOpenHashSet();
+      for (long pos : part.keySet()) {
+        mergers.addAll(getNeighboringGroups(pos));
+      }
+
+      int id;
+      Group<T, C, N> group;
+      switch (mergers.size()) {
+        case 0 -> {
+          id = CID.nextId();
+          group = null;
+        }
+        case 1 -> {
+          id = mergers.iterator().nextInt();
+          group = groups.get(id);
+        }
+        default -> {
+          Merged<T, C, N> data = beginMerge(mergers);
+          long first = part.keySet().iterator().nextLong();
+          for (Group<T, C, N> other : data.merged) {
+            data.best.mergeWith(other, first);
+          }
+          id = data.bestId;
+          group = data.best;
+        }
+      }
+
+      for (long pos : part.keySet()) {
+        positions.put(pos, id);
+      }
+
+      if (group == null) {
+        putGroup(id, Group.ofConnectors(part, controller.get()));
+      } else {
+        group.addConnectors(part, controller.get());
+      }
+    }
+  }
+
   public int size() {
     return positions.size();
   }
@@ -104,7 +193,7 @@ public class Graph<T, C extends IConnectable, N> implements INode {
       case 0 -> {
         id = CID.nextId();
         positions.put(pos, id);
-        groups.put(id, single.get());
+        putGroup(id, single.get());
         return null;
       }
       case 1 -> {
@@ -143,27 +232,12 @@ public class Graph<T, C extends IConnectable, N> implements INode {
     }
     Group<T, C, N> group = groups.get(id);
 
-    boolean ok = group.removeAt(pos, newGroup -> {
-      int newId = CID.nextId();
-      groups.put(newId, newGroup);
-
-      // Mark the nodes as pointing at the new group
-      for (long part : newGroup.getNodes().keySet()) {
-        positions.put(part, newId);
-      }
-
-      // Mark the connectors as pointing at the new group
-      for (Grid<C> grid : newGroup.getGrids().values()) {
-        for (long part : grid.getConnectors().keySet()) {
-          positions.put(part, newId);
-        }
-      }
-    });
+    boolean ok = group.removeAt(pos, this::addSplit);
     if (ok) {
       positions.remove(pos);
     }
     if (group.countBlocks() == 0) {
-      groups.remove(id);
+      removeGroup(id);
     }
     return ok;
   }
@@ -208,7 +282,7 @@ public class Graph<T, C extends IConnectable, N> implements INode {
         continue;
       }
 
-      Group<T, C, N> removed = groups.remove(id);
+      Group<T, C, N> removed = removeGroup(id);
 
       // Remap each position to point to the correct group.
       for (long pos : removed.getBlocks()) {
@@ -221,6 +295,126 @@ public class Graph<T, C extends IConnectable, N> implements INode {
     return new Merged<>(bestId, best, mergeGroups);
   }
 
+  /**
+   * Removes a set of entries at once, e.g. for an explosion or a chunk unload. Each touched group is divided at most
+   * once, no matter how many of its entries are removed.
+   *
+   * @param removed The positions of the entries to remove, positions not in the graph are ignored.
+   * @return The removed positions.
+   */
+  public LongSet removeAll(LongSet removed) {
+    Int2ObjectMap<LongSet> byGroup = new Int2ObjectLinkedOpenHashMap<>();
+    for (long pos : removed) {
+      int id = positions.get(pos);
+      if (id != CID.INVALID) {
+        byGroup.computeIfAbsent(id, k -> new LongOpenHashSet()).add(pos);
+      }
+    }
+
+    LongSet done = new LongOpenHashSet();
+    for (Int2ObjectMap.Entry<LongSet> e : byGroup.int2ObjectEntrySet()) {
+      int id = e.getIntKey();
+      Group<T, C, N> group = groups.get(id);
+
+      for (long pos : group.removeAll(e.getValue(), this::addSplit)) {
+        positions.remove(pos);
+        done.add(pos);
+      }
+      if (group.countBlocks() == 0) {
+        removeGroup(id);
+      }
+    }
+    return done;
+  }
+
+  /**
+   * Ticks the awake groups. A group whose controller can sleep is taken off the awake groups, until a transfer or a
+   * change wakes it again. The groups woken while ticking are first ticked on the next tick.
+   *
+   * @param action The tick of a group.
+   */
+  public void tick(Consumer<Group<T, C, N>> action) {
+    int size = awake.size();
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      Group<T, C, N> group = awake.get(i);
+      if (!group.isAwake()) {
+        // Removed from the graph.
+        continue;
+      }
+      action.accept(group);
+      if (group.getController() != null && group.getController().canSleep()) {
+        group.sleep();
+        continue;
+      }
+      awake.set(kept++, group);
+    }
+    awake.removeElements(kept, size);
+  }
+
+  /**
+   * @return Gets the number of awake groups.
+   */
+  public int countAwake() {
+    return awake.size();
+  }
+
+  /**
+   * Puts a group on the ticked groups, called by the group.
+   *
+   * @param group The woken group.
+   */
+  void wake(Group<T, C, N> group) {
+    awake.add(group);
+  }
+
+  /**
+   * Adds a group to the groups map.
+   *
+   * @param id    The id of the group.
+   * @param group The group.
+   */
+  private void putGroup(int id, Group<T, C, N> group) {
+    groups.put(id, group);
+    group.attach(this);
+  }
+
+  /**
+   * Removes a group from the groups map.
+   *
+   * @param id The id of the group.
+   * @return The removed group.
+   */
+  private Group<T, C, N> removeGroup(int id) {
+    Group<T, C, N> group = groups.remove(id);
+    if (group != null) {
+      group.detach();
+    }
+    return group;
+  }
+
+  /**
+   * Registers a group split off from an existing group.
+   *
+   * @param newGroup The new group.
+   */
+  private void addSplit(Group<T, C, N> newGroup) {
+    int newId = CID.nextId();
+    putGroup(newId, newGroup);
+
+    // Mark the nodes as pointing at the new group
+    for (long part : newGroup.getNodes().keySet()) {
+      positions.put(part, newId);
+    }
+
+    // Mark the connectors as pointing at the new group
+    for (Grid<C> grid : newGroup.getGrids().values()) {
+      for (long part : grid.getConnectors().keySet()) {
+        positions.put(part, newId);
+      }
+    }
+  }
+
   /**
    * Lookups for neighbors groups around given position.
    *
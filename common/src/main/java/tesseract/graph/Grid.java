@@ -3,21 +3,29 @@ package tesseract.graph;
 import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.core.Direction;
 import tesseract.api.IConnectable;
 import tesseract.graph.traverse.ASFinder;
+import tesseract.graph.traverse.AdjacencyIndex;
+import tesseract.graph.traverse.ArticulationIndex;
 import tesseract.graph.traverse.BFDivider;
+import tesseract.graph.traverse.BFDenseTree;
+import tesseract.graph.traverse.BFJoinTree;
+import tesseract.graph.traverse.BFTree;
+import tesseract.graph.traverse.ChainIndex;
 import tesseract.util.Node;
 import tesseract.util.Pos;
 
 import java.util.Deque;
 import java.util.List;
 import java.util.function.Consumer;
-import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
 
 /**
  * Grid provides the functionality of a set of linked nodes.
@@ -28,6 +36,11 @@ public class Grid<C extends IConnectable> implements INode {
     private final Long2ObjectMap<NodeCache<?>> nodes = new Long2ObjectLinkedOpenHashMap<>();
     private final BFDivider divider = new BFDivider(this);
     private final ASFinder finder = new ASFinder(this);
+    private final ArticulationIndex index = new ArticulationIndex(this); // over connectors only, nodes only add links
+    private final AdjacencyIndex adjacency = new AdjacencyIndex(this);
+    private final ChainIndex chains = new ChainIndex(this);
+    private final BFTree tree = new BFDenseTree(this, adjacency, chains);
+    private final BFJoinTree joins = new BFJoinTree(this);
 
     // Prevent the creation of empty grids externally, a caller needs to use singleConnector.
     private Grid() {
@@ -45,6 +58,20 @@ public class Grid<C extends IConnectable> implements INode {
         return grid;
     }
 
+    /**
+     * @param nodes The copied nodes of the group, which replace the nodes of this grid.
+     * @return Create a copy of the grid for a group snapshot.
+     */
+    protected Grid<C> copy(Long2ObjectMap<? extends NodeCache<?>> nodes) {
+        Grid<C> grid = new Grid<>();
+        grid.connectors.putAll(connectors);
+        for (Long2ObjectMap.Entry<NodeCache<?>> e : this.nodes.long2ObjectEntrySet()) {
+            NodeCache<?> node = nodes.get(e.getLongKey());
+            grid.nodes.put(e.getLongKey(), node != null ? node : e.getValue());
+        }
+        return grid;
+    }
+
     @Override
     public boolean contains(long pos) {
         return connectors.containsKey(pos) || nodes.containsKey(pos);
@@ -129,21 +156,75 @@ public class Grid<C extends IConnectable> implements INode {
     }
 
     /**
-     * Gets paths from the position to another linked nodes.
+     * Gets paths from the position to another linked nodes. All paths are taken from a single shortest-path tree
+     * rooted at the given position, so unreachable nodes are not included.
      *
      * @param from The position of the linked node.
      * @return Returns paths from the linked node.
      */
     public List<Path<C>> getPaths(long from) {
+        return getPaths(from, tree);
+    }
+
+    /**
+     * Gets paths from the position to another linked nodes, like {@link #getPaths(long)}, but searching with a tree
+     * of the caller. As the grid is only read, several threads can get paths at once, each with its own tree.
+     *
+     * @param from The position of the linked node.
+     * @param tree The tree to search with, created by {@link #createTree()} of this grid.
+     * @return Returns paths from the linked node.
+     */
+    public List<Path<C>> getPaths(long from, BFTree tree) {
+        updateSearch();
         List<Path<C>> data = new ObjectArrayList<>();
-        nodes.keySet().forEach((LongConsumer)  to -> {
-            if (to != from) {
-                data.add(new Path<>(connectors, finder.traverse(from, to)));
-            }
-        });
+        PathTree<C> shared = new PathTree<>(connectors, chains, from);
+        tree.traverse(from, nodes.keySet(), path -> data.add(shared.add(path)));
+        shared.trim();
         return data;
     }
 
+    /**
+     * @return Creates a new tree searching this grid, to be used with {@link #getPaths(long, BFTree)}.
+     */
+    public BFTree createTree() {
+        return new BFDenseTree(this, adjacency, chains);
+    }
+
+    /**
+     * Rebuilds the adjacency and chain indices if they went stale since the last rebuild. Trees of several threads
+     * share the indices, so the first of them to search rebuilds them for all.
+     */
+    private synchronized void updateSearch() {
+        if (!adjacency.isValid()) {
+            adjacency.rebuild(connectors, nodes.keySet());
+        }
+        if (!chains.isValid()) {
+            chains.rebuild(connectors.keySet(), adjacency);
+        }
+    }
+
+    /**
+     * Gets the paths which run through a position joining parts of the grid that were not linked before, by the
+     * position of their origin. These are the only paths the join adds, the paths within each part stay as they are.
+     *
+     * @param via     The joining position.
+     * @param origins Whether a position outside of the grid routes into it, ie. a node the grid does not link to.
+     * @return Returns the paths by origin, or null if the parts are also linked around the position.
+     */
+    public Long2ObjectMap<List<Path<C>>> getPathsThrough(long via, LongPredicate origins) {
+        Long2ObjectMap<List<Path<C>>> data = new Long2ObjectLinkedOpenHashMap<>();
+        Long2ObjectMap<PathTree<C>> shared = new Long2ObjectOpenHashMap<>();
+        boolean joined = joins.traverse(via, nodes.keySet(), origins, path -> {
+            long origin = path.getLast().asLong();
+            Path<C> added = shared.computeIfAbsent(origin, o -> new PathTree<>(connectors, o)).add(path);
+            data.computeIfAbsent(origin, o -> new ObjectArrayList<>()).add(added);
+        });
+        for (PathTree<C> tree : shared.values()) {
+            tree.trim();
+        }
+        return joined ? data : null;
+    }
+
     /**
      * Begins a find operation from the specified start position to the end position.
      *
@@ -163,6 +244,14 @@ public class Grid<C extends IConnectable> implements INode {
     public void mergeWith(Grid<C> other) {
         connectors.putAll(other.connectors);
         this.nodes.putAll(other.nodes);
+        index.invalidate();
+        chains.invalidate();
+        for (Long2ObjectMap.Entry<Cache<C>> e : other.connectors.long2ObjectEntrySet()) {
+            adjacency.onAdd(e.getLongKey(), e.getValue().connectivity(), false);
+        }
+        for (long pos : other.nodes.keySet()) {
+            adjacency.onAdd(pos, (byte) 0, true);
+        }
     }
 
     /**
@@ -183,6 +272,9 @@ public class Grid<C extends IConnectable> implements INode {
      */
     public void addConnector(long pos, Cache<C> connector) {
         connectors.put(pos, connector);
+        index.onAdd(pos);
+        adjacency.onAdd(pos, connector.connectivity(), false);
+        chains.invalidate();
     }
 
     /**
@@ -192,6 +284,8 @@ public class Grid<C extends IConnectable> implements INode {
      */
     public void addNode(long pos, NodeCache<?> cache) {
         nodes.put(pos, cache);
+        adjacency.onAdd(pos, (byte) 0, true);
+        chains.invalidate();
     }
 
     /**
@@ -201,6 +295,8 @@ public class Grid<C extends IConnectable> implements INode {
      */
     public void removeNode(long pos) {
         nodes.remove(pos);
+        adjacency.onRemove(pos);
+        chains.invalidate();
     }
 
     /**
@@ -217,26 +313,87 @@ public class Grid<C extends IConnectable> implements INode {
             throw new IllegalArgumentException("Grid::remove: Tried to call with a position that does not exist within the grid.");
         }
 
-        if (isExternal(pos)) {
+        LongSet removed = LongSets.singleton(pos);
+        Consumer<LongSet> roots = roots(removed);
+
+        // The index rules out most splits without a search, it is rebuilt once a removal needs it.
+        boolean splits = false;
+        if (!isExternal(pos)) {
+            updateIndex();
+            splits = index.isArticulation(pos) && divider.splits(set -> set.add(pos), roots);
+        }
+        chains.invalidate();
+
+        if (!splits) {
+            index.onRemove(pos);
             removeFinal(pos);
             return;
         }
 
-        List<LongSet> colored = new ObjectArrayList<>();
+        index.invalidate();
+        divide(removed, roots, split);
+    }
+
+    /**
+     * Removes a set of connectors from the Grid at once, splitting it at most once. By calling this function, the
+     * caller asserts that this grid contains the specified positions.
+     *
+     * @param positions The positions of the connectors to remove.
+     * @param split     A consumer for the resulting fresh graphs from the split operation.
+     */
+    public void removeAll(LongSet positions, Consumer<Grid<C>> split) {
+        if (positions.size() == 1) {
+            removeAt(positions.iterator().nextLong(), split);
+            return;
+        }
+
+        // The articulation index only holds for single removals.
+        Consumer<LongSet> roots = roots(positions);
+        boolean splits = divider.splits(set -> set.addAll(positions), roots);
+        index.invalidate();
+        chains.invalidate();
 
-        int bestColor = divider.divide(
-                removed -> removed.add(pos),
-                roots -> {
-                    for (Direction direction : Graph.DIRECTIONS) {
-                        long side = Pos.offset(pos, direction);
+        if (!splits) {
+            for (long pos : positions) {
+                removeFinal(pos);
+            }
+            return;
+        }
 
-                        if (linked(pos, direction, side)) {
-                            roots.add(side);
-                        }
+        divide(positions, roots, split);
+    }
+
+    /**
+     * Only connectors are used as roots, a node next to a removed position does not carry the grid on its own.
+     *
+     * @param removed The removed positions.
+     * @return Provides the connectors next to the removed positions which remain in the grid.
+     */
+    private Consumer<LongSet> roots(LongSet removed) {
+        return set -> {
+            for (long pos : removed) {
+                for (Direction direction : Graph.DIRECTIONS) {
+                    long side = Pos.offset(pos, direction);
+
+                    if (!removed.contains(side) && connectors.containsKey(side) && linked(pos, direction, side)) {
+                        set.add(side);
                     }
-                },
-                colored::add
-        );
+                }
+            }
+        };
+    }
+
+    /**
+     * Removes connectors that split the grid, moving each fragment but the largest into a new grid.
+     *
+     * @param removed The removed positions.
+     * @param roots   The connectors next to the removed positions.
+     * @param split   A consumer for the resulting fresh graphs from the split operation.
+     */
+    private void divide(LongSet removed, Consumer<LongSet> roots, Consumer<Grid<C>> split) {
+        List<LongSet> colored = new ObjectArrayList<>();
+
+        int bestColor = divider.divide(set -> set.addAll(removed), roots, colored::add);
 
         LongSet check = new LongLinkedOpenHashSet();
 
@@ -255,20 +412,33 @@ public class Grid<C extends IConnectable> implements INode {
                     newGrid.nodes.put(reached, this.nodes.get(reached));
                 } else {
                     newGrid.connectors.put(reached, connectors.remove(reached));
+                    adjacency.onRemove(reached);
                 }
             }
             split.accept(newGrid);
         }
 
-        removeFinal(pos);
+        for (long pos : removed) {
+            removeFinal(pos);
+        }
 
         for (long reached : check) {
             if (isExternal(reached)) {
                 nodes.remove(reached);
+                adjacency.onRemove(reached);
             }
         }
     }
 
+    /**
+     * Rebuilds the articulation index if it went stale since the last rebuild.
+     */
+    public void updateIndex() {
+        if (!index.isValid()) {
+            index.rebuild(connectors.keySet().iterator());
+        }
+    }
+
     /**
      * Removes connector by a position.
      *
@@ -276,11 +446,13 @@ public class Grid<C extends IConnectable> implements INode {
      */
     private void removeFinal(long pos) {
         connectors.remove(pos);
+        adjacency.onRemove(pos);
         for (Direction direction : Graph.DIRECTIONS) {
             long side = Pos.offset(pos, direction);
 
             if (nodes.containsKey(side) && isExternal(side) && this.nodes.get(side).connects(direction.getOpposite())) {
                 nodes.remove(side);
+                adjacency.onRemove(side);
             }
         }
     }
@@ -1,15 +1,21 @@
 package tesseract.graph;
 
+import it.unimi.dsi.fastutil.ints.Int2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
 import it.unimi.dsi.fastutil.longs.Long2IntLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.LongIterators;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import net.minecraft.core.BlockPos;
@@ -18,9 +24,11 @@ import tesseract.Tesseract;
 import tesseract.api.Controller;
 import tesseract.api.IConnectable;
 import tesseract.api.ITickingController;
+import tesseract.graph.traverse.ArticulationIndex;
 import tesseract.graph.traverse.BFDivider;
 import tesseract.util.CID;
 import tesseract.util.Pos;
+import tesseract.util.UnionFind;
 
 import java.util.Iterator;
 import java.util.List;
@@ -33,10 +41,15 @@ import java.util.function.Consumer;
 public class Group<T, C extends IConnectable, N> implements INode {
 
     private final Long2ObjectMap<NodeCache<N>> nodes = new Long2ObjectLinkedOpenHashMap<>();
+    private final Long2ObjectMap<NodeCache<N>> nodesView = Long2ObjectMaps.unmodifiable(nodes);
     private final Int2ObjectMap<Grid<C>> grids = new Int2ObjectLinkedOpenHashMap<>();
     private final Long2IntMap connectors = new Long2IntLinkedOpenHashMap(); // connectors pairing
     private final BFDivider divider = new BFDivider(this);
+    private final ArticulationIndex index = new ArticulationIndex(this);
     private ITickingController<T, C, N> controller = null;
+    private int version; // bumped on every structure change
+    private Graph<T, C, N> graph; // the graph ticking the group, null for a snapshot or a removed group
+    private boolean awake;
 
     // Prevent the creation of empty groups externally, a caller needs to use singleNode/singleConnector.
     private Group() {
@@ -70,6 +83,17 @@ public class Group<T, C extends IConnectable, N> implements INode {
         return group;
     }
 
+    /**
+     * @param batch      The connectors by position.
+     * @param controller The given controller.
+     * @return Create a instance of a class for a given batch of connectors.
+     */
+    protected static <T, C extends IConnectable, N> Group<T, C, N> ofConnectors(Long2ObjectMap<Cache<C>> batch, Controller<T, C, N> controller) {
+        Group<T, C, N> group = new Group<>();
+        group.addConnectors(batch, controller);
+        return group;
+    }
+
     public Iterable<Cache<C>> connectors() {
         return () -> this.grids.values().stream().flatMap(t -> t.getConnectors().values().stream()).distinct().iterator();
     }
@@ -94,11 +118,12 @@ public class Group<T, C extends IConnectable, N> implements INode {
     }
 
     /**
-     * Calls the changing method for the controller.
+     * Marks the controller as changed, it is rebuilt once before it is used next.
      *
      * @param ticking The ticking instance.
      */
     private void updateController(Controller<T, C, N> ticking) {
+        version++;
         if (ticking == null)
             return;
 
@@ -107,11 +132,24 @@ public class Group<T, C extends IConnectable, N> implements INode {
             controller = ticking;
         }
         if (Tesseract.hadFirstTick(controller.getWorld())) {
-            try {
-                controller.change();
-            } catch (Exception ex) {
-                Tesseract.LOGGER.warn("Error updating controller : " + ex);
-            }
+            controller.markChanged();
+        }
+    }
+
+    /**
+     * Notifies the controller about an entry added at the position, only the routes through it are computed.
+     *
+     * @param ticking The ticking instance.
+     * @param pos     The position of the added entry.
+     */
+    private void updateController(Controller<T, C, N> ticking, long pos) {
+        if (controller == null) {
+            updateController(ticking);
+            return;
+        }
+        version++;
+        if (Tesseract.hadFirstTick(controller.getWorld())) {
+            controller.markAdded(pos);
         }
     }
 
@@ -135,7 +173,7 @@ public class Group<T, C extends IConnectable, N> implements INode {
      * @return Returns nodes map.
      */
     public Long2ObjectMap<NodeCache<N>> getNodes() {
-        return Long2ObjectMaps.unmodifiable(nodes);
+        return nodesView;
     }
 
     /**
@@ -145,6 +183,33 @@ public class Group<T, C extends IConnectable, N> implements INode {
         return Int2ObjectMaps.unmodifiable(grids);
     }
 
+    /**
+     * @return Gets the structure version, which changes whenever an entry is added or removed.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Copies the structure of the group, so it can be searched from another thread while this group keeps changing.
+     * Only the maps, the node sides and the connectivity are copied, the connectors and nodes themselves are shared
+     * and may only be read on the server thread.
+     *
+     * @return Returns a group of the same version, without a controller.
+     */
+    public Group<T, C, N> snapshot() {
+        Group<T, C, N> copy = new Group<>();
+        for (Long2ObjectMap.Entry<NodeCache<N>> e : nodes.long2ObjectEntrySet()) {
+            copy.nodes.put(e.getLongKey(), e.getValue().copy());
+        }
+        copy.connectors.putAll(connectors);
+        for (Int2ObjectMap.Entry<Grid<C>> e : grids.int2ObjectEntrySet()) {
+            copy.grids.put(e.getIntKey(), e.getValue().copy(copy.nodes));
+        }
+        copy.version = version;
+        return copy;
+    }
+
     /**
      * @return Returns group controller.
      */
@@ -152,6 +217,52 @@ public class Group<T, C extends IConnectable, N> implements INode {
         return controller;
     }
 
+    /**
+     * Attaches the group to the graph ticking it, the group starts awake.
+     *
+     * @param graph The graph.
+     */
+    void attach(Graph<T, C, N> graph) {
+        this.graph = graph;
+        wake();
+    }
+
+    /**
+     * Detaches the group from its graph, once it is removed or merged into another group.
+     */
+    void detach() {
+        graph = null;
+        awake = false;
+    }
+
+    /**
+     * Puts the group back on the ticked groups of its graph.
+     *
+     * @return True if the group was asleep.
+     */
+    public boolean wake() {
+        if (awake || graph == null) {
+            return false;
+        }
+        awake = true;
+        graph.wake(this);
+        return true;
+    }
+
+    /**
+     * Takes the group off the ticked groups, until it is woken.
+     */
+    void sleep() {
+        awake = false;
+    }
+
+    /**
+     * @return Checks that the group is ticked.
+     */
+    public boolean isAwake() {
+        return awake;
+    }
+
     /**
      * Adds a new node to the group.
      *
@@ -161,6 +272,7 @@ public class Group<T, C extends IConnectable, N> implements INode {
      */
     public void addNode(long pos, NodeCache<N> node, Controller<T, C, N> controller) {
         nodes.put(pos, node);
+        index.onAdd(pos);
 
         for (Direction direction : Graph.DIRECTIONS) {
             long off = Pos.offset(pos, direction);
@@ -176,7 +288,7 @@ public class Group<T, C extends IConnectable, N> implements INode {
             grid.addNode(pos, node);
         }
 
-        updateController(controller);
+        updateController(controller, pos);
     }
 
     /**
@@ -272,6 +384,132 @@ public class Group<T, C extends IConnectable, N> implements INode {
                 }
             }
         }
+
+        index.onAdd(pos);
+        updateController(controller, pos);
+    }
+
+    /**
+     * Adds a batch of connectors to the group. The grids are resolved in a single union-find pass over the batch and
+     * the grids it touches, so every touched grid is merged at most once.
+     *
+     * @param batch      The connectors by position, none of them may be present in the group yet.
+     * @param controller The controller to use.
+     */
+    public void addConnectors(Long2ObjectMap<Cache<C>> batch, Controller<T, C, N> controller) {
+        int size = batch.size();
+        long[] positions = batch.keySet().toLongArray();
+        Long2IntMap slots = new Long2IntOpenHashMap(size);
+        slots.defaultReturnValue(-1);
+        for (int i = 0; i < size; i++) {
+            slots.put(positions[i], i);
+        }
+
+        // Existing grids linked to the batch take the slots after the batch positions.
+        Int2IntMap touched = new Int2IntLinkedOpenHashMap();
+        for (int i = 0; i < size; i++) {
+            Cache<C> connector = batch.get(positions[i]);
+
+            for (Direction direction : Graph.DIRECTIONS) {
+                if (!connector.connects(direction)) {
+                    continue;
+                }
+
+                long side = Pos.offset(positions[i], direction);
+                int id = connectors.get(side);
+
+                if (id != CID.INVALID && !touched.containsKey(id) && grids.get(id).connects(side, direction.getOpposite())) {
+                    touched.put(id, size + touched.size());
+                }
+            }
+        }
+
+        UnionFind sets = new UnionFind(size + touched.size());
+        for (int i = 0; i < size; i++) {
+            Cache<C> connector = batch.get(positions[i]);
+
+            for (Direction direction : Graph.DIRECTIONS) {
+                if (!connector.connects(direction)) {
+                    continue;
+                }
+
+                long side = Pos.offset(positions[i], direction);
+                int slot = slots.get(side);
+
+                if (slot != -1) {
+                    if (batch.get(side).connects(direction.getOpposite())) {
+                        sets.union(i, slot);
+                    }
+                    continue;
+                }
+
+                int id = connectors.get(side);
+                if (id != CID.INVALID && grids.get(id).connects(side, direction.getOpposite())) {
+                    sets.union(i, touched.get(id));
+                }
+            }
+        }
+
+        // Keep the largest touched grid of each set, and merge the others into it.
+        Int2IntMap best = new Int2IntOpenHashMap();
+        best.defaultReturnValue(CID.INVALID);
+        for (Int2IntMap.Entry e : touched.int2IntEntrySet()) {
+            int set = sets.find(e.getIntValue());
+            int current = best.get(set);
+
+            if (current == CID.INVALID || grids.get(e.getIntKey()).countConnectors() > grids.get(current).countConnectors()) {
+                best.put(set, e.getIntKey());
+            }
+        }
+
+        for (Int2IntMap.Entry e : touched.int2IntEntrySet()) {
+            int id = e.getIntKey();
+            int bestId = best.get(sets.find(e.getIntValue()));
+
+            if (id == bestId) {
+                continue;
+            }
+
+            Grid<C> grid = grids.remove(id);
+            grids.get(bestId).mergeWith(grid);
+            for (long item : grid.getConnectors().keySet()) {
+                connectors.put(item, bestId);
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            long pos = positions[i];
+            Cache<C> connector = batch.get(pos);
+            int set = sets.find(i);
+            int bestId = best.get(set);
+
+            if (bestId == CID.INVALID) {
+                // First connector of a fresh grid
+                bestId = CID.nextId();
+                grids.put(bestId, Grid.singleConnector(pos, connector));
+                best.put(set, bestId);
+            } else {
+                grids.get(bestId).addConnector(pos, connector);
+            }
+            connectors.put(pos, bestId);
+        }
+
+        // Add neighbours nodes to the grids
+        for (int i = 0; i < size; i++) {
+            long pos = positions[i];
+            Cache<C> connector = batch.get(pos);
+            Grid<C> grid = grids.get(connectors.get(pos));
+
+            for (Direction direction : Graph.DIRECTIONS) {
+                long side = Pos.offset(pos, direction);
+
+                if (connector.connects(direction) && nodes.containsKey(side)) {
+                    grid.addNode(side, nodes.get(side));
+                }
+            }
+        }
+
+        index.invalidate();
         updateController(controller);
     }
 
@@ -283,35 +521,102 @@ public class Group<T, C extends IConnectable, N> implements INode {
             return;
         }
 
+        LongSet removed = LongSets.singleton(pos);
+        Consumer<LongSet> roots = roots(removed);
+
         // If removing the entry would not cause a group split, then it is safe to remove the entry directly.
-        if (isExternal(pos)) {
-            if (removeNode(pos)) {
-                if (controller != null) {
-                    try {
-                        controller.change();
-                    } catch (Exception ex) {
-                        Tesseract.LOGGER.warn("Error updating controller : " + ex);
+        // The index rules out most splits without a search, it is rebuilt once a removal needs it.
+        boolean splits = false;
+        if (!isExternal(pos)) {
+            if (!index.isValid()) {
+                index.rebuild(LongIterators.concat(nodes.keySet().iterator(), connectors.keySet().iterator()));
+            }
+            splits = index.isArticulation(pos) && divider.splits(set -> set.add(pos), roots);
+        }
+
+        if (!splits) {
+            index.onRemove(pos);
+            removeDirectly(removed);
+            return;
+        }
+
+        index.invalidate();
+        divide(removed, roots, split);
+    }
+
+    /**
+     * Removes a set of entries from the Group at once, splitting it at most once no matter how many entries are
+     * removed. The positions not contained by the group are ignored.
+     *
+     * @param positions The positions of the entries to remove.
+     * @param split     A consumer for the resulting fresh graphs from the split operation.
+     * @return The removed positions.
+     */
+    public LongSet removeAll(LongSet positions, Consumer<Group<T, C, N>> split) {
+        LongSet removed = new LongOpenHashSet(positions.size());
+        for (long pos : positions) {
+            if (contains(pos)) {
+                removed.add(pos);
+            }
+        }
+
+        if (removed.size() == 1) {
+            internalRemove(removed.iterator().nextLong(), split);
+        } else if (!removed.isEmpty()) {
+            // The articulation index only holds for single removals.
+            Consumer<LongSet> roots = roots(removed);
+            boolean splits = divider.splits(set -> set.addAll(removed), roots);
+            index.invalidate();
+
+            if (!splits) {
+                removeDirectly(removed);
+            } else {
+                divide(removed, roots, split);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @param removed The removed positions.
+     * @return Provides the neighbors of the removed positions which remain in the group.
+     */
+    private Consumer<LongSet> roots(LongSet removed) {
+        return set -> {
+            for (long pos : removed) {
+                for (Direction direction : Graph.DIRECTIONS) {
+                    long side = Pos.offset(pos, direction);
+
+                    if (!removed.contains(side) && linked(pos, direction, side)) {
+                        set.add(side);
                     }
                 }
-                return;
             }
+        };
+    }
+
+    /**
+     * Removes entries that do not split the group.
+     *
+     * @param removed The removed positions.
+     */
+    private void removeDirectly(LongSet removed) {
+        version++;
+        Int2ObjectMap<LongSet> pairings = new Int2ObjectLinkedOpenHashMap<>();
+
+        for (long pos : removed) {
+            if (!removeNode(pos)) {
+                // No check is needed here, because the caller already asserts that the Group contains the specified position.
+                // Thus, if this is not a node, then it is guaranteed to be a connector.
+                pairings.computeIfAbsent(connectors.remove(pos), id -> new LongOpenHashSet()).add(pos);
+            }
+        }
 
-            int pairing = connectors.remove(pos);
+        for (Int2ObjectMap.Entry<LongSet> e : pairings.int2ObjectEntrySet()) {
+            int pairing = e.getIntKey();
             Grid<C> grid = grids.get(pairing);
 
-            // No check is needed here, because the caller already asserts that the Group contains the specified position.
-            // Thus, if this is not a node, then it is guaranteed to be a connector.
-            grid.removeAt(
-                    pos,
-                    newGrid -> {
-                        int newId = CID.nextId();
-                        grids.put(newId, newGrid);
-
-                        for (long move : newGrid.getConnectors().keySet()) {
-                            connectors.put(move, newId);
-                        }
-                    }
-            );
+            grid.removeAll(e.getValue(), newGrid -> addGrid(CID.nextId(), newGrid));
 
             // Avoid leaving empty grids within the grid list.
             if (grid.countConnectors() == 0) {
@@ -319,6 +624,19 @@ public class Group<T, C extends IConnectable, N> implements INode {
             }
         }
 
+        if (controller != null) {
+            controller.markRemoved(removed);
+        }
+    }
+
+    /**
+     * Removes entries that split the group, moving each fragment but the largest into a new group.
+     *
+     * @param removed The removed positions.
+     * @param roots   The neighbors of the removed positions.
+     * @param split   A consumer for the resulting fresh graphs from the split operation.
+     */
+    private void divide(LongSet removed, Consumer<LongSet> roots, Consumer<Group<T, C, N>> split) {
         // If none of the fast routes work, we need to due a full group-traversal to figure out how the graph will be split.
         // The algorithm works by "coloring" each fragment of the group based on what it is connected to, and then from this,
         // splitting each colored portion into its own separate group.
@@ -326,29 +644,29 @@ public class Group<T, C extends IConnectable, N> implements INode {
         // For optimization purposes, the largest colored fragment remains resident within its original group.
         // Note: we don't remove the node yet, but instead just tell the Searcher to exclude it.
         // This is so that we can handle the grid splits ourselves at the end.
+        version++;
         List<LongSet> colored = new ObjectArrayList<>();
 
-        int bestColor = divider.divide(
-                removed -> removed.add(pos),
-                roots -> {
-                    for (Direction direction : Graph.DIRECTIONS) {
-                        long side = Pos.offset(pos, direction);
-
-                        if (linked(pos, direction, side)) {
-                            roots.add(side);
-                        }
-                    }
-                },
-                colored::add
-        );
+        int bestColor = divider.divide(set -> set.addAll(removed), roots, colored::add);
 
         List<Grid<C>> splitGrids = null;
         LongSet excluded = new LongOpenHashSet();
+        Int2ObjectMap<LongSet> centers = new Int2ObjectLinkedOpenHashMap<>();
 
-        int centerGridId = connectors.get(pos);
-        if (centerGridId != CID.INVALID) {
-            Grid<C> centerGrid = grids.remove(centerGridId);
-            splitGrids = new ObjectArrayList<>();
+        for (long pos : removed) {
+            int centerGridId = connectors.get(pos);
+            if (centerGridId != CID.INVALID) {
+                centers.computeIfAbsent(centerGridId, id -> new LongOpenHashSet()).add(pos);
+            } else {
+                removeNode(pos);
+            }
+        }
+
+        for (Int2ObjectMap.Entry<LongSet> e : centers.int2ObjectEntrySet()) {
+            Grid<C> centerGrid = grids.remove(e.getIntKey());
+            if (splitGrids == null) {
+                splitGrids = new ObjectArrayList<>();
+            }
 
             for (long move : centerGrid.getConnectors().keySet()) {
                 connectors.remove(move);
@@ -356,11 +674,8 @@ public class Group<T, C extends IConnectable, N> implements INode {
                 excluded.add(move);
             }
 
-            centerGrid.removeAt(pos, splitGrids::add);
+            centerGrid.removeAll(e.getValue(), splitGrids::add);
             splitGrids.add(centerGrid);
-
-        } else {
-            removeNode(pos);
         }
 
         for (int i = 0; i < colored.size(); i++) {
@@ -385,9 +700,11 @@ public class Group<T, C extends IConnectable, N> implements INode {
                     }
 
                     Grid<C> grid = grids.get(id);
-                    if (grid.contains(pos)) {
-                        // This should be unreachable
-                        throw new IllegalStateException("Group::remove: Searchable grid contains the removed position, the grid should have been removed already?!?");
+                    for (long pos : removed) {
+                        if (grid.contains(pos)) {
+                            // This should be unreachable
+                            throw new IllegalStateException("Group::remove: Searchable grid contains the removed position, the grid should have been removed already?!?");
+                        }
                     }
 
                     // Move grid to new group
@@ -403,7 +720,7 @@ public class Group<T, C extends IConnectable, N> implements INode {
                 newGroup = this;
             }
 
-            // Add the fragments of the center grid, if present, to each group
+            // Add the fragments of the center grids, if present, to each group
             if (splitGrids != null) {
                 Iterator<Grid<C>> it = splitGrids.iterator();
 
@@ -422,17 +739,16 @@ public class Group<T, C extends IConnectable, N> implements INode {
 
             if (i != bestColor) {
                 if (controller != null) {
-                    newGroup.controller = controller.clone(newGroup);
+                    newGroup.controller = controller.clone(newGroup, removed);
                 }
                 split.accept(newGroup);
-            } else if (controller != null) {
-                try {
-                    controller.change();
-                } catch (Exception ex) {
-                    Tesseract.LOGGER.warn("Error updating controller : " + ex);
-                }
             }
         }
+
+        // The routes of the split groups are taken over first, this group keeps what is left.
+        if (controller != null) {
+            controller.markRemoved(removed);
+        }
     }
 
     /**
@@ -559,6 +875,8 @@ public class Group<T, C extends IConnectable, N> implements INode {
      * @param pos   The given position.
      */
     public void mergeWith(Group<T, C, N> other, long pos) {
+        version++;
+        index.invalidate();
         nodes.putAll(other.nodes);
         connectors.putAll(other.connectors);
 
@@ -603,6 +921,28 @@ public class Group<T, C extends IConnectable, N> implements INode {
         }
 
         grids.putAll(other.grids);
+
+        if (controller != null) {
+            if (other.controller != null) {
+                controller.mergeWith(other.controller);
+            } else {
+                controller.markChanged();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the articulation indexes of the group and its grids, if they went stale since the last call. The
+     * removals rebuild a stale index on their own, this only moves the rebuild ahead.
+     */
+    public void updateIndex() {
+        if (!index.isValid()) {
+            index.rebuild(LongIterators.concat(nodes.keySet().iterator(), connectors.keySet().iterator()));
+        }
+
+        for (Grid<C> grid : grids.values()) {
+            grid.updateIndex();
+        }
     }
 
     /**
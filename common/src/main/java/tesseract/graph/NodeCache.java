@@ -51,6 +51,21 @@ public class NodeCache<T> implements IConnectable {
     }
   }
 
+  private NodeCache(NodeCache<T> other) {
+    this.value = new EnumMap<>(other.value);
+    this.getter = other.getter;
+    this.pos = other.pos;
+    this.validator = other.validator;
+    this.callback = other.callback;
+  }
+
+  /**
+   * @return Creates a copy with the current sides, it is not affected by later updates of this cache.
+   */
+  public NodeCache<T> copy() {
+    return new NodeCache<>(this);
+  }
+
   public boolean connects(Direction side) {
     return value.get(side) != null;
   }
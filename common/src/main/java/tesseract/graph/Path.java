@@ -1,46 +1,45 @@
 package tesseract.graph;
 
-import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.AbstractLong2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
 import tesseract.api.IConnectable;
 import tesseract.util.Node;
 
-import java.util.Deque;
+import java.util.NoSuchElementException;
 
 /**
  * The Path is a class that should work with paths for grids.
  */
 public class Path<C extends IConnectable> {
 
+    private final PathTree<C> tree;
+    private final int leaf;
     private final Node origin;
     private final Node target;
-    private final Long2ObjectMap<C> full = new Long2ObjectLinkedOpenHashMap<>();
-    private final Long2ObjectMap<C> cross = new Long2ObjectLinkedOpenHashMap<>();
-
+    private final Long2ObjectMap<C> full;
+    private final Long2ObjectMap<C> cross;
+    private final LongSet passed;
 
     /**
      * Creates a path instance.
      *
-     * @param connectors The connectors array.
-     * @param path       The path queue.
+     * @param tree   The tree of the origin holding the path.
+     * @param origin The origin point.
+     * @param target The target point.
+     * @param leaf   The entry of the target in the tree.
      */
-    protected Path(Long2ObjectMap<Cache<C>> connectors, Deque<Node> path) {
-        origin = path.pollLast();
-        target = path.pollFirst();
-        Node node;
-        while (!path.isEmpty()) {
-            node = path.removeLast();
-            long pos = node.asLong();
-
-            Cache<C> cache = connectors.get(pos);
-            if (cache != null) {
-                C cable = cache.value();
-                full.put(pos, cable);
-                if (node.isCrossroad()) {
-                    cross.put(pos, cable);
-                }
-            }
-        }
+    protected Path(PathTree<C> tree, Node origin, Node target, int leaf) {
+        this.tree = tree;
+        this.leaf = leaf;
+        this.origin = origin;
+        this.target = target;
+        this.full = new View<>(tree, leaf, false);
+        this.cross = new View<>(tree, leaf, true);
+        this.passed = tree.getPassed(leaf);
     }
 
     /**
@@ -58,23 +57,126 @@ public class Path<C extends IConnectable> {
     }
 
     /**
-     * @return Gets the full connectors path.
+     * @return Gets the full connectors path, as an unmodifiable view in order from the origin.
      */
     public Long2ObjectMap<C> getFull() {
         return full;
     }
 
     /**
-     * @return Gets the crossroad connectors path.
+     * @return Gets the crossroad connectors path, as an unmodifiable view in order from the origin.
      */
     public Long2ObjectMap<C> getCross() {
         return cross;
     }
 
+    /**
+     * @return Gets the positions of the nodes the path passes through, excluding the origin and the target.
+     */
+    public LongSet getPassed() {
+        return passed;
+    }
+
+    /**
+     * @return Gets the tree of the origin holding the path.
+     */
+    public PathTree<C> getTree() {
+        return tree;
+    }
+
+    /**
+     * @return Gets the entry of the target in the tree.
+     */
+    public int getLeaf() {
+        return leaf;
+    }
+
+    /**
+     * @return Gets the entries of the connectors in the tree, in order from the origin.
+     */
+    public int[] getEntries() {
+        return tree.walk(leaf, false);
+    }
+
     /**
      * @return Checks that the path is empty.
      */
     public boolean isEmpty() {
         return (origin == null || target == null);
     }
-}
\ No newline at end of file
+
+    /**
+     * A view of the connectors of a path within the tree of its origin.
+     */
+    private static class View<C extends IConnectable> extends AbstractLong2ObjectMap<C> {
+
+        private final PathTree<C> tree;
+        private final int leaf;
+        private final boolean crossroads;
+        private final int size;
+
+        private View(PathTree<C> tree, int leaf, boolean crossroads) {
+            this.tree = tree;
+            this.leaf = leaf;
+            this.crossroads = crossroads;
+            this.size = crossroads ? tree.countCross(leaf) : tree.countFull(leaf);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(long key) {
+            for (int index : tree.walk(leaf, crossroads)) {
+                if (tree.getPosition(index) == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public C get(long key) {
+            for (int index : tree.walk(leaf, crossroads)) {
+                if (tree.getPosition(index) == key) {
+                    return tree.getValue(index);
+                }
+            }
+            return defRetValue;
+        }
+
+        @Override
+        public ObjectSet<Long2ObjectMap.Entry<C>> long2ObjectEntrySet() {
+            return new AbstractObjectSet<>() {
+                @Override
+                public ObjectIterator<Long2ObjectMap.Entry<C>> iterator() {
+                    int[] walked = size == 0 ? null : tree.walk(leaf, crossroads);
+                    return new ObjectIterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Long2ObjectMap.Entry<C> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = walked[next++];
+                            return new BasicEntry<>(tree.getPosition(index), tree.getValue(index));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package tesseract.graph;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import tesseract.api.IConnectable;
+import tesseract.graph.traverse.ChainIndex;
+import tesseract.util.Node;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * The PathTree is a class that stores the paths from a single origin as one tree of parent indices, which all of
+ * the paths share. A path is only a reference to the entry of its target, so each position is stored once per
+ * origin instead of once per path.
+ */
+public class PathTree<C extends IConnectable> {
+
+    private static final int ABSENT = -1;
+    private static final int ROOT = 0;
+    private static final byte CONNECTOR = 1;
+    private static final byte CROSSROAD = 2;
+
+    private final Long2ObjectMap<Cache<C>> connectors;
+    private final ChainIndex chains;
+    private Long2IntOpenHashMap indices = new Long2IntOpenHashMap();
+    private ObjectArrayList<Node> pending = new ObjectArrayList<>();
+    private long[] positions = new long[16];
+    private int[] parents = new int[16];
+    private Object[] values = new Object[16];
+    private byte[] flags = new byte[16];
+    // The chain each entry is a link of, or null if the tree was built without the chains.
+    private ChainIndex.Chain[] links;
+    // The number of connectors, crossroads and passed nodes from the origin up to and including each entry.
+    private int[] full = new int[16];
+    private int[] cross = new int[16];
+    private int[] passed = new int[16];
+    private int size;
+
+    /**
+     * Creates a tree instance.
+     *
+     * @param connectors The connectors array.
+     * @param origin     The position of the origin.
+     */
+    protected PathTree(Long2ObjectMap<Cache<C>> connectors, long origin) {
+        this(connectors, null, origin);
+    }
+
+    /**
+     * Creates a tree instance which knows the chains its connectors are links of.
+     *
+     * @param connectors The connectors array.
+     * @param chains     The valid chain index of the grid, or null to leave the chains out.
+     * @param origin     The position of the origin.
+     */
+    protected PathTree(Long2ObjectMap<Cache<C>> connectors, ChainIndex chains, long origin) {
+        this.connectors = connectors;
+        this.chains = chains;
+        this.links = chains != null ? new ChainIndex.Chain[16] : null;
+        indices.defaultReturnValue(ABSENT);
+        indices.put(origin, ROOT);
+        positions[ROOT] = origin;
+        parents[ROOT] = ABSENT;
+        size = 1;
+    }
+
+    /**
+     * Adds a path to the tree. The paths of a tree have to agree on the route from the origin to every position they
+     * share, as the paths of a shortest-path tree do, so a path is only walked until it meets an added one. The new
+     * entries are appended from the origin side, so the parent of an entry always comes before it.
+     *
+     * @param path The path queue, starting at the target and ending at the origin.
+     * @return Create a path instance referring to the tree.
+     */
+    protected Path<C> add(Deque<Node> path) {
+        Node origin = path.peekLast();
+        Node target = path.peekFirst();
+        if (origin == null || target == null || origin == target) {
+            return new Path<>(this, origin, origin == target ? null : target, ROOT);
+        }
+
+        int parent = ROOT;
+        Iterator<Node> it = path.iterator();
+        while (it.hasNext()) {
+            Node node = it.next();
+            if (!it.hasNext()) {
+                // The origin is the root.
+                break;
+            }
+
+            int index = indices.get(node.asLong());
+            if (index != ABSENT) {
+                parent = index;
+                break;
+            }
+            pending.add(node);
+        }
+
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            parent = append(pending.get(i), parent);
+        }
+        pending.clear();
+
+        return new Path<>(this, origin, target, parent);
+    }
+
+    /**
+     * Drops the state only needed while paths are added, once the tree is complete.
+     */
+    protected void trim() {
+        indices = null;
+        pending = null;
+        positions = Arrays.copyOf(positions, size);
+        parents = Arrays.copyOf(parents, size);
+        values = Arrays.copyOf(values, size);
+        flags = Arrays.copyOf(flags, size);
+        if (links != null) {
+            links = Arrays.copyOf(links, size);
+        }
+        full = Arrays.copyOf(full, size);
+        cross = Arrays.copyOf(cross, size);
+        passed = Arrays.copyOf(passed, size);
+    }
+
+    /**
+     * @param node   The path point.
+     * @param parent The index of the entry towards the origin.
+     * @return Gets the index of the new entry.
+     */
+    private int append(Node node, int parent) {
+        int index = size++;
+        if (positions.length < size) {
+            int length = positions.length * 2;
+            positions = Arrays.copyOf(positions, length);
+            parents = Arrays.copyOf(parents, length);
+            values = Arrays.copyOf(values, length);
+            flags = Arrays.copyOf(flags, length);
+            if (links != null) {
+                links = Arrays.copyOf(links, length);
+            }
+            full = Arrays.copyOf(full, length);
+            cross = Arrays.copyOf(cross, length);
+            passed = Arrays.copyOf(passed, length);
+        }
+
+        long pos = node.asLong();
+        Cache<C> cache = connectors.get(pos);
+        positions[index] = pos;
+        values[index] = cache != null ? cache.value() : null;
+        flags[index] = (byte) (cache == null ? 0 : node.isCrossroad() ? CONNECTOR | CROSSROAD : CONNECTOR);
+        parents[index] = parent;
+        if (links != null && cache != null) {
+            links[index] = chains.getChainAt(pos);
+        }
+        full[index] = full[parent] + (cache != null ? 1 : 0);
+        cross[index] = cross[parent] + ((flags[index] & CROSSROAD) != 0 ? 1 : 0);
+        passed[index] = passed[parent] + (cache == null ? 1 : 0);
+        indices.put(pos, index);
+        return index;
+    }
+
+    /**
+     * @param leaf The entry of the target.
+     * @return Gets the number of connectors between the origin and the target.
+     */
+    int countFull(int leaf) {
+        return leaf == ROOT ? 0 : full[parents[leaf]];
+    }
+
+    /**
+     * @param leaf The entry of the target.
+     * @return Gets the number of crossroad connectors between the origin and the target.
+     */
+    int countCross(int leaf) {
+        return leaf == ROOT ? 0 : cross[parents[leaf]];
+    }
+
+    /**
+     * @param leaf The entry of the target.
+     * @return Gets the positions of the nodes between the origin and the target.
+     */
+    LongSet getPassed(int leaf) {
+        if (leaf == ROOT || passed[parents[leaf]] == 0) {
+            return LongSets.EMPTY_SET;
+        }
+
+        LongSet set = new LongOpenHashSet();
+        for (int i = parents[leaf]; i != ROOT; i = parents[i]) {
+            if ((flags[i] & CONNECTOR) == 0) {
+                set.add(positions[i]);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Gets the entries between the origin and the target, in order from the origin.
+     *
+     * @param leaf       The entry of the target.
+     * @param crossroads True to only get the crossroad connectors, false to get all connectors.
+     * @return The indices of the entries.
+     */
+    int[] walk(int leaf, boolean crossroads) {
+        byte mask = crossroads ? CROSSROAD : CONNECTOR;
+        int[] walked = new int[crossroads ? countCross(leaf) : countFull(leaf)];
+        int n = walked.length;
+        for (int i = leaf == ROOT ? ROOT : parents[leaf]; n > 0; i = parents[i]) {
+            if ((flags[i] & mask) != 0) {
+                walked[--n] = i;
+            }
+        }
+        return walked;
+    }
+
+    /**
+     * Gets the deepest entry both entries descend from, which may be one of them.
+     *
+     * @param a The index of an entry.
+     * @param b The index of another entry.
+     * @return The index of the common entry.
+     */
+    public int getCommon(int a, int b) {
+        while (a != b) {
+            // A parent always comes before its children, so the later entry can not be the common one.
+            if (a > b) {
+                a = parents[a];
+            } else {
+                b = parents[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * @return Gets the number of entries, the origin included.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index The index of the entry.
+     * @return Gets the index of the parent entry, towards the origin.
+     */
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    /**
+     * @param index The index of the entry.
+     * @return Checks that the entry is a connector.
+     */
+    public boolean isConnector(int index) {
+        return (flags[index] & CONNECTOR) != 0;
+    }
+
+    /**
+     * @param index The index of the entry.
+     * @return Checks that the entry is a crossroad connector.
+     */
+    public boolean isCrossroad(int index) {
+        return (flags[index] & CROSSROAD) != 0;
+    }
+
+    /**
+     * @param index The index of the entry.
+     * @return Gets the position of the entry.
+     */
+    public long getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * @param index The index of the entry.
+     * @return Gets the connector of the entry, or null if the entry is a node.
+     */
+    @SuppressWarnings("unchecked")
+    public C getValue(int index) {
+        return (C) values[index];
+    }
+
+    /**
+     * @param index The index of the entry.
+     * @return Gets the chain the entry is a link of, or null if it is not a link or the tree was built without the
+     * chains.
+     */
+    public ChainIndex.Chain getChain(int index) {
+        return links != null ? links[index] : null;
+    }
+}
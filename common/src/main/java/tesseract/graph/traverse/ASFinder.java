@@ -1,6 +1,6 @@
 package tesseract.graph.traverse;
 
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import net.minecraft.core.Direction;
 import tesseract.graph.Graph;
 import tesseract.graph.INode;
@@ -8,19 +8,41 @@ import tesseract.util.Node;
 import tesseract.util.Pos;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Deque;
-import java.util.Set;
 
 /**
  * A Star Algorithm implementation for converting a graph – consisting of the grid – into a route through the grid.
+ * <p>
+ * Every visited position is given a slot index, and the search state of each slot lives in parallel primitive arrays.
+ * The open list is an indexed binary heap of slots, so both picking the lowest function and updating an open position
+ * are logarithmic. The arrays are kept between operations, so a traverse only allocates the returned path.
+ * </p>
+ * <p>
+ * Due to the above behavior, it is not safe to use ASFinder from multiple threads.
+ * </p>
  */
 public class ASFinder {
 
-    private Deque<Node> path;
+    private static final int CLOSED = -1;
+    private static final byte ROOT = -1;
+
     private final INode container;
-    private final Deque<Node> open = new ArrayDeque<>();
-    private final Set<Node> closed = new ObjectOpenHashSet<>();
+    private final Long2IntOpenHashMap slots = new Long2IntOpenHashMap();
+
+    // Slot data.
+    private long[] positions = new long[16];
+    private int[] costs = new int[16];
+    private int[] functions = new int[16];
+    private int[] parents = new int[16];
+    private byte[] directions = new byte[16];
+    private int[] heapIndex = new int[16];
+    private int size;
+
+    // Open list, holds slots.
+    private int[] heap = new int[16];
+    private int heapSize;
 
     /**
      * Creates a reusable AStarPathfinder instance that will search the provided container.
@@ -29,6 +51,7 @@ public class ASFinder {
      */
     public ASFinder(INode container) {
         this.container = container;
+        slots.defaultReturnValue(-1);
     }
 
     /**
@@ -39,7 +62,7 @@ public class ASFinder {
      * @return An set of the points calculated by the A Star algorithm.
      */
     public Deque<Node> traverse(long origin, long target) {
-        if (!closed.isEmpty() || !open.isEmpty()) {
+        if (size != 0 || heapSize != 0) {
             throw new ConcurrentModificationException("Attempted to run concurrent search operations on the same ASFinder instance");
         }
 
@@ -47,54 +70,49 @@ public class ASFinder {
             throw new IllegalStateException("ASFinder::traverse: Attempted to run traverse operation with invalid positions");
         }
 
-        path = new ArrayDeque<>();
+        Deque<Node> path = new ArrayDeque<>();
 
         try {
-            Node start = new Node(origin, true);
-            Node end = new Node(target, false);
+            int x = Pos.unpackX(target), y = Pos.unpackY(target), z = Pos.unpackZ(target);
 
-            open.add(start);
+            push(open(origin, 0, heuristic(origin, x, y, z), -1, ROOT));
 
-            while (!open.isEmpty()) {
-                Node current = getLowestF();
+            while (heapSize > 0) {
+                int current = pop();
+                long pos = positions[current];
 
-                if (current.equals(end)) {
-                    retracePath(current);
+                if (pos == target) {
+                    retracePath(path, current);
                     break;
                 }
 
-                open.remove(current);
-                closed.add(current);
+                int score = costs[current] + 1;
 
-                for (Node n : getNeighboringNodes(current, origin, target)) {
-                    if (n == null) {
-                        break;
-                    }
-                    if (closed.contains(n)) {
+                for (Direction direction : Graph.DIRECTIONS) {
+                    long side = Pos.offset(pos, direction);
+                    if (!container.contains(side) || !container.connects(side, direction.getOpposite())) {
                         continue;
                     }
 
-                    int score = current.getCost() + current.distanceTo(n);
-
-                    if (open.contains(n)) {
-                        if (score < n.getCost()) {
-                            n.setCost(score);
-                            n.setParent(current);
-                        }
-                    } else {
-                        n.setCost(score);
-                        n.setParent(current);
-                        open.add(n);
-                    }
+                    byte toParent = (byte) direction.getOpposite().get3DDataValue();
+                    int slot = slots.get(side);
 
-                    n.setHeuristic(n.heuristic(end));
-                    n.setFunction(n.getCost() + n.getHeuristic());
+                    if (slot == -1) {
+                        push(open(side, score, score + heuristic(side, x, y, z), current, toParent));
+                    } else if (heapIndex[slot] != CLOSED && score < costs[slot]) {
+                        functions[slot] += score - costs[slot];
+                        costs[slot] = score;
+                        parents[slot] = current;
+                        directions[slot] = toParent;
+                        siftUp(heapIndex[slot]);
+                    }
                 }
             }
         } finally {
             // Clean up the open/closed sets
-            closed.clear();
-            open.clear();
+            slots.clear();
+            size = 0;
+            heapSize = 0;
         }
 
         return path;
@@ -103,33 +121,39 @@ public class ASFinder {
     /**
      * Adds all nodes to the path set.
      *
-     * @param current The current node.
+     * @param path The path set.
+     * @param slot The slot of the target.
      */
-    public void retracePath(Node current) {
-        Node temp = current;
-        temp.setCrossroad(true); // Consider tail as a part of the crossroad
-        path.add(temp);
-
-        while ((temp = current.getParent()) != null) {
-            temp.setCrossroad(temp.isValid() || retraceNode(temp));
-            path.add(temp);
-            current = temp;
+    private void retracePath(Deque<Node> path, int slot) {
+        Node node = new Node(positions[slot], Graph.DIRECTIONS[directions[slot]]);
+        node.setCrossroad(true); // Consider tail as a part of the crossroad
+        path.add(node);
+
+        while ((slot = parents[slot]) != -1) {
+            if (directions[slot] == ROOT) {
+                node = new Node(positions[slot], true);
+                node.setCrossroad(true);
+            } else {
+                node = new Node(positions[slot], Graph.DIRECTIONS[directions[slot]]);
+                node.setCrossroad(retraceNode(positions[slot]));
+            }
+            path.add(node);
         }
     }
 
     /**
-     * Validates the crossroads state of the node.
+     * Validates the crossroads state of the position.
      *
-     * @param current The current node.
+     * @param pos The position to check.
      * @return True or false.
      */
-    public boolean retraceNode(Node current) {
+    private boolean retraceNode(long pos) {
         int connections = 0;
 
         for (Direction direction : Graph.DIRECTIONS) {
-            long pos = current.offset(direction).asLong();
+            long side = Pos.offset(pos, direction);
 
-            if (container.connects(pos, direction.getOpposite())) {
+            if (container.connects(side, direction.getOpposite())) {
                 connections++;
             }
         }
@@ -138,39 +162,102 @@ public class ASFinder {
     }
 
     /**
-     * Returns a node with the lowest function which exists the open list.
+     * @return Calculates the manhattan distance between the position and the target coordinates.
+     */
+    private static int heuristic(long pos, int x, int y, int z) {
+        return Math.abs(Pos.unpackX(pos) - x) + Math.abs(Pos.unpackY(pos) - y) + Math.abs(Pos.unpackZ(pos) - z);
+    }
+
+    /**
+     * Allocates a slot for the position.
      *
-     * @return The found node.
+     * @return The slot index.
      */
-    private Node getLowestF() {
-        Node lowest = open.peek();
-        for (Node n : open) {
-            if (n.getFunction() < lowest.getFunction()) {
-                lowest = n;
-            }
+    private int open(long pos, int cost, int function, int parent, byte direction) {
+        if (size == positions.length) {
+            int capacity = size << 1;
+            positions = Arrays.copyOf(positions, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+            functions = Arrays.copyOf(functions, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            directions = Arrays.copyOf(directions, capacity);
+            heapIndex = Arrays.copyOf(heapIndex, capacity);
+            heap = Arrays.copyOf(heap, capacity);
         }
-        assert lowest != null;
-        return lowest;
+
+        int slot = size++;
+        positions[slot] = pos;
+        costs[slot] = cost;
+        functions[slot] = function;
+        parents[slot] = parent;
+        directions[slot] = direction;
+        slots.put(pos, slot);
+        return slot;
     }
 
     /**
-     * Lookups for a set of neighbors of a given node.
-     *
-     * @param current The given node.
-     * @param end     the target node.
-     * @return The list of nodes.
+     * Ordering of the open list, the lowest function first. On ties the deeper slot wins, which keeps the search
+     * heading towards the target instead of widening.
      */
-    public Node[] getNeighboringNodes(Node current, long start, long end) {
-        Node[] neighbors = new Node[6];
-        int i = 0;
+    private boolean lower(int a, int b) {
+        return functions[a] < functions[b] || (functions[a] == functions[b] && costs[a] > costs[b]);
+    }
 
-        for (Direction direction : Graph.DIRECTIONS) {
-            long side = Pos.offset(current.asLong(), direction);
-            if (container.contains(side) && container.connects(side, direction.getOpposite())) {
-                neighbors[i++] = new Node(side, direction.getOpposite());
+    private void push(int slot) {
+        heap[heapSize] = slot;
+        heapIndex[slot] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    /**
+     * Removes the slot with the lowest function from the open list and marks it as closed.
+     */
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = CLOSED;
+
+        if (--heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int slot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int other = heap[parent];
+            if (!lower(slot, other)) {
+                break;
             }
+            heap[i] = other;
+            heapIndex[other] = i;
+            i = parent;
         }
+        heap[i] = slot;
+        heapIndex[slot] = i;
+    }
 
-        return neighbors;
+    private void siftDown(int i) {
+        int slot = heap[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            int right = child + 1;
+            if (right < heapSize && lower(heap[right], heap[child])) {
+                child = right;
+            }
+            int other = heap[child];
+            if (!lower(other, slot)) {
+                break;
+            }
+            heap[i] = other;
+            heapIndex[other] = i;
+            i = child;
+        }
+        heap[i] = slot;
+        heapIndex[slot] = i;
     }
-}
\ No newline at end of file
+}
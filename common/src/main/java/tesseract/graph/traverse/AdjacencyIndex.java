@@ -0,0 +1,219 @@
+package tesseract.graph.traverse;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.Direction;
+import tesseract.graph.Cache;
+import tesseract.graph.Graph;
+import tesseract.graph.INode;
+import tesseract.util.Pos;
+
+import java.util.Arrays;
+
+/**
+ * Dense adjacency index of a node container, used to walk it through flat int arrays instead of probing hash maps.
+ * <p>
+ * Every indexed position gets a dense id, and the ids of its neighbors are kept in a row of six slots, one per
+ * direction. As a position never has more than six neighbors, the rows need no offsets, and a single position can be
+ * added or removed in place: a removed id is filled by moving the last one into it. The connectivity of connectors
+ * is kept with the rows, while nodes are asked for theirs, as it may change in place.
+ * </p>
+ * <p>
+ * A new index is stale, and the owner is expected to build it lazily before the first search, as most containers
+ * made by a split or a copy are never searched before they change again. Once built, the owner keeps it up to date,
+ * and searches only read it, so several of them can share it.
+ * </p>
+ */
+public class AdjacencyIndex {
+
+    public static final int ABSENT = -1;
+    private static final int SIDES = 6;
+
+    private final INode container;
+    private final Long2IntOpenHashMap ids = new Long2IntOpenHashMap();
+    private long[] positions = new long[16];
+    private int[] neighbors = new int[16 * SIDES];
+    private byte[] connectivity = new byte[16];
+    private boolean[] nodes = new boolean[16];
+    private int size;
+    private boolean valid;
+
+    /**
+     * Creates a stale index for the provided container.
+     *
+     * @param container The container to index.
+     */
+    public AdjacencyIndex(INode container) {
+        this.container = container;
+        ids.defaultReturnValue(ABSENT);
+    }
+
+    /**
+     * @return True if the index can be walked, false if it needs to be rebuilt.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Marks the index as stale.
+     */
+    public void invalidate() {
+        valid = false;
+        ids.clear();
+        size = 0;
+    }
+
+    /**
+     * @return Gets the number of indexed positions, ie. the bound of the ids.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param pos The position.
+     * @return Gets the id of the position, or {@link #ABSENT} if it is not indexed.
+     */
+    public int getId(long pos) {
+        return ids.get(pos);
+    }
+
+    /**
+     * @param id The id.
+     * @return Gets the position of the id.
+     */
+    public long getPosition(int id) {
+        return positions[id];
+    }
+
+    /**
+     * @param id        The id.
+     * @param direction The direction index.
+     * @return Gets the id of the neighbor in the direction, or {@link #ABSENT} if it is not indexed.
+     */
+    public int getNeighbor(int id, int direction) {
+        return neighbors[id * SIDES + direction];
+    }
+
+    /**
+     * @param id        The id.
+     * @param direction The direction.
+     * @return True if the position of the id connects towards the direction, as {@link INode#connects(long, Direction)}.
+     */
+    public boolean connects(int id, Direction direction) {
+        if (nodes[id]) {
+            return container.connects(positions[id], direction);
+        }
+        return (connectivity[id] & (1 << direction.get3DDataValue())) != 0;
+    }
+
+    /**
+     * Rebuilds the index from scratch.
+     *
+     * @param connectors The connectors of the container.
+     * @param nodes      The positions of the nodes of the container.
+     */
+    public void rebuild(Long2ObjectMap<? extends Cache<?>> connectors, LongSet nodes) {
+        invalidate();
+        valid = true;
+
+        for (Long2ObjectMap.Entry<? extends Cache<?>> e : connectors.long2ObjectEntrySet()) {
+            onAdd(e.getLongKey(), e.getValue().connectivity(), false);
+        }
+        for (long pos : nodes) {
+            onAdd(pos, (byte) 0, true);
+        }
+    }
+
+    /**
+     * Updates a valid index for an added position. Replacing a position only updates its connectivity.
+     *
+     * @param pos          The added position.
+     * @param connectivity The connectivity of a connector.
+     * @param node         True if the position is a node.
+     */
+    public void onAdd(long pos, byte connectivity, boolean node) {
+        if (!valid) {
+            return;
+        }
+
+        int id = ids.get(pos);
+        if (id == ABSENT) {
+            id = size++;
+            grow(size);
+            ids.put(pos, id);
+            positions[id] = pos;
+
+            for (Direction direction : Graph.DIRECTIONS) {
+                int side = ids.get(Pos.offset(pos, direction));
+                neighbors[id * SIDES + direction.get3DDataValue()] = side;
+                if (side != ABSENT) {
+                    neighbors[side * SIDES + direction.getOpposite().get3DDataValue()] = id;
+                }
+            }
+        }
+
+        this.connectivity[id] = connectivity;
+        this.nodes[id] = node;
+    }
+
+    /**
+     * Updates a valid index for a removed position, moving the last id into the freed one.
+     *
+     * @param pos The removed position.
+     */
+    public void onRemove(long pos) {
+        if (!valid) {
+            return;
+        }
+
+        int id = ids.remove(pos);
+        if (id == ABSENT) {
+            return;
+        }
+
+        link(id, ABSENT);
+
+        int last = --size;
+        if (id != last) {
+            positions[id] = positions[last];
+            connectivity[id] = connectivity[last];
+            nodes[id] = nodes[last];
+            System.arraycopy(neighbors, last * SIDES, neighbors, id * SIDES, SIDES);
+            ids.put(positions[id], id);
+            link(id, id);
+        }
+    }
+
+    /**
+     * Points the neighbors of the id back to the given id.
+     *
+     * @param id   The id whose row is walked.
+     * @param link The id to point back to, or {@link #ABSENT} to unlink.
+     */
+    private void link(int id, int link) {
+        for (int i = 0; i < SIDES; i++) {
+            int side = neighbors[id * SIDES + i];
+            if (side != ABSENT) {
+                neighbors[side * SIDES + Graph.DIRECTIONS[i].getOpposite().get3DDataValue()] = link;
+            }
+        }
+    }
+
+    /**
+     * @param capacity The required number of ids.
+     */
+    private void grow(int capacity) {
+        if (positions.length >= capacity) {
+            return;
+        }
+
+        int length = Math.max(capacity, positions.length * 2);
+        positions = Arrays.copyOf(positions, length);
+        neighbors = Arrays.copyOf(neighbors, length * SIDES);
+        connectivity = Arrays.copyOf(connectivity, length);
+        nodes = Arrays.copyOf(nodes, length);
+    }
+}
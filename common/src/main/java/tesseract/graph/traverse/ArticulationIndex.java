@@ -0,0 +1,298 @@
+package tesseract.graph.traverse;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.Direction;
+import tesseract.graph.Graph;
+import tesseract.graph.INode;
+import tesseract.util.Pos;
+
+/**
+ * Articulation point index of a node container, used to tell whether removing a position can split the container.
+ * <p>
+ * The index is built with an iterative Tarjan depth first search over the indexed positions, which also records the
+ * biconnected blocks. Once built, additions keep it usable by conservatively marking the added position and its
+ * neighbors, so the marked set is always a superset of the true articulation points. Removing a position which is
+ * not marked can only create articulation points within its own block, so only that block is searched again. Other
+ * removals, merges and additions joining blocks make the index stale, and the owner is expected to rebuild it lazily,
+ * once a removal needs it.
+ * </p>
+ * <p>
+ * As with the other traversal classes, it is not safe to use ArticulationIndex from multiple threads.
+ * </p>
+ */
+public class ArticulationIndex {
+
+    private static final int ABSENT = -1;
+    private static final int UNVISITED = 0;
+
+    private final INode container;
+    private final LongOpenHashSet articulations = new LongOpenHashSet();
+    private boolean valid;
+    private boolean joined; // an addition linked several positions, which may have joined blocks
+
+    // The positions of every block, and the block of every position which is not marked.
+    private final Int2ObjectOpenHashMap<LongArrayList> blocks = new Int2ObjectOpenHashMap<>();
+    private final Long2IntOpenHashMap blockOf = new Long2IntOpenHashMap();
+    private int nextBlock;
+
+    // Rebuild state, indexed by discovery time.
+    private final Long2IntOpenHashMap discovery = new Long2IntOpenHashMap();
+    private long[] positions = new long[16];
+    private int[] low = new int[16];
+    private int[] parents = new int[16];
+    private byte[] next = new byte[16];
+    private int[] stack = new int[16];
+    private int[] trail = new int[16];
+
+    /**
+     * Creates a stale index for the provided container.
+     *
+     * @param container The container to index.
+     */
+    public ArticulationIndex(INode container) {
+        this.container = container;
+        discovery.defaultReturnValue(ABSENT);
+        blockOf.defaultReturnValue(ABSENT);
+    }
+
+    /**
+     * @return True if the index can answer {@link #isArticulation(long)}, false if it needs to be rebuilt.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Marks the index as stale.
+     */
+    public void invalidate() {
+        valid = false;
+        joined = false;
+        articulations.clear();
+        blocks.clear();
+        blockOf.clear();
+    }
+
+    /**
+     * Updates a valid index for an added position. Adding a position can only turn the position itself or one of
+     * its neighbors into an articulation point, so those are marked. A position linked to a single neighbor forms a
+     * new block with it, otherwise the blocks are no longer known.
+     *
+     * @param pos The added position, which has to be contained already.
+     */
+    public void onAdd(long pos) {
+        if (!valid) {
+            return;
+        }
+
+        int links = 0;
+        long linked = 0;
+        for (Direction direction : Graph.DIRECTIONS) {
+            long side = Pos.offset(pos, direction);
+
+            if (container.contains(side) && container.linked(pos, direction, side)) {
+                links++;
+                linked = side;
+            }
+        }
+
+        if (links <= 1) {
+            LongArrayList members = openBlock();
+            addMember(members, pos);
+            if (links == 1) {
+                articulations.add(linked);
+                members.add(linked);
+            }
+            return;
+        }
+
+        joined = true;
+        articulations.add(pos);
+        for (Direction direction : Graph.DIRECTIONS) {
+            long side = Pos.offset(pos, direction);
+
+            if (container.contains(side)) {
+                articulations.add(side);
+            }
+        }
+    }
+
+    /**
+     * Updates a valid index for a position removed without a split. A position which is not marked belongs to a
+     * single block, which is searched again without it. Otherwise the index is made stale.
+     *
+     * @param pos The removed position, which may still be contained.
+     */
+    public void onRemove(long pos) {
+        if (!valid) {
+            return;
+        }
+
+        int block = blockOf.remove(pos);
+        LongArrayList members = block == ABSENT ? null : blocks.remove(block);
+        if (members == null || joined || articulations.contains(pos)) {
+            invalidate();
+            return;
+        }
+
+        members.rem(pos);
+        search(members.iterator());
+    }
+
+    /**
+     * Tests a position against a valid index.
+     *
+     * @param pos The position to test.
+     * @return False if removing the position cannot split the indexed positions, true if it may.
+     */
+    public boolean isArticulation(long pos) {
+        return articulations.contains(pos);
+    }
+
+    /**
+     * Rebuilds the index. Only links between the provided positions are followed.
+     *
+     * @param indexed The positions to index.
+     */
+    public void rebuild(LongIterator indexed) {
+        invalidate();
+        search(indexed);
+        valid = true;
+    }
+
+    /**
+     * Marks the articulation points and records the blocks of the provided positions.
+     *
+     * @param indexed The positions to search.
+     */
+    private void search(LongIterator indexed) {
+        try {
+            while (indexed.hasNext()) {
+                discovery.put(indexed.nextLong(), UNVISITED);
+            }
+
+            int capacity = discovery.size() + 1;
+            if (positions.length < capacity) {
+                positions = new long[capacity];
+                low = new int[capacity];
+                parents = new int[capacity];
+                next = new byte[capacity];
+                stack = new int[capacity];
+                trail = new int[capacity];
+            }
+
+            int time = 0;
+
+            for (long root : discovery.keySet()) {
+                if (discovery.get(root) != UNVISITED) {
+                    continue;
+                }
+
+                int children = 0;
+                int top = 0;
+                // The visited positions whose block is not closed yet, in discovery order.
+                int depth = 0;
+
+                time = visit(root, 0, time);
+                stack[top++] = time;
+                trail[depth++] = time;
+
+                while (top > 0) {
+                    int id = stack[top - 1];
+
+                    if (next[id] < Graph.DIRECTIONS.length) {
+                        Direction direction = Graph.DIRECTIONS[next[id]++];
+                        long pos = positions[id];
+                        long side = Pos.offset(pos, direction);
+
+                        int other = discovery.get(side);
+                        if (other == ABSENT || !container.linked(pos, direction, side)) {
+                            continue;
+                        }
+
+                        if (other == UNVISITED) {
+                            time = visit(side, id, time);
+                            stack[top++] = time;
+                            trail[depth++] = time;
+                        } else if (other != parents[id]) {
+                            low[id] = Math.min(low[id], other);
+                        }
+                        continue;
+                    }
+
+                    top--;
+                    int parent = parents[id];
+                    if (parent == 0) {
+                        continue;
+                    }
+
+                    low[parent] = Math.min(low[parent], low[id]);
+
+                    if (low[id] >= parent) {
+                        // The parent cuts the subtree off, which closes the block of the subtree and the parent.
+                        if (parents[parent] != 0) {
+                            articulations.add(positions[parent]);
+                        }
+                        LongArrayList members = openBlock();
+                        int member;
+                        do {
+                            member = trail[--depth];
+                            addMember(members, positions[member]);
+                        } while (member != id);
+                        addMember(members, positions[parent]);
+                    }
+
+                    if (parents[parent] == 0) {
+                        children++;
+                    }
+                }
+
+                // The root of a search tree is an articulation point if it has more than one subtree.
+                if (children > 1) {
+                    articulations.add(root);
+                } else if (children == 0 && !articulations.contains(root)) {
+                    // A lone position is a block of its own, unless it is marked and so never searched again.
+                    addMember(openBlock(), root);
+                }
+            }
+        } finally {
+            discovery.clear();
+        }
+    }
+
+    /**
+     * @return Gets the positions of a new block.
+     */
+    private LongArrayList openBlock() {
+        LongArrayList members = new LongArrayList();
+        blocks.put(nextBlock++, members);
+        return members;
+    }
+
+    /**
+     * Adds a position to the last opened block.
+     */
+    private void addMember(LongArrayList members, long pos) {
+        members.add(pos);
+        blockOf.put(pos, nextBlock - 1);
+    }
+
+    /**
+     * Discovers a position.
+     *
+     * @return The discovery time of the position.
+     */
+    private int visit(long pos, int parent, int time) {
+        int id = time + 1;
+        discovery.put(pos, id);
+        positions[id] = pos;
+        low[id] = id;
+        parents[id] = parent;
+        next[id] = 0;
+        return id;
+    }
+}
@@ -0,0 +1,361 @@
+package tesseract.graph.traverse;
+
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.core.Direction;
+import tesseract.graph.Graph;
+import tesseract.graph.INode;
+import tesseract.util.Node;
+import tesseract.util.Pos;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Breadth-first shortest-path tree which walks the dense ids of an {@link AdjacencyIndex} instead of the positions of
+ * its container, keeping its state in flat arrays which are reused across searches. The paths are the same as the ones
+ * of a plain {@link BFTree}.
+ * <p>
+ * Given a {@link ChainIndex} as well, the search steps over each chain of the container at once, at the cost of its
+ * length. The steps are not even anymore, so the positions are visited in order of distance through buckets, and the
+ * links of a chain are only laid out again when a path through it is reported.
+ * </p>
+ * <p>
+ * As with the other traversal classes, it is not safe to use BFDenseTree from multiple threads.
+ * </p>
+ */
+public class BFDenseTree extends BFTree {
+
+    private static final int OUTSIDE = -2;
+
+    private final AdjacencyIndex adjacency;
+    private final ChainIndex chains;
+
+    // Indexed by the ids of the adjacency index. An entry only holds for the search of its stamp.
+    private final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+    private final ObjectArrayList<IntArrayList> buckets = new ObjectArrayList<>();
+    private int[] visits = new int[0];
+    private int[] marks = new int[0];
+    private int[] links = new int[0];
+    private byte[] steps = new byte[0];
+    private int[] distances = new int[0];
+    private ChainIndex.Chain[] through = new ChainIndex.Chain[0];
+    private int stamp;
+    private boolean contracted;
+    private boolean running;
+
+    /**
+     * Creates a reusable BFDenseTree instance that will search the provided container through its adjacency index,
+     * stepping over its chains.
+     *
+     * @param container The container to use for traverse operations.
+     * @param adjacency The adjacency index of the container, which has to be valid whenever a traverse is run.
+     * @param chains    The chains of the container, which have to be valid whenever a traverse is run, or null.
+     */
+    public BFDenseTree(INode container, AdjacencyIndex adjacency, ChainIndex chains) {
+        super(container);
+        this.adjacency = adjacency;
+        this.chains = chains;
+    }
+
+    /**
+     * Builds the shortest-path tree like {@link BFTree#traverse(long, LongCollection, Consumer)}, walking the ids of
+     * the adjacency index. The origin may lie outside of the index, in which case it has no id and is only the root.
+     *
+     * @param origin  The start position of the traverse operation.
+     * @param targets The positions to report paths for.
+     * @param path    The receiver of the paths.
+     */
+    @Override
+    public void traverse(long origin, LongCollection targets, Consumer<Deque<Node>> path) {
+        if (running) {
+            throw new ConcurrentModificationException("Attempted to run concurrent search operations on the same BFDenseTree instance");
+        }
+
+        running = true;
+        try {
+            prepare(adjacency.size());
+
+            int root = adjacency.getId(origin);
+            int remaining = 0;
+            for (long target : targets) {
+                int id = adjacency.getId(target);
+                if (id != AdjacencyIndex.ABSENT && id != root && marks[id] != stamp) {
+                    marks[id] = stamp;
+                    remaining++;
+                }
+            }
+            if (remaining == 0) {
+                return;
+            }
+
+            contracted = chains != null && chains.countChains() > 0;
+            if (contracted) {
+                searchChains(origin, root, remaining);
+            } else {
+                search(origin, root, remaining);
+            }
+
+            // Report in the order of the given targets, as a sequence of A Star traverses would.
+            for (long target : targets) {
+                int id = adjacency.getId(target);
+                if (id != AdjacencyIndex.ABSENT && id != root && visits[id] == stamp) {
+                    path.accept(retraceDense(origin, root, id));
+                }
+            }
+        } finally {
+            queue.clear();
+            for (IntArrayList bucket : buckets) {
+                bucket.clear();
+            }
+            running = false;
+        }
+    }
+
+    /**
+     * Starts a new search, growing the dense state to the size of the index. Entries of older searches are told
+     * apart by their stamp, so nothing is cleared but on the rare overflow of the stamp.
+     *
+     * @param size The number of ids.
+     */
+    private void prepare(int size) {
+        if (visits.length < size) {
+            int length = Math.max(size, visits.length * 2);
+            visits = Arrays.copyOf(visits, length);
+            marks = Arrays.copyOf(marks, length);
+            links = new int[length];
+            steps = new byte[length];
+            distances = new int[length];
+            through = new ChainIndex.Chain[length];
+        }
+
+        if (++stamp == 0) {
+            Arrays.fill(visits, 0);
+            Arrays.fill(marks, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * @param origin    The start position.
+     * @param current   The id to step from, or {@link #OUTSIDE} for an origin outside of the index.
+     * @param direction The direction index to step in.
+     * @return Gets the id of the neighbor, or {@link AdjacencyIndex#ABSENT}.
+     */
+    private int neighbor(long origin, int current, int direction) {
+        return current == OUTSIDE ? adjacency.getId(Pos.offset(origin, Graph.DIRECTIONS[direction])) : adjacency.getNeighbor(current, direction);
+    }
+
+    /**
+     * Searches the container breadth first until every target is reached.
+     *
+     * @param origin    The start position.
+     * @param root      The id of the start position, or {@link AdjacencyIndex#ABSENT}.
+     * @param remaining The number of targets.
+     */
+    private void search(long origin, int root, int remaining) {
+        int start = root == AdjacencyIndex.ABSENT ? OUTSIDE : root;
+        if (start != OUTSIDE) {
+            visits[start] = stamp;
+        }
+        queue.enqueue(start);
+
+        while (!queue.isEmpty() && remaining > 0) {
+            int current = queue.dequeueInt();
+
+            for (Direction direction : Graph.DIRECTIONS) {
+                int side = neighbor(origin, current, direction.get3DDataValue());
+
+                if (side == AdjacencyIndex.ABSENT || visits[side] == stamp) {
+                    continue;
+                }
+
+                if (adjacency.connects(side, direction.getOpposite())) {
+                    visits[side] = stamp;
+                    links[side] = current;
+                    steps[side] = (byte) direction.getOpposite().get3DDataValue();
+                    queue.enqueue(side);
+
+                    if (marks[side] == stamp) {
+                        remaining--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches the container in order of distance until every target is settled, passing each chain in one step.
+     * Links are never targets, as only connectors can be links, so the ends of the chains are all that is visited.
+     *
+     * @param origin    The start position.
+     * @param root      The id of the start position, or {@link AdjacencyIndex#ABSENT}.
+     * @param remaining The number of targets.
+     */
+    private void searchChains(long origin, int root, int remaining) {
+        int start = root == AdjacencyIndex.ABSENT ? OUTSIDE : root;
+        if (start != OUTSIDE) {
+            visits[start] = stamp;
+            distances[start] = 0;
+        }
+        bucket(0).add(start);
+
+        int depth = 0;
+        for (int distance = 0; distance <= depth && remaining > 0; distance++) {
+            IntArrayList bucket = buckets.get(distance);
+
+            for (int i = 0; i < bucket.size() && remaining > 0; i++) {
+                int current = bucket.getInt(i);
+
+                if (current != OUTSIDE) {
+                    // Skip positions which were reached by a shorter path after being queued.
+                    if (distances[current] != distance) {
+                        continue;
+                    }
+                    if (marks[current] == stamp) {
+                        remaining--;
+                    }
+                }
+
+                for (Direction direction : Graph.DIRECTIONS) {
+                    int side = neighbor(origin, current, direction.get3DDataValue());
+
+                    if (side == AdjacencyIndex.ABSENT || !adjacency.connects(side, direction.getOpposite())) {
+                        continue;
+                    }
+
+                    ChainIndex.Chain chain = chains.getChain(side);
+                    if (chain == null) {
+                        depth = Math.max(depth, relax(side, current, direction.getOpposite(), distance + 1, null));
+                        continue;
+                    }
+
+                    // The current position is one end of the chain, step to the other one.
+                    boolean forward = chain.getHeadId() == current;
+                    int end = forward ? chain.getTailId() : chain.getHeadId();
+                    if (end == current) {
+                        continue;
+                    }
+
+                    Direction towards = forward ? chain.getTailSide() : chain.getHeadSide();
+                    if (adjacency.connects(end, towards)) {
+                        depth = Math.max(depth, relax(end, current, towards, distance + chain.size() + 1, chain));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the position if the given path is shorter than the known one.
+     *
+     * @param id       The id of the reached position.
+     * @param parent   The id it was reached from.
+     * @param towards  The direction from the position to the previous step.
+     * @param distance The length of the path.
+     * @param chain    The chain passed between the parent and the position, or null if they are adjacent.
+     * @return The distance the position is queued at, or 0 if it is not.
+     */
+    private int relax(int id, int parent, Direction towards, int distance, ChainIndex.Chain chain) {
+        if (visits[id] == stamp && distances[id] <= distance) {
+            return 0;
+        }
+
+        visits[id] = stamp;
+        distances[id] = distance;
+        links[id] = parent;
+        steps[id] = (byte) towards.get3DDataValue();
+        through[id] = chain;
+        bucket(distance).add(id);
+        return distance;
+    }
+
+    /**
+     * @param distance The distance.
+     * @return Gets the bucket of the positions queued at the distance.
+     */
+    private IntArrayList bucket(int distance) {
+        while (buckets.size() <= distance) {
+            buckets.add(new IntArrayList());
+        }
+        return buckets.get(distance);
+    }
+
+    /**
+     * Walks the dense tree from the target back to the origin.
+     *
+     * @param origin The start position.
+     * @param root   The id of the start position, or {@link AdjacencyIndex#ABSENT}.
+     * @param target The id of the target.
+     * @return The set of path points, starting at the target and ending at the origin.
+     */
+    private Deque<Node> retraceDense(long origin, int root, int target) {
+        Deque<Node> path = new ArrayDeque<>();
+        int start = root == AdjacencyIndex.ABSENT ? OUTSIDE : root;
+
+        Node node = new Node(adjacency.getPosition(target), Graph.DIRECTIONS[steps[target]]);
+        node.setCrossroad(true); // Consider tail as a part of the crossroad
+        path.add(node);
+        retraceChain(path, target);
+
+        int current = links[target];
+        while (current != start) {
+            node = new Node(adjacency.getPosition(current), Graph.DIRECTIONS[steps[current]]);
+            node.setCrossroad(isCrossroad(current));
+            path.add(node);
+            retraceChain(path, current);
+            current = links[current];
+        }
+
+        node = new Node(origin, true);
+        node.setCrossroad(true);
+        path.add(node);
+        return path;
+    }
+
+    /**
+     * Adds the links of the chain the position was reached through, from the position back to its parent.
+     *
+     * @param path The path to add to.
+     * @param id   The id of the reached position.
+     */
+    private void retraceChain(Deque<Node> path, int id) {
+        ChainIndex.Chain chain = contracted ? through[id] : null;
+        if (chain == null) {
+            return;
+        }
+
+        int parent = links[id];
+        int size = chain.size();
+        boolean forward = chain.getHeadId() == parent;
+        for (int i = 0; i < size; i++) {
+            int index = forward ? size - 1 - i : i;
+            long previous = index == (forward ? 0 : size - 1) ? adjacency.getPosition(parent) : chain.get(forward ? index - 1 : index + 1);
+
+            Node node = new Node(chain.get(index), Pos.subToDir(previous, chain.get(index)));
+            node.setCrossroad(isCrossroad(chain.getId(index)));
+            path.add(node);
+        }
+    }
+
+    /**
+     * @param id The id of the position to check.
+     * @return Whether more than two neighbors connect towards the position.
+     */
+    private boolean isCrossroad(int id) {
+        int connections = 0;
+        for (Direction direction : Graph.DIRECTIONS) {
+            int side = adjacency.getNeighbor(id, direction.get3DDataValue());
+
+            if (side != AdjacencyIndex.ABSENT && adjacency.connects(side, direction.getOpposite())) {
+                connections++;
+            }
+        }
+        return connections > 2;
+    }
+}
@@ -1,10 +1,16 @@
 package tesseract.graph.traverse;
 
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
 import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.Direction;
+import tesseract.graph.Graph;
 import tesseract.graph.INode;
+import tesseract.util.Pos;
 
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.function.Consumer;
 
@@ -14,16 +20,27 @@ import java.util.function.Consumer;
  */
 public class BFDivider {
 
+    private final INode container;
     private final BFSearcher searcher;
     private final Long2IntOpenHashMap roots = new Long2IntOpenHashMap();
     private final LongLinkedOpenHashSet lookup = new LongLinkedOpenHashSet();
 
+    // Split detection state, one frontier per root and a union-find over the root colors.
+    private final LongOpenHashSet excluded = new LongOpenHashSet();
+    private LongArrayFIFOQueue[] frontiers = new LongArrayFIFOQueue[0];
+    private int[] unions = new int[0];
+    private int[] pending = new int[0];
+    // The non-empty frontiers, in a binary heap keyed by their sizes.
+    private int[] heap = new int[0];
+    private int heapSize;
+
     /**
      * Creates a reusable BFDivider instance that will devides the provided container.
      *
      * @param container The container to use for devides operations.
      */
     public BFDivider(INode container) {
+        this.container = container;
         searcher = new BFSearcher(container);
         roots.defaultReturnValue(Integer.MAX_VALUE);
     }
@@ -91,4 +108,157 @@ public class BFDivider {
 
         return bestColor;
     }
+
+    /**
+     * Tests whether removing the given positions would split the container, without coloring all of the fragments.
+     * <p>
+     * A breadth first frontier is grown from every root at once, always expanding the smallest one, which is kept on
+     * top of a heap so picking it does not scan every frontier. Frontiers that meet are joined, and the test ends as soon as all of them are joined or one joined set runs out of positions
+     * to visit. A removal that does not split the container therefore costs about as much as the smallest loop
+     * around the removed positions, instead of a flood of the whole container.
+     * </p>
+     *
+     * @param removed      Provides the removed positions, see {@link #divide(Consumer, Consumer, Consumer)}.
+     * @param rootProvider Provides the positions to grow the frontiers from, see {@link #divide(Consumer, Consumer, Consumer)}.
+     * @return True if the roots would end up in more than one fragment, false otherwise.
+     */
+    public boolean splits(Consumer<LongSet> removed, Consumer<LongSet> rootProvider) {
+        if (!lookup.isEmpty() || !roots.isEmpty() || !excluded.isEmpty()) {
+            throw new ConcurrentModificationException("Attempted to run concurrent divide operations on the same BFDivider instance");
+        }
+
+        removed.accept(excluded);
+        rootProvider.accept(lookup);
+
+        try {
+            lookup.removeAll(excluded);
+
+            int count = lookup.size();
+            if (count <= 1) {
+                return false;
+            }
+
+            if (frontiers.length < count) {
+                int length = frontiers.length;
+                frontiers = Arrays.copyOf(frontiers, count);
+                for (int i = length; i < count; i++) {
+                    frontiers[i] = new LongArrayFIFOQueue();
+                }
+                unions = new int[count];
+                pending = new int[count];
+                heap = new int[count];
+            }
+
+            int color = 0;
+            for (long root : lookup) {
+                roots.put(root, color);
+                frontiers[color].enqueue(root);
+                unions[color] = color;
+                pending[color] = 1;
+                // All of the frontiers have the same size, so they are in heap order as they are added.
+                heap[color] = color;
+                color++;
+            }
+            heapSize = count;
+
+            int sets = count;
+
+            while (true) {
+                if (heapSize == 0) {
+                    // Unreachable, a set with no pending positions is reported below.
+                    return true;
+                }
+
+                // Only the smallest frontier grows or shrinks during a step, so it stays on top until it is sifted.
+                int current = heap[0];
+                long pos = frontiers[current].dequeueLong();
+                int set = find(current);
+                pending[set]--;
+
+                for (Direction direction : Graph.DIRECTIONS) {
+                    long side = Pos.offset(pos, direction);
+
+                    if (excluded.contains(side) || !container.linked(pos, direction, side)) {
+                        continue;
+                    }
+
+                    int other = roots.get(side);
+
+                    if (other == roots.defaultReturnValue()) {
+                        roots.put(side, current);
+                        frontiers[current].enqueue(side);
+                        pending[set]++;
+                        continue;
+                    }
+
+                    int otherSet = find(other);
+                    if (otherSet != set) {
+                        // The frontiers met, join both sets.
+                        unions[otherSet] = set;
+                        pending[set] += pending[otherSet];
+
+                        if (--sets == 1) {
+                            return false;
+                        }
+                    }
+                }
+
+                if (pending[set] == 0) {
+                    // This set has been fully explored without reaching all of the roots.
+                    return true;
+                }
+
+                if (frontiers[current].isEmpty()) {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown();
+            }
+        } finally {
+            // Clean up the open/closed sets
+            for (LongArrayFIFOQueue frontier : frontiers) {
+                frontier.clear();
+            }
+            lookup.clear();
+            roots.clear();
+            excluded.clear();
+            heapSize = 0;
+        }
+    }
+
+    /**
+     * Restores the heap order after the size of the frontier on top changed.
+     */
+    private void siftDown() {
+        if (heapSize == 0) {
+            return;
+        }
+        int color = heap[0];
+        int size = frontiers[color].size();
+        int half = heapSize >>> 1;
+        int i = 0;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            int right = child + 1;
+            if (right < heapSize && frontiers[heap[right]].size() < frontiers[heap[child]].size()) {
+                child = right;
+            }
+            int other = heap[child];
+            if (frontiers[other].size() >= size) {
+                break;
+            }
+            heap[i] = other;
+            i = child;
+        }
+        heap[i] = color;
+    }
+
+    /**
+     * @return Finds the representative color of the given color.
+     */
+    private int find(int color) {
+        while (unions[color] != color) {
+            color = unions[color] = unions[unions[color]];
+        }
+        return color;
+    }
 }
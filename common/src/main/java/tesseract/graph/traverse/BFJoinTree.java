@@ -0,0 +1,261 @@
+package tesseract.graph.traverse;
+
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import net.minecraft.core.Direction;
+import tesseract.graph.Graph;
+import tesseract.graph.INode;
+import tesseract.util.Node;
+import tesseract.util.Pos;
+
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Breadth-first search of the paths a joining position adds to a container, ie. the paths between the parts of the
+ * container it links. The paths are emitted in the same format as {@link BFTree}.
+ * <p>
+ * As with the other traversal classes, it is not safe to use BFJoinTree from multiple threads.
+ * </p>
+ */
+public class BFJoinTree {
+
+    private final INode container;
+    private final LongArrayFIFOQueue open = new LongArrayFIFOQueue();
+    private final Long2BooleanOpenHashMap crossroads = new Long2BooleanOpenHashMap();
+
+    // The tree from the joining position, the tree towards it and the part of each position around it.
+    private final Long2LongOpenHashMap parents = new Long2LongOpenHashMap();
+    private final Long2ByteOpenHashMap directions = new Long2ByteOpenHashMap();
+    private final Long2LongOpenHashMap inParents = new Long2LongOpenHashMap();
+    private final Long2ByteOpenHashMap inDirections = new Long2ByteOpenHashMap();
+    private final Long2IntOpenHashMap parts = new Long2IntOpenHashMap();
+    private final LongArrayList route = new LongArrayList();
+    private final LongArrayList outside = new LongArrayList();
+
+    /**
+     * Creates a reusable BFJoinTree instance that will search the provided container.
+     *
+     * @param container The container to use for traverse operations.
+     */
+    public BFJoinTree(INode container) {
+        this.container = container;
+        parts.defaultReturnValue(-1);
+    }
+
+    /**
+     * Reports the shortest paths which run through a position joining parts of the container that were not linked
+     * before, ie. the paths between positions in different parts. Every such path is made of a path to the joining
+     * position and a path from it, so a tree towards and a tree from the joining position replace one traverse per
+     * origin.
+     *
+     * @param via     The joining position.
+     * @param targets The positions to report paths between, both as origins and as targets.
+     * @param origins Whether a position outside of the container is an origin as well, such as a node the
+     *                container does not link back to.
+     * @param path    The receiver of the paths, in the same format as {@link BFTree#traverse(long, LongCollection, Consumer)}.
+     * @return False if the parts are also linked around the joining position, in which case no path is reported.
+     */
+    public boolean traverse(long via, LongCollection targets, LongPredicate origins, Consumer<Deque<Node>> path) {
+        if (!parents.isEmpty() || !open.isEmpty()) {
+            throw new ConcurrentModificationException("Attempted to run concurrent search operations on the same BFJoinTree instance");
+        }
+
+        try {
+            // Color the parts around the joining position, a part reached from two of its neighbors means a loop.
+            // Links are followed in either direction here, so a part never leaks into another one unnoticed.
+            int color = 0;
+            parts.put(via, color++);
+            for (Direction direction : Graph.DIRECTIONS) {
+                long root = Pos.offset(via, direction);
+                if (!container.contains(root)) {
+                    continue;
+                }
+                if (parts.containsKey(root)) {
+                    return false;
+                }
+                flood(root, color++);
+            }
+
+            // The tree from the joining position, as the one of a plain BFTree.
+            parents.put(via, via);
+            directions.put(via, BFTree.ROOT);
+            open.enqueue(via);
+            while (!open.isEmpty()) {
+                long current = open.dequeueLong();
+                for (Direction direction : Graph.DIRECTIONS) {
+                    long side = Pos.offset(current, direction);
+                    if (!parents.containsKey(side) && container.contains(side) && container.connects(side, direction.getOpposite())) {
+                        parents.put(side, current);
+                        directions.put(side, (byte) direction.getOpposite().get3DDataValue());
+                        open.enqueue(side);
+                    }
+                }
+            }
+
+            // The tree towards the joining position, following the same links backwards.
+            inParents.put(via, via);
+            inDirections.put(via, BFTree.ROOT);
+            open.enqueue(via);
+            while (!open.isEmpty()) {
+                long current = open.dequeueLong();
+                for (Direction direction : Graph.DIRECTIONS) {
+                    long side = Pos.offset(current, direction);
+                    if (inParents.containsKey(side) || !container.connects(current, direction)) {
+                        continue;
+                    }
+                    if (container.contains(side)) {
+                        inParents.put(side, current);
+                        inDirections.put(side, (byte) direction.getOpposite().get3DDataValue());
+                        open.enqueue(side);
+                    } else if (origins.test(side)) {
+                        // An origin the container does not link back to, it is a leaf of the tree.
+                        inParents.put(side, current);
+                        inDirections.put(side, (byte) direction.getOpposite().get3DDataValue());
+                        outside.add(side);
+                    }
+                }
+            }
+
+            // Such an origin enters every part it touches, so touching more than one is a loop as well.
+            for (int i = 0; i < outside.size(); i++) {
+                long origin = outside.getLong(i);
+                int part = -1;
+                for (Direction direction : Graph.DIRECTIONS) {
+                    long side = Pos.offset(origin, direction);
+                    if (container.contains(side) && container.connects(side, direction.getOpposite())) {
+                        int touched = parts.get(side);
+                        if (part != -1 && part != touched) {
+                            return false;
+                        }
+                        part = touched;
+                    }
+                }
+                parts.put(origin, part);
+            }
+
+            for (long origin : targets) {
+                if (inParents.containsKey(origin)) {
+                    emitThrough(via, origin, targets, path);
+                }
+            }
+            for (int i = 0; i < outside.size(); i++) {
+                emitThrough(via, outside.getLong(i), targets, path);
+            }
+            return true;
+        } finally {
+            // Clean up the trees
+            open.clear();
+            parents.clear();
+            directions.clear();
+            inParents.clear();
+            inDirections.clear();
+            parts.clear();
+            crossroads.clear();
+            route.clear();
+            outside.clear();
+        }
+    }
+
+    /**
+     * Colors every position linked to the root, without passing through the already colored positions.
+     *
+     * @param root  The position to start from.
+     * @param color The color of the part.
+     */
+    private void flood(long root, int color) {
+        parts.put(root, color);
+        open.enqueue(root);
+        while (!open.isEmpty()) {
+            long current = open.dequeueLong();
+            for (Direction direction : Graph.DIRECTIONS) {
+                long side = Pos.offset(current, direction);
+                if (!parts.containsKey(side) && container.contains(side)
+                        && (container.connects(side, direction.getOpposite()) || container.connects(current, direction))) {
+                    parts.put(side, color);
+                    open.enqueue(side);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports the paths from the origin to the targets of the other parts.
+     *
+     * @param via     The joining position.
+     * @param origin  The origin position.
+     * @param targets The positions to report paths for.
+     * @param path    The receiver of the paths.
+     */
+    private void emitThrough(long via, long origin, LongCollection targets, Consumer<Deque<Node>> path) {
+        int part = parts.get(origin);
+        for (long target : targets) {
+            if (parts.get(target) != part && parents.containsKey(target)) {
+                path.accept(retraceThrough(via, origin, target));
+            }
+        }
+    }
+
+    /**
+     * Joins the path from the origin to the joining position with the path from there to the target.
+     *
+     * @param via    The joining position.
+     * @param origin The origin position.
+     * @param target The target position.
+     * @return The set of path points, starting at the target and ending at the origin.
+     */
+    private Deque<Node> retraceThrough(long via, long origin, long target) {
+        Deque<Node> path = new ArrayDeque<>();
+
+        // The positions from the origin up to the joining position, excluding it.
+        route.clear();
+        for (long current = origin; current != via; current = inParents.get(current)) {
+            route.add(current);
+        }
+
+        Node node;
+        if (target != via) {
+            node = new Node(target, Graph.DIRECTIONS[directions.get(target)]);
+            node.setCrossroad(true); // Consider tail as a part of the crossroad
+            path.add(node);
+
+            for (long current = parents.get(target); current != via; current = parents.get(current)) {
+                node = new Node(current, Graph.DIRECTIONS[directions.get(current)]);
+                node.setCrossroad(BFTree.isCrossroad(container, crossroads, current));
+                path.add(node);
+            }
+        }
+
+        if (origin == via) {
+            node = new Node(via, true);
+            node.setCrossroad(true);
+            path.add(node);
+            return path;
+        }
+
+        // The joining position is entered from the last position of the origin part.
+        node = new Node(via, Graph.DIRECTIONS[inDirections.get(route.getLong(route.size() - 1))].getOpposite());
+        node.setCrossroad(target == via || BFTree.isCrossroad(container, crossroads, via));
+        path.add(node);
+
+        for (int i = route.size() - 1; i > 0; i--) {
+            long current = route.getLong(i);
+            node = new Node(current, Graph.DIRECTIONS[inDirections.get(route.getLong(i - 1))].getOpposite());
+            node.setCrossroad(BFTree.isCrossroad(container, crossroads, current));
+            path.add(node);
+        }
+
+        node = new Node(origin, true);
+        node.setCrossroad(true);
+        path.add(node);
+        return path;
+    }
+}
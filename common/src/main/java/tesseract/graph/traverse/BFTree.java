@@ -0,0 +1,170 @@
+package tesseract.graph.traverse;
+
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.Direction;
+import tesseract.graph.Graph;
+import tesseract.graph.INode;
+import tesseract.util.Node;
+import tesseract.util.Pos;
+
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Breadth-first shortest-path tree implementation for routing a single origin to every target within a container.
+ * <p>
+ * Every step between adjacent positions costs the same, so a single breadth first search from the origin yields a
+ * shortest path to each reached position. The resulting paths are emitted in the same format as {@link ASFinder},
+ * which means one search replaces one A Star traverse per target. The grids search with a {@link BFDenseTree}, which
+ * walks their indices instead of the positions.
+ * </p>
+ * <p>
+ * As with the other traversal classes, it is not safe to use BFTree from multiple threads.
+ * </p>
+ */
+public class BFTree {
+
+    static final byte ROOT = -1;
+
+    private final INode container;
+    private final LongArrayFIFOQueue open = new LongArrayFIFOQueue();
+    private final Long2LongOpenHashMap parents = new Long2LongOpenHashMap();
+    private final Long2ByteOpenHashMap directions = new Long2ByteOpenHashMap();
+    private final Long2BooleanOpenHashMap crossroads = new Long2BooleanOpenHashMap();
+    private final LongOpenHashSet targets = new LongOpenHashSet();
+
+    /**
+     * Creates a reusable BFTree instance that will search the provided container.
+     *
+     * @param container The container to use for traverse operations.
+     */
+    public BFTree(INode container) {
+        this.container = container;
+    }
+
+    /**
+     * Builds the shortest-path tree from the origin and reports the path to each reachable target.
+     *
+     * @param origin  The start position of the traverse operation.
+     * @param targets The positions to report paths for. The origin and unreachable positions are skipped.
+     * @param path    The receiver of the paths, in the same order and format as {@link ASFinder#traverse(long, long)}.
+     */
+    public void traverse(long origin, LongCollection targets, Consumer<Deque<Node>> path) {
+        if (!parents.isEmpty() || !open.isEmpty()) {
+            throw new ConcurrentModificationException("Attempted to run concurrent search operations on the same BFTree instance");
+        }
+
+        try {
+            this.targets.addAll(targets);
+            this.targets.remove(origin);
+            if (this.targets.isEmpty()) {
+                return;
+            }
+
+            int remaining = this.targets.size();
+            parents.put(origin, origin);
+            directions.put(origin, ROOT);
+            open.enqueue(origin);
+
+            while (!open.isEmpty() && remaining > 0) {
+                long current = open.dequeueLong();
+
+                for (Direction direction : Graph.DIRECTIONS) {
+                    long side = Pos.offset(current, direction);
+
+                    if (parents.containsKey(side)) {
+                        continue;
+                    }
+
+                    if (container.contains(side) && container.connects(side, direction.getOpposite())) {
+                        parents.put(side, current);
+                        directions.put(side, (byte) direction.getOpposite().get3DDataValue());
+                        open.enqueue(side);
+
+                        if (this.targets.contains(side)) {
+                            remaining--;
+                        }
+                    }
+                }
+            }
+
+            // Report in the order of the given targets, as a sequence of A Star traverses would.
+            for (long target : targets) {
+                if (target != origin && parents.containsKey(target)) {
+                    path.accept(retracePath(target));
+                }
+            }
+        } finally {
+            // Clean up the tree
+            open.clear();
+            parents.clear();
+            directions.clear();
+            crossroads.clear();
+            this.targets.clear();
+        }
+    }
+
+    /**
+     * Walks the tree from the target back to the origin.
+     *
+     * @param target The target position.
+     * @return The set of path points, starting at the target and ending at the origin.
+     */
+    private Deque<Node> retracePath(long target) {
+        Deque<Node> path = new ArrayDeque<>();
+
+        Node node = new Node(target, Graph.DIRECTIONS[directions.get(target)]);
+        node.setCrossroad(true); // Consider tail as a part of the crossroad
+        path.add(node);
+
+        long current = parents.get(target);
+        while (true) {
+            byte direction = directions.get(current);
+            if (direction == ROOT) {
+                node = new Node(current, true);
+                node.setCrossroad(true);
+                path.add(node);
+                return path;
+            }
+
+            node = new Node(current, Graph.DIRECTIONS[direction]);
+            node.setCrossroad(isCrossroad(container, crossroads, current));
+            path.add(node);
+            current = parents.get(current);
+        }
+    }
+
+    /**
+     * Validates the crossroads state of the position, caching the result for the remaining paths of a tree.
+     *
+     * @param container  The container of the position.
+     * @param crossroads The cached states of the tree.
+     * @param pos        The position to check.
+     * @return True or false.
+     */
+    static boolean isCrossroad(INode container, Long2BooleanOpenHashMap crossroads, long pos) {
+        if (crossroads.containsKey(pos)) {
+            return crossroads.get(pos);
+        }
+
+        int connections = 0;
+        for (Direction direction : Graph.DIRECTIONS) {
+            long side = Pos.offset(pos, direction);
+
+            if (container.connects(side, direction.getOpposite())) {
+                connections++;
+            }
+        }
+
+        boolean crossroad = connections > 2;
+        crossroads.put(pos, crossroad);
+        return crossroad;
+    }
+}
@@ -0,0 +1,338 @@
+package tesseract.graph.traverse;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.core.Direction;
+import tesseract.api.ChainAggregate;
+import tesseract.graph.Graph;
+import tesseract.graph.INode;
+import tesseract.util.Pos;
+
+import java.util.Arrays;
+
+/**
+ * Chain index of a node container, the contracted overlay used to search long runs of connectors as single edges.
+ * <p>
+ * A link of a chain is a connector which connects towards exactly two positions of the container, both of them
+ * linking back to it, and which has no other neighbor that could step into it or be stepped into from it. A chain
+ * is a maximal run of such links, held between the two positions at its ends. Every link can only be passed from one
+ * end of its chain to the other, so a search only needs to visit the ends. Runs closing into a ring are not chained.
+ * </p>
+ * <p>
+ * Chains are looked up by the ids of an {@link AdjacencyIndex}. Any change of the container makes the index stale,
+ * and the owner is expected to rebuild it lazily before the next search, after the adjacency index. Once built, the
+ * index is only read, so several searches can share it. The index is rebuilt as a whole on every change of the
+ * container, chains are not repaired in place.
+ * </p>
+ */
+public class ChainIndex {
+
+    private static final int ABSENT = -1;
+    private static final int UNASSIGNED = -2;
+
+    private final INode container;
+    private final Long2IntOpenHashMap chains = new Long2IntOpenHashMap();
+    private final ObjectArrayList<Chain> list = new ObjectArrayList<>();
+    private Chain[] byId = new Chain[0];
+    private boolean valid;
+
+    // Rebuild state.
+    private final LongArrayList links = new LongArrayList();
+    private final LongArrayList run = new LongArrayList();
+
+    /**
+     * Creates a stale index for the provided container.
+     *
+     * @param container The container to index.
+     */
+    public ChainIndex(INode container) {
+        this.container = container;
+        chains.defaultReturnValue(ABSENT);
+    }
+
+    /**
+     * @return True if the index can answer {@link #getChain(int)}, false if it needs to be rebuilt.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Marks the index as stale.
+     */
+    public void invalidate() {
+        valid = false;
+        chains.clear();
+        list.clear();
+    }
+
+    /**
+     * Gets the chain the position is a link of.
+     *
+     * @param id The id of the position in the adjacency index the chains were built with.
+     * @return The chain, or null if the position is not a link of a chain.
+     */
+    public Chain getChain(int id) {
+        return byId[id];
+    }
+
+    /**
+     * Gets the chain the position is a link of.
+     *
+     * @param pos The position.
+     * @return The chain, or null if the position is not a link of a chain.
+     */
+    public Chain getChainAt(long pos) {
+        int index = chains.get(pos);
+        return index < 0 ? null : list.get(index);
+    }
+
+    /**
+     * @return Gets the number of chains.
+     */
+    public int countChains() {
+        return list.size();
+    }
+
+    /**
+     * Rebuilds the index from scratch.
+     *
+     * @param connectors The connectors of the container. Only connectors can be links, as the connectivity of a
+     *                   connector can not change while it is in the container.
+     * @param adjacency  The valid adjacency index of the container, which gives the ids of the chains.
+     */
+    public void rebuild(LongSet connectors, AdjacencyIndex adjacency) {
+        invalidate();
+        if (byId.length < adjacency.size()) {
+            byId = new Chain[adjacency.size()];
+        } else {
+            Arrays.fill(byId, null);
+        }
+
+        try {
+            for (long pos : connectors) {
+                if (isLink(pos, connectors)) {
+                    links.add(pos);
+                    chains.put(pos, UNASSIGNED);
+                }
+            }
+
+            for (long start : links) {
+                if (chains.get(start) != UNASSIGNED) {
+                    continue;
+                }
+
+                // Walk towards the tail from the start, then towards the head, so the run is in order.
+                run.add(start);
+                long tail = walk(start, Graph.DIRECTIONS[linkDirection(start, ABSENT)]);
+                if (tail == start) {
+                    // A ring, which has no ends to hold it.
+                    for (long pos : run) {
+                        chains.remove(pos);
+                    }
+                    run.clear();
+                    continue;
+                }
+
+                int size = run.size();
+                long head = walk(start, Graph.DIRECTIONS[linkDirection(start, linkDirection(start, ABSENT))]);
+                long[] positions = new long[run.size()];
+                int reversed = run.size() - size;
+                for (int i = 0; i < reversed; i++) {
+                    positions[i] = run.getLong(run.size() - 1 - i);
+                }
+                for (int i = 0; i < size; i++) {
+                    positions[reversed + i] = run.getLong(i);
+                }
+                run.clear();
+
+                Chain chain = new Chain(head, tail, positions, adjacency);
+                for (int i = 0; i < positions.length; i++) {
+                    chains.put(positions[i], list.size());
+                    byId[chain.ids[i]] = chain;
+                }
+                list.add(chain);
+            }
+        } finally {
+            links.clear();
+            run.clear();
+        }
+
+        valid = true;
+    }
+
+    /**
+     * Walks along the links from the position, adding every passed link to the run.
+     *
+     * @param from      The link to walk from, which is already in the run.
+     * @param direction The direction to walk in.
+     * @return The position at the end of the walk, or the start if the links close into a ring.
+     */
+    private long walk(long from, Direction direction) {
+        long current = from;
+        while (true) {
+            long next = Pos.offset(current, direction);
+            if (next == from) {
+                return from;
+            }
+            if (chains.get(next) != UNASSIGNED) {
+                return next;
+            }
+
+            run.add(next);
+            current = next;
+            direction = Graph.DIRECTIONS[linkDirection(next, direction.getOpposite().get3DDataValue())];
+        }
+    }
+
+    /**
+     * @param pos     The link.
+     * @param exclude The direction index to skip, or -1.
+     * @return Gets the first direction index the link connects towards, except the excluded one.
+     */
+    private int linkDirection(long pos, int exclude) {
+        for (Direction direction : Graph.DIRECTIONS) {
+            int index = direction.get3DDataValue();
+            if (index != exclude && container.connects(pos, direction)) {
+                return index;
+            }
+        }
+        throw new IllegalStateException("ChainIndex::linkDirection: Link without a second direction");
+    }
+
+    /**
+     * @param pos        The position to check.
+     * @param connectors The connectors of the container.
+     * @return Whether the position can only be passed between its two linked neighbors.
+     */
+    private boolean isLink(long pos, LongSet connectors) {
+        int count = 0;
+        for (Direction direction : Graph.DIRECTIONS) {
+            long side = Pos.offset(pos, direction);
+
+            if (container.connects(pos, direction)) {
+                // A node is an end of the chain, whether it connects back is checked by the search.
+                if (!container.contains(side) || (connectors.contains(side) && !container.connects(side, direction.getOpposite()))) {
+                    return false;
+                }
+                count++;
+            } else if (container.contains(side) && (!connectors.contains(side) || container.connects(side, direction.getOpposite()))) {
+                // The connectivity of a node may change in place, so any node next to the position breaks the chain.
+                return false;
+            }
+        }
+        return count == 2;
+    }
+
+    /**
+     * A maximal run of links, ordered from the head to the tail.
+     */
+    public static class Chain {
+
+        private final long head;
+        private final long tail;
+        private final int headId;
+        private final int tailId;
+        private final Direction headSide;
+        private final Direction tailSide;
+        private final long[] positions;
+        private final int[] ids;
+        // Routes of several threads may pass the chain, the first of them to finish the aggregate publishes it.
+        private volatile ChainAggregate<?> aggregate;
+
+        private Chain(long head, long tail, long[] positions, AdjacencyIndex adjacency) {
+            this.head = head;
+            this.tail = tail;
+            this.headId = adjacency.getId(head);
+            this.tailId = adjacency.getId(tail);
+            this.headSide = Pos.subToDir(positions[0], head);
+            this.tailSide = Pos.subToDir(positions[positions.length - 1], tail);
+            this.positions = positions;
+            this.ids = new int[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                ids[i] = adjacency.getId(positions[i]);
+            }
+        }
+
+        /**
+         * @return Gets the position before the first link.
+         */
+        public long getHead() {
+            return head;
+        }
+
+        /**
+         * @return Gets the position after the last link.
+         */
+        public long getTail() {
+            return tail;
+        }
+
+        /**
+         * @return Gets the id of the position before the first link.
+         */
+        public int getHeadId() {
+            return headId;
+        }
+
+        /**
+         * @return Gets the id of the position after the last link.
+         */
+        public int getTailId() {
+            return tailId;
+        }
+
+        /**
+         * @return Gets the direction from the head to the first link.
+         */
+        public Direction getHeadSide() {
+            return headSide;
+        }
+
+        /**
+         * @return Gets the direction from the tail to the last link.
+         */
+        public Direction getTailSide() {
+            return tailSide;
+        }
+
+        /**
+         * @return Gets the number of links.
+         */
+        public int size() {
+            return positions.length;
+        }
+
+        /**
+         * @param index The index of the link, counted from the head.
+         * @return Gets the position of the link.
+         */
+        public long get(int index) {
+            return positions[index];
+        }
+
+        /**
+         * @param index The index of the link, counted from the head.
+         * @return Gets the id of the link.
+         */
+        public int getId(int index) {
+            return ids[index];
+        }
+
+        /**
+         * @return Gets the aggregate of the links, or null if no route computed it yet.
+         */
+        public ChainAggregate<?> getAggregate() {
+            return aggregate;
+        }
+
+        /**
+         * @param aggregate The complete aggregate of the links, shared by the routes passing the chain.
+         */
+        public void setAggregate(ChainAggregate<?> aggregate) {
+            this.aggregate = aggregate;
+        }
+    }
+}
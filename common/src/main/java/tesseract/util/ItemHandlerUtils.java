@@ -1,10 +1,12 @@
 package tesseract.util;
 
 import dev.architectury.injectables.annotations.ExpectPlatform;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import tesseract.TesseractPlatformUtils;
 import tesseract.api.item.PlatformItemHandler;
+import tesseract.api.item.SlotHints;
 
 
 public class ItemHandlerUtils {
@@ -21,6 +23,48 @@ public class ItemHandlerUtils {
         return stack;
     }
 
+    /**
+     * Inserts the stack like {@link #insertItem(PlatformItemHandler, ItemStack, boolean)}, starting at the slot which
+     * took the item last. The slots which refused the item are skipped until the handler reports a change of its
+     * contents, a handler which does not count its changes gets only the start slot hint.
+     *
+     * @param dest     The handler.
+     * @param stack    The stack to insert.
+     * @param simulate If true, the insertion is only simulated.
+     * @param hints    The slot hints of the handler.
+     * @param storage  The block entity of the handler. The handlers are wrapped anew on every lookup, so the hints are
+     *                 kept for the block entity instead.
+     * @return The remainder.
+     */
+    @NotNull
+    public static ItemStack insertItem(PlatformItemHandler dest, @NotNull ItemStack stack, boolean simulate, SlotHints hints, Object storage) {
+        if (dest == null || stack.isEmpty())
+            return stack;
+        int slots = dest.getSlots();
+        Item item = stack.getItem();
+        hints.validate(storage, dest.getChangeCount());
+        int start = hints.getStart(item, slots);
+        for (int n = 0; n < slots; n++) {
+            int i = start + n < slots ? start + n : start + n - slots;
+            // The start slot is probed even if it refused the item, it is the likeliest one to take it.
+            if (n > 0 && hints.isFull(item, i)) {
+                continue;
+            }
+            int count = stack.getCount();
+            stack = dest.insertItem(i, stack, simulate);
+            if (stack.isEmpty()) {
+                hints.onInserted(item, i);
+                return ItemStack.EMPTY;
+            }
+            if (stack.getCount() < count) {
+                hints.onInserted(item, i);
+            } else {
+                hints.onRefused(item, i);
+            }
+        }
+        return stack;
+    }
+
 
     public static boolean canItemStacksStack(@NotNull ItemStack a, @NotNull ItemStack b) {
         if (a.isEmpty() || !a.sameItem(b) || a.hasTag() != b.hasTag())
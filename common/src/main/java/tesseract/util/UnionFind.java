@@ -0,0 +1,58 @@
+package tesseract.util;
+
+/**
+ * Disjoint set over dense indices, used to resolve which positions of a batch end up together.
+ */
+public class UnionFind {
+
+    private final int[] parents;
+    private final int[] sizes;
+
+    /**
+     * Creates a disjoint set where every index starts in its own set.
+     *
+     * @param size The number of indices.
+     */
+    public UnionFind(int size) {
+        parents = new int[size];
+        sizes = new int[size];
+        for (int i = 0; i < size; i++) {
+            parents[i] = i;
+            sizes[i] = 1;
+        }
+    }
+
+    /**
+     * @param index The given index.
+     * @return Gets the representative index of the set.
+     */
+    public int find(int index) {
+        while (parents[index] != index) {
+            index = parents[index] = parents[parents[index]];
+        }
+        return index;
+    }
+
+    /**
+     * Joins the sets of both indices.
+     *
+     * @param a The first index.
+     * @param b The second index.
+     * @return True if the sets were separate, false otherwise.
+     */
+    public boolean union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) {
+            return false;
+        }
+        if (sizes[a] < sizes[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        parents[b] = a;
+        sizes[a] += sizes[b];
+        return true;
+    }
+}
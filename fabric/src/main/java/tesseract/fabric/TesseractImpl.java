@@ -23,6 +23,7 @@ import net.minecraft.world.level.block.entity.BlockEntityType;
 import team.reborn.energy.api.EnergyStorage;
 import tesseract.Tesseract;
 import tesseract.TesseractConfig;
+import tesseract.api.Controller;
 import tesseract.api.GraphWrapper;
 import tesseract.api.context.TesseractItemContext;
 import tesseract.api.fabric.TesseractLookups;
@@ -69,6 +70,7 @@ public class TesseractImpl extends Tesseract implements ModInitializer {
         firstTick.clear();
         //FE_ENERGY.clear();
         GraphWrapper.getWrappers().forEach(GraphWrapper::clear);
+        Controller.shutdownRebuilds();
     }
 
     @Override
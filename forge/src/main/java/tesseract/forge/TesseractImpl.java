@@ -14,6 +14,7 @@ import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.Mod;
 import tesseract.FluidPlatformUtils;
 import tesseract.Tesseract;
+import tesseract.api.Controller;
 import tesseract.api.GraphWrapper;
 import tesseract.api.context.TesseractItemContext;
 import tesseract.api.forge.Provider;
@@ -54,6 +55,7 @@ public class TesseractImpl extends Tesseract {
         firstTick.clear();
         //FE_ENERGY.clear();
         GraphWrapper.getWrappers().forEach(GraphWrapper::clear);
+        Controller.shutdownRebuilds();
     }
 
     public void worldUnloadEvent(WorldEvent.Unload e) {
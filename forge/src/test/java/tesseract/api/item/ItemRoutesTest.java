@@ -0,0 +1,109 @@
+package tesseract.api.item;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the item index of the routes of a producer side directly. Unlike the other tests, this one is in the package
+ * of the index, as the index is kept package-private, and reaching it through the controller would take item storages
+ * with real inventories.
+ */
+public class ItemRoutesTest {
+
+    private static Item x, y, z;
+
+    @BeforeClass
+    public static void setup() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        // New items can not be registered once the registries are bootstrapped, so the tests use vanilla ones.
+        x = Items.STONE;
+        y = Items.DIRT;
+        z = Items.SAND;
+    }
+
+    @Test
+    public void testCandidatesInRouteOrder() {
+        FilteredConsumer a = new FilteredConsumer(Set.of(x));
+        FilteredConsumer b = new FilteredConsumer(null);
+        FilteredConsumer c = new FilteredConsumer(Set.of(x, y));
+        ItemRoutes routes = new ItemRoutes(List.of(a, b, c), 0, null);
+        assertArrayEquals(new ItemConsumer[]{a, b, c}, routes.get(x, 0));
+        assertArrayEquals(new ItemConsumer[]{b, c}, routes.get(y, 0));
+        assertArrayEquals(new ItemConsumer[]{b}, routes.get(z, 0));
+    }
+
+    @Test
+    public void testFilterVersionInvalidatesCandidates() {
+        FilteredConsumer a = new FilteredConsumer(Set.of(x));
+        FilteredConsumer b = new FilteredConsumer(Set.of(y));
+        ItemRoutes routes = new ItemRoutes(List.of(a, b), 0, null);
+        assertArrayEquals(new ItemConsumer[]{a}, routes.get(x, 0));
+        assertArrayEquals(new ItemConsumer[]{b}, routes.get(y, 0));
+
+        // A filter changed without a new version is not seen.
+        a.filter = Set.of(y);
+        assertArrayEquals(new ItemConsumer[]{a}, routes.get(x, 1));
+
+        // The versions are checked once per tick, so the change shows up on the next one.
+        a.version++;
+        assertArrayEquals(new ItemConsumer[]{a}, routes.get(x, 1));
+        assertArrayEquals(new ItemConsumer[0], routes.get(x, 2));
+        assertArrayEquals(new ItemConsumer[]{a, b}, routes.get(y, 2));
+
+        // Dropping the filter puts the consumer in the catch-all bucket.
+        a.filter = null;
+        a.version++;
+        assertArrayEquals(new ItemConsumer[]{a}, routes.get(x, 3));
+        assertArrayEquals(new ItemConsumer[]{a}, routes.get(z, 3));
+        assertArrayEquals(new ItemConsumer[]{a, b}, routes.get(y, 3));
+    }
+
+    @Test
+    public void testCursorsKeptOnReindex() {
+        FilteredConsumer a = new FilteredConsumer(null);
+        List<ItemConsumer> consumers = List.of(a, new FilteredConsumer(null));
+        ItemRoutes routes = new ItemRoutes(consumers, 0, null);
+        assertTrue(routes.indexes(consumers));
+        routes.setCursor(x, 1);
+        assertEquals(1, routes.getCursor(x));
+        assertEquals(0, routes.getCursor(y));
+
+        List<ItemConsumer> changed = List.of(a);
+        ItemRoutes next = new ItemRoutes(changed, 1, routes);
+        assertTrue(next.indexes(changed));
+        assertEquals(1, next.getCursor(x));
+    }
+
+    private static class FilteredConsumer extends ItemConsumer {
+
+        private Set<Item> filter;
+        private int version;
+
+        private FilteredConsumer(Set<Item> filter) {
+            super(null, null, null, null);
+            this.filter = filter;
+        }
+
+        @Override
+        public Set<Item> getFilter() {
+            return filter;
+        }
+
+        @Override
+        public int getFilterVersion() {
+            return version;
+        }
+    }
+}
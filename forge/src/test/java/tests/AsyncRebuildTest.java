@@ -0,0 +1,130 @@
+package tests;
+
+import carbonconfiglib.config.ConfigEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tesseract.TesseractConfig;
+import tesseract.api.Controller;
+import tesseract.api.ITickingController;
+import tesseract.graph.Cache;
+import tesseract.graph.Group;
+import tesseract.graph.INode;
+import tesseract.graph.NodeCache;
+import tesseract.util.Pos;
+import tests.GraphTest.TestGraph;
+import tests.GraphTest.TestGraph.TestConnector;
+import tests.GraphTest.TestGraph.TestNode;
+import tests.RouteRetentionTest.RouteController;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncRebuildTest {
+
+    private ConfigEntry.BoolValue async;
+
+    @Before
+    public void setAsync() {
+        async = TesseractConfig.ASYNC_REBUILD;
+        TesseractConfig.ASYNC_REBUILD = new ConfigEntry.BoolValue("async_rebuild", true);
+    }
+
+    @After
+    public void resetAsync() {
+        TesseractConfig.ASYNC_REBUILD = async;
+    }
+
+    /**
+     * Two nodes at the ends of a line of connectors.
+     */
+    private static TestGraph line() {
+        TestGraph graph = new GraphTest().new TestGraph(AsyncController::new);
+        graph.addNode(NodeCache.of(Pos.packAll(0, 0, 0), new TestNode()));
+        graph.addNode(NodeCache.of(Pos.packAll(4, 0, 0), new TestNode()));
+        for (int x = 1; x < 4; x++) {
+            graph.addConnector(Pos.packAll(x, 0, 0), Cache.of(new TestConnector()));
+        }
+        return graph;
+    }
+
+    private static Group<Integer, TestConnector, TestNode> groupOf(TestGraph graph) {
+        assertEquals(1, graph.countGroups());
+        return graph.getGroupAt(Pos.packAll(0, 0, 0));
+    }
+
+    @Test
+    public void testSameVersionIsAdopted() {
+        TestGraph graph = line();
+        Group<Integer, TestConnector, TestNode> group = groupOf(graph);
+        AsyncController controller = (AsyncController) group.getController();
+        controller.markChanged();
+        controller.tick();
+        // The rebuild runs on a snapshot, the controller keeps its routes until it is swapped in.
+        assertTrue(controller.isChanged());
+        controller.await();
+        controller.tick();
+        assertFalse(controller.isChanged());
+        assertEquals(0, controller.changes);
+        assertEquals(RouteController.rebuild(group).describe(), controller.describe());
+    }
+
+    @Test
+    public void testOvertakenResultIsSubmittedAgain() {
+        TestGraph graph = line();
+        Group<Integer, TestConnector, TestNode> group = groupOf(graph);
+        AsyncController controller = (AsyncController) group.getController();
+        controller.markChanged();
+        controller.tick();
+        graph.addNode(NodeCache.of(Pos.packAll(2, 1, 0), new TestNode()));
+        controller.await();
+        String outdated = controller.describe();
+        controller.tick();
+        // The result misses the added node, so it is dropped and the rebuild starts over.
+        assertTrue(controller.isChanged());
+        assertEquals(outdated, controller.describe());
+        controller.await();
+        controller.tick();
+        assertFalse(controller.isChanged());
+        assertEquals(0, controller.changes);
+        assertEquals(RouteController.rebuild(groupOf(graph)).describe(), controller.describe());
+    }
+
+    @Test
+    public void testRebuiltInPlaceAfterDroppedResults() {
+        TestGraph graph = line();
+        Group<Integer, TestConnector, TestNode> group = groupOf(graph);
+        AsyncController controller = (AsyncController) group.getController();
+        controller.markChanged();
+        controller.tick();
+        for (int i = 0; i < Controller.MAX_DROPPED_REBUILDS; i++) {
+            assertEquals(0, controller.changes);
+            // Every rebuild is overtaken by a node added while it runs.
+            graph.addNode(NodeCache.of(Pos.packAll(1 + i, 1, 0), new TestNode()));
+            controller.await();
+            controller.tick();
+        }
+        // The last dropped result is followed by a rebuild on the server thread.
+        assertEquals(1, controller.changes);
+        assertFalse(controller.isChanged());
+        assertEquals(RouteController.rebuild(groupOf(graph)).describe(), controller.describe());
+    }
+
+    /**
+     * A route controller which can wait for its off-thread rebuild.
+     */
+    public static class AsyncController extends RouteController {
+
+        void await() {
+            while (isRebuilding()) {
+                Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public ITickingController<Integer, TestConnector, TestNode> clone(INode group) {
+            return new AsyncController().set(group);
+        }
+    }
+}
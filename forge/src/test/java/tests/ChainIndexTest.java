@@ -0,0 +1,248 @@
+package tests;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.Direction;
+import org.junit.Test;
+import tesseract.api.gt.GTConsumer;
+import tesseract.api.gt.IGTCable;
+import tesseract.graph.Cache;
+import tesseract.graph.Graph;
+import tesseract.graph.Grid;
+import tesseract.graph.NodeCache;
+import tesseract.graph.Path;
+import tesseract.graph.traverse.AdjacencyIndex;
+import tesseract.graph.traverse.ChainIndex;
+import tesseract.util.Pos;
+import tests.GraphTest.TestGraph;
+import tests.GraphTest.TestGraph.TestConnector;
+import tests.GraphTest.TestGraph.TestNode;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChainIndexTest {
+
+    @Test
+    public void testStraightRun() {
+        TestGraph graph = graph();
+        long origin = Pos.packAll(0, 0, 0);
+        long target = Pos.packAll(6, 0, 0);
+        for (int x = 1; x < 6; x++) {
+            graph.addConnector(Pos.packAll(x, 0, 0), Cache.of(cable(x, 32 * x, 6 - x, x % 2 == 0, Direction.WEST, Direction.EAST)));
+        }
+        graph.addNode(NodeCache.of(origin, new TestNode()));
+        graph.addNode(NodeCache.of(target, new TestNode()));
+
+        ChainIndex chains = index(grid(graph, origin));
+        assertEquals(1, chains.countChains());
+        assertChain(chains.getChainAt(Pos.packAll(3, 0, 0)), origin, target, 5);
+        assertNull(chains.getChainAt(origin));
+        assertRoutes(graph, origin);
+    }
+
+    @Test
+    public void testLoop() {
+        // A ring has no ends to hold a chain.
+        TestGraph ring = graph();
+        ring.addConnector(Pos.packAll(0, 0, 0), Cache.of(cable(1, 32, 1, false, Direction.UP, Direction.EAST)));
+        ring.addConnector(Pos.packAll(0, 1, 0), Cache.of(cable(1, 32, 1, false, Direction.DOWN, Direction.EAST)));
+        ring.addConnector(Pos.packAll(1, 1, 0), Cache.of(cable(1, 32, 1, false, Direction.DOWN, Direction.WEST)));
+        ring.addConnector(Pos.packAll(1, 0, 0), Cache.of(cable(1, 32, 1, false, Direction.UP, Direction.WEST)));
+        assertEquals(0, index(grid(ring, Pos.packAll(0, 0, 0))).countChains());
+
+        // A loop through a junction is held at both of its ends by the junction.
+        TestGraph graph = graph();
+        long junction = Pos.packAll(0, 0, 0);
+        long origin = Pos.packAll(-2, 0, 0);
+        long target = Pos.packAll(0, -1, 0);
+        graph.addConnector(Pos.packAll(-1, 0, 0), Cache.of(cable(3, 128, 2, false, Direction.WEST, Direction.EAST)));
+        graph.addConnector(junction, Cache.of(cable(1, 32, 1, true, Direction.WEST, Direction.UP, Direction.EAST, Direction.DOWN)));
+        graph.addConnector(Pos.packAll(0, 1, 0), Cache.of(cable(1, 32, 1, false, Direction.DOWN, Direction.EAST)));
+        graph.addConnector(Pos.packAll(1, 1, 0), Cache.of(cable(2, 64, 1, true, Direction.DOWN, Direction.WEST)));
+        graph.addConnector(Pos.packAll(1, 0, 0), Cache.of(cable(1, 32, 4, false, Direction.UP, Direction.WEST)));
+        graph.addNode(NodeCache.of(origin, new TestNode()));
+        graph.addNode(NodeCache.of(target, new TestNode()));
+
+        ChainIndex chains = index(grid(graph, origin));
+        assertEquals(2, chains.countChains());
+        assertChain(chains.getChainAt(Pos.packAll(1, 1, 0)), junction, junction, 3);
+        assertChain(chains.getChainAt(Pos.packAll(-1, 0, 0)), origin, junction, 1);
+        assertNull(chains.getChainAt(junction));
+        assertRoutes(graph, origin);
+        assertRoutes(graph, target);
+    }
+
+    @Test
+    public void testJunction() {
+        TestGraph graph = graph();
+        long junction = Pos.packAll(3, 0, 0);
+        long west = Pos.packAll(0, 0, 0);
+        long east = Pos.packAll(6, 0, 0);
+        long up = Pos.packAll(3, 3, 0);
+        for (int x = 1; x < 6; x++) {
+            TestCable cable = x == 3 ? cable(1, 32, 1, false, Direction.WEST, Direction.EAST, Direction.UP)
+                : cable(x, 16 << x, 7 - x, x == 4, Direction.WEST, Direction.EAST);
+            graph.addConnector(Pos.packAll(x, 0, 0), Cache.of(cable));
+        }
+        for (int y = 1; y < 3; y++) {
+            graph.addConnector(Pos.packAll(3, y, 0), Cache.of(cable(2 * y, 512 / y, y, y == 1, Direction.DOWN, Direction.UP)));
+        }
+        graph.addNode(NodeCache.of(west, new TestNode()));
+        graph.addNode(NodeCache.of(east, new TestNode()));
+        graph.addNode(NodeCache.of(up, new TestNode()));
+
+        ChainIndex chains = index(grid(graph, west));
+        assertEquals(3, chains.countChains());
+        assertChain(chains.getChainAt(Pos.packAll(1, 0, 0)), west, junction, 2);
+        assertChain(chains.getChainAt(Pos.packAll(5, 0, 0)), junction, east, 2);
+        assertChain(chains.getChainAt(Pos.packAll(3, 2, 0)), junction, up, 2);
+        assertNull(chains.getChainAt(junction));
+        for (long origin : new long[]{west, east, up}) {
+            assertRoutes(graph, origin);
+        }
+    }
+
+    /**
+     * Checks that a chain is held between the two ends, in either order, with its links running from the head to
+     * the tail.
+     */
+    private static void assertChain(ChainIndex.Chain chain, long end, long other, int size) {
+        assertNotNull(chain);
+        assertEquals(size, chain.size());
+        assertTrue(chain.getHead() == end && chain.getTail() == other || chain.getHead() == other && chain.getTail() == end);
+        assertEquals(chain.getHead(), Pos.offset(chain.get(0), chain.getHeadSide().getOpposite()));
+        assertEquals(chain.getTail(), Pos.offset(chain.get(size - 1), chain.getTailSide().getOpposite()));
+        for (int i = 1; i < size; i++) {
+            assertEquals(1, Math.abs(Pos.unpackX(chain.get(i)) - Pos.unpackX(chain.get(i - 1)))
+                + Math.abs(Pos.unpackY(chain.get(i)) - Pos.unpackY(chain.get(i - 1)))
+                + Math.abs(Pos.unpackZ(chain.get(i)) - Pos.unpackZ(chain.get(i - 1))));
+        }
+    }
+
+    /**
+     * Checks that the consumers of the routes from the origin take the chains as a whole, and get the same loss and
+     * limits as summed up cable by cable. The consumers are built twice, the second time from the kept aggregates.
+     */
+    @SuppressWarnings("unchecked")
+    private static void assertRoutes(TestGraph graph, long origin) {
+        // The cables of the graph are stored as test connectors, the consumer only sees them as cables.
+        List<Path<IGTCable>> paths = (List<Path<IGTCable>>) (List<?>) grid(graph, origin).getPaths(origin);
+        assertTrue(paths.size() > 0);
+        for (int round = 0; round < 2; round++) {
+            for (Path<IGTCable> path : paths) {
+                GTConsumer consumer = new GTConsumer(null, null, path);
+                double loss = 0;
+                long minVoltage = Integer.MAX_VALUE;
+                int minAmperage = Integer.MAX_VALUE;
+                LongSet uninsulated = new LongOpenHashSet();
+                boolean chained = false;
+                int[] entries = path.getEntries();
+                for (int entry : entries) {
+                    IGTCable cable = path.getTree().getValue(entry);
+                    loss += cable.getLoss();
+                    minVoltage = Math.min(minVoltage, cable.getVoltage());
+                    minAmperage = Math.min(minAmperage, cable.getAmps());
+                    if (!cable.insulated()) {
+                        uninsulated.add(path.getTree().getPosition(entry));
+                    }
+                    ChainIndex.Chain chain = path.getTree().getChain(entry);
+                    if (chain != null) {
+                        assertNotNull(chain.getAggregate());
+                        chained = true;
+                    }
+                }
+                assertEquals(loss, consumer.getLoss(), 1e-9);
+                assertTrue(consumer.canHandle(minVoltage));
+                assertTrue(!consumer.canHandle(minVoltage + 1));
+                assertTrue(consumer.canHandleAmp(minAmperage));
+                assertTrue(!consumer.canHandleAmp(minAmperage + 1));
+                assertEquals(uninsulated, consumer.uninsulatedCables);
+                assertEquals(entries.length, consumer.getDistance());
+                assertTrue(chained);
+            }
+        }
+    }
+
+    /**
+     * @return Builds the chains of the grid from scratch, like the grid does before a search.
+     */
+    private static ChainIndex index(Grid<TestConnector> grid) {
+        AdjacencyIndex adjacency = new AdjacencyIndex(grid);
+        adjacency.rebuild(grid.getConnectors(), grid.getNodes().keySet());
+        ChainIndex chains = new ChainIndex(grid);
+        chains.rebuild(grid.getConnectors().keySet(), adjacency);
+        return chains;
+    }
+
+    private static Grid<TestConnector> grid(TestGraph graph, long pos) {
+        return graph.getGroupAt(pos).getGrids().values().iterator().next();
+    }
+
+    private static TestGraph graph() {
+        return new GraphTest().new TestGraph(RouteRetentionTest.RouteController::new);
+    }
+
+    /**
+     * @return Creates a cable which only connects towards the given sides.
+     */
+    private static TestCable cable(double loss, long voltage, int amps, boolean insulated, Direction... sides) {
+        TestCable cable = new TestCable(loss, voltage, amps, insulated);
+        for (Direction direction : Graph.DIRECTIONS) {
+            if (!List.of(sides).contains(direction)) {
+                cable.clearSide(direction);
+            }
+        }
+        return cable;
+    }
+
+    private static class TestCable extends TestConnector implements IGTCable {
+
+        private final double loss;
+        private final long voltage;
+        private final int amps;
+        private final boolean insulated;
+        private long holder;
+
+        private TestCable(double loss, long voltage, int amps, boolean insulated) {
+            this.loss = loss;
+            this.voltage = voltage;
+            this.amps = amps;
+            this.insulated = insulated;
+        }
+
+        @Override
+        public double getLoss() {
+            return loss;
+        }
+
+        @Override
+        public int getAmps() {
+            return amps;
+        }
+
+        @Override
+        public long getVoltage() {
+            return voltage;
+        }
+
+        @Override
+        public boolean insulated() {
+            return insulated;
+        }
+
+        @Override
+        public long getHolder() {
+            return holder;
+        }
+
+        @Override
+        public void setHolder(long holder) {
+            this.holder = holder;
+        }
+    }
+}
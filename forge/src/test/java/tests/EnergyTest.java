@@ -8,21 +8,31 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.core.Direction;
 import org.junit.Test;
 import tesseract.Tesseract;
+import tesseract.api.DistributionStrategy;
 import tesseract.api.GraphWrapper;
 import tesseract.api.GraphWrapper.ICapabilityGetter;
+import tesseract.api.ITickingController;
 import tesseract.api.gt.GTConsumer.State;
+import tesseract.api.gt.GTController;
 import tesseract.api.gt.GTHolder;
 import tesseract.api.gt.GTTransaction;
 import tesseract.api.gt.GTTransaction.TransferData;
 import tesseract.api.gt.IGTCable;
 import tesseract.api.gt.IGTNode;
 import tesseract.controller.Energy;
+import tesseract.graph.Cache;
+import tesseract.graph.Graph;
+import tesseract.graph.Group;
+import tesseract.graph.NodeCache;
 import tesseract.util.Pos;
 import tests.GraphTest.TestGraph;
 
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class EnergyTest {
 
@@ -70,6 +80,75 @@ public class EnergyTest {
         assertEquals(map.get(Pos.packAll(1, 0, 0)).getEnergy(), 31);*/
     }
 
+    @Test
+    public void testPushEnergyWithoutGarbage() {
+        setup();
+        Graph<GTTransaction, IGTCable, IGTNode> graph = new Graph<>(() -> new GTController(null, null));
+        TestEnergyNode producer = new TestEnergyNode(32, 1);
+        TestEnergyNode consumer = new TestEnergyNode(32, 1);
+        graph.addConnector(0, Cache.of(defaultConnector()));
+        graph.addNode(NodeCache.of(Pos.packAll(-1, 0, 0), producer));
+        graph.addNode(NodeCache.of(Pos.packAll(1, 0, 0), consumer));
+
+        ITickingController<GTTransaction, IGTCable, IGTNode> controller = graph.getGroupAt(0).getController();
+        Consumer<Group<GTTransaction, IGTCable, IGTNode>> tick = group -> group.getController().tick();
+        GTTransaction transaction = new GTTransaction(32, t -> {});
+        int pushes = 100;
+        // Every push reuses the transfer data of the first one.
+        graph.tick(tick);
+        controller.insert(0, Direction.WEST, transaction.reuse(), null);
+        TransferData[] data = transaction.getData().toArray(new TransferData[0]);
+        transaction.commit();
+        for (int i = 0; i < pushes; i++) {
+            graph.tick(tick);
+            controller.insert(0, Direction.WEST, transaction.reuse(), null);
+            assertEquals(data.length, transaction.getData().size());
+            for (int j = 0; j < data.length; j++) {
+                assertSame(data[j], transaction.getData().get(j));
+            }
+            transaction.commit();
+        }
+        assertEquals((pushes + 1) * 31L, consumer.getEnergy());
+    }
+
+    @Test
+    public void testRoundRobinDistribution() {
+        setup();
+        Graph<GTTransaction, IGTCable, IGTNode> graph = new Graph<>(() -> new GTController(null, null));
+        TestEnergyNode producer = new TestEnergyNode(32, 1);
+        TestEnergyNode first = new TestEnergyNode(32, 1);
+        TestEnergyNode second = new TestEnergyNode(32, 1);
+        graph.addConnector(0, Cache.of(defaultConnector()));
+        graph.addNode(NodeCache.of(Pos.packAll(-1, 0, 0), producer));
+        graph.addNode(NodeCache.of(Pos.packAll(1, 0, 0), first));
+        graph.addNode(NodeCache.of(Pos.packAll(0, 1, 0), second));
+
+        GTController controller = (GTController) graph.getGroupAt(0).getController();
+        Consumer<Group<GTTransaction, IGTCable, IGTNode>> tick = group -> group.getController().tick();
+        GTTransaction transaction = new GTTransaction(32, t -> {});
+        push(graph, tick, controller, transaction);
+        push(graph, tick, controller, transaction);
+        // Nearest first, the first consumer takes every packet.
+        assertEquals(62, first.getEnergy() + second.getEnergy());
+        assertTrue(first.getEnergy() == 0 || second.getEnergy() == 0);
+
+        controller.setDistributionStrategy(DistributionStrategy.ROUND_ROBIN);
+        long before = Math.max(first.getEnergy(), second.getEnergy());
+        for (int i = 0; i < 4; i++) {
+            push(graph, tick, controller, transaction);
+        }
+        assertEquals(62 * 3, first.getEnergy() + second.getEnergy());
+        assertEquals(before + 62, Math.max(first.getEnergy(), second.getEnergy()));
+        assertEquals(62, Math.min(first.getEnergy(), second.getEnergy()));
+    }
+
+    private static void push(Graph<GTTransaction, IGTCable, IGTNode> graph, Consumer<Group<GTTransaction, IGTCable, IGTNode>> tick,
+                             ITickingController<GTTransaction, IGTCable, IGTNode> controller, GTTransaction transaction) {
+        graph.tick(tick);
+        controller.insert(0, Direction.WEST, transaction.reuse(), null);
+        transaction.commit();
+    }
+
     public class TestEnergyConnctor extends TestGraph.TestConnector implements IGTCable  {
 
         public final int loss;
@@ -116,8 +195,8 @@ public class EnergyTest {
         }
     }
 
-    /*public class TestEnergyNode implements IGTNode {
-        
+    public class TestEnergyNode implements IGTNode {
+
         public final long voltage;
         public final long amps;
 
@@ -136,15 +215,20 @@ public class EnergyTest {
         }
 
         @Override
-        public boolean extractEnergy(TransferData data) {
-            this.energy -= data.extractForNode(this);
-            return true;
+        public long extractEu(long voltage, boolean simulate) {
+            long extracted = Math.min(voltage, energy);
+            if (!simulate) {
+                this.energy -= extracted;
+            }
+            return extracted;
         }
 
         @Override
-        public boolean addEnergy(TransferData data) {
-            this.energy += data.consumeForNode(this);
-            return true;
+        public long insertEu(long voltage, boolean simulate) {
+            if (!simulate) {
+                this.energy += voltage;
+            }
+            return voltage;
         }
 
         @Override
@@ -202,5 +286,9 @@ public class EnergyTest {
             return state;
         }
 
-    }*/
+        @Override
+        public void tesseractTick() {
+            state.onTick();
+        }
+    }
 }
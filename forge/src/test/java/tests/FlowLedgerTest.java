@@ -0,0 +1,99 @@
+package tests;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.junit.Test;
+import tesseract.api.FlowLedger;
+import tesseract.graph.Grid;
+import tesseract.graph.Group;
+import tesseract.graph.Path;
+import tests.GraphTest.TestGraph;
+import tests.GraphTest.TestGraph.TestConnector;
+import tests.GraphTest.TestGraph.TestNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FlowLedgerTest {
+
+    private static final String[] KEYS = {"water", "lava"};
+
+    @Test
+    public void testSameAsPerConnectorLoads() {
+        Random random = new Random(11);
+        for (int run = 0; run < 100; run++) {
+            TestGraph graph = new GraphTest().randomGraph(random);
+            for (Group<Integer, TestConnector, TestNode> group : graph.getGroups().values()) {
+                for (Grid<TestConnector> grid : group.getGrids().values()) {
+                    List<Path<TestConnector>> paths = new ArrayList<>();
+                    for (long origin : grid.getNodes().keySet()) {
+                        for (Path<TestConnector> path : grid.getPaths(origin)) {
+                            if (!path.isEmpty()) {
+                                paths.add(path);
+                            }
+                        }
+                    }
+                    if (!paths.isEmpty()) {
+                        assertLoads(random, paths, false);
+                        assertLoads(random, paths, true);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Commits random packets through the ledger and checks the settled loads against the loads added to every
+     * connector of the routes, the way the controllers did before the ledger.
+     */
+    private static void assertLoads(Random random, List<Path<TestConnector>> paths, boolean crossroads) {
+        FlowLedger<TestConnector, String> ledger = new FlowLedger<>();
+        Map<String, Long2LongMap> expected = new HashMap<>();
+        for (int packet = 0; packet < 20; packet++) {
+            String key = KEYS[random.nextInt(KEYS.length)];
+            long amount = 1 + random.nextInt(100);
+            Long2LongMap loads = expected.computeIfAbsent(key, k -> new Long2LongOpenHashMap());
+            if (random.nextBoolean()) {
+                Path<TestConnector> path = paths.get(random.nextInt(paths.size()));
+                ledger.add(path, key, amount);
+                for (long pos : connectors(path, crossroads).keySet()) {
+                    loads.mergeLong(pos, amount, Long::sum);
+                }
+            } else {
+                // A packet reaching several consumers counts once for every connector, however many routes share it.
+                LongSet union = new LongOpenHashSet();
+                for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                    Path<TestConnector> path = paths.get(random.nextInt(paths.size()));
+                    ledger.include(path);
+                    union.addAll(connectors(path, crossroads).keySet());
+                }
+                ledger.commit(key, amount);
+                for (long pos : union) {
+                    loads.mergeLong(pos, amount, Long::sum);
+                }
+            }
+        }
+
+        Map<String, Long2LongMap> settled = new HashMap<>();
+        ledger.settle(crossroads, (pos, connector, key, load) -> settled.computeIfAbsent(key, k -> new Long2LongOpenHashMap()).mergeLong(pos, load, Long::sum));
+        expected.values().removeIf(Map::isEmpty);
+        assertEquals(expected, settled);
+
+        // Everything was reported, the next settle is empty.
+        ledger.settle(crossroads, (pos, connector, key, load) -> {
+            throw new AssertionError("Settled twice at " + pos);
+        });
+    }
+
+    private static Long2ObjectMap<TestConnector> connectors(Path<TestConnector> path, boolean crossroads) {
+        return crossroads ? path.getCross() : path.getFull();
+    }
+}
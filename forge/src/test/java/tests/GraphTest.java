@@ -1,10 +1,20 @@
 package tests;
 
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.core.Direction;
 import net.minecraft.world.level.Level;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
+import tesseract.Tesseract;
 import tesseract.api.Controller;
+import tesseract.api.GraphWrapper;
 import tesseract.api.IConnectable;
 import tesseract.api.ITickingController;
 import tesseract.api.capability.ITransactionModifier;
@@ -12,11 +22,25 @@ import tesseract.graph.Cache;
 import tesseract.graph.Connectivity;
 import tesseract.graph.Graph;
 import tesseract.graph.Graph.INodeGetter;
+import tesseract.graph.Grid;
+import tesseract.graph.Group;
 import tesseract.graph.INode;
 import tesseract.graph.NodeCache;
+import tesseract.graph.Path;
+import tesseract.graph.traverse.ASFinder;
+import tesseract.graph.traverse.BFTree;
+import tesseract.util.Node;
 import tesseract.util.Pos;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import static org.junit.Assert.assertEquals;
@@ -92,6 +116,486 @@ public class GraphTest {
     assertEquals(graph.getGroupAt(0).getGrids().size(), 2);
   }
 
+  @Test
+  public void addConnectorsInBulk() {
+    var graph = defaultGraph();
+    long node = Pos.packAll(2, 1, 0);
+    graph.addConnector(Pos.packAll(-1, 0, 0), Cache.of(defaultConnector()));
+    graph.addConnector(Pos.packAll(5, 0, 0), Cache.of(defaultConnector()));
+    graph.addNode(NodeCache.of(node, new TestGraph.TestNode()));
+    assertEquals(graph.countGroups(), 3);
+
+    Long2ObjectMap<Cache<TestGraph.TestConnector>> batch = new Long2ObjectLinkedOpenHashMap<>();
+    for (int x = 0; x < 5; x++) {
+      batch.put(Pos.packAll(x, 0, 0), Cache.of(defaultConnector()));
+    }
+    batch.put(Pos.packAll(0, 5, 0), Cache.of(defaultConnector()));
+    batch.put(Pos.packAll(1, 5, 0), Cache.of(defaultConnector()));
+    graph.addConnectors(batch);
+
+    assertEquals(graph.countGroups(), 2);
+    assertEquals(graph.size(), 10);
+    var group = graph.getGroupAt(0);
+    assertEquals(group.countBlocks(), 8);
+    assertEquals(group.getGrids().size(), 1);
+    var grid = group.getGrids().values().iterator().next();
+    assertEquals(grid.countConnectors(), 7);
+    assertTrue(grid.getNodes().containsKey(node));
+    assertEquals(graph.getGroupAt(Pos.packAll(0, 5, 0)).countBlocks(), 2);
+  }
+
+  @Test
+  public void registerConnectorsBeforeFirstTick() {
+    Tesseract.TEST = true;
+    LongSet nodes = new LongOpenHashSet();
+    nodes.add(Pos.packAll(3, 1, 0));
+    nodes.add(Pos.packAll(10, 0, 0));
+    nodes.add(Pos.packAll(5, -1, 0));
+    nodes.add(Pos.packAll(1, 1, 0)); // touches two connectors
+    nodes.add(Pos.packAll(0, 0, 6));
+    LongArrayList connectors = new LongArrayList();
+    for (int x = 0; x < 10; x++) {
+      connectors.add(Pos.packAll(x, 0, 0));
+    }
+    connectors.add(Pos.packAll(0, 1, 0));
+    connectors.add(Pos.packAll(1, 2, 0));
+    connectors.add(Pos.packAll(0, 0, 5));
+
+    TestWrapper single = new TestWrapper(nodes, true);
+    TestWrapper pending = new TestWrapper(nodes, false);
+    TestWrapper bulk = new TestWrapper(nodes, true);
+    for (long pos : connectors) {
+      single.registerConnector(null, pos, defaultConnector(), true);
+      pending.registerConnector(null, pos, defaultConnector(), true);
+    }
+    bulk.registerConnectors(null, connectors, pos -> defaultConnector());
+
+    // Before the first tick the connectors are in the graph, only their adjacent nodes are missing.
+    assertEquals(connectors.size(), pending.getGraph(null).size());
+    assertTrue(pending.getGraph(null).getGroupAt(Pos.packAll(4, 0, 0)) != null);
+    pending.ticked = true;
+    pending.onFirstTick(null);
+
+    assertEquals(connectors.size() + nodes.size(), single.getGraph(null).size());
+    assertEquals(describe(single), describe(pending));
+    assertEquals(describe(single), describe(bulk));
+  }
+
+  private static Set<String> describe(TestWrapper wrapper) {
+    Set<String> groups = new TreeSet<>();
+    for (Group<Integer, TestGraph.TestConnector, TestGraph.TestNode> group : wrapper.getGraph(null).getGroups().values()) {
+      StringBuilder builder = new StringBuilder(new TreeSet<>(group.getBlocks()).toString());
+      for (long pos : new TreeSet<>(group.getNodes().keySet())) {
+        builder.append(' ').append(pos).append(':').append(group.getNodes().get(pos).capCount());
+      }
+      builder.append(" grids ").append(group.getGrids().size());
+      groups.add(builder.toString());
+    }
+    return groups;
+  }
+
+  @Test
+  public void coalescedChanges() {
+    TestGraph graph = new TestGraph(CountingController::new);
+    graph.addNode(NodeCache.of(0, new TestGraph.TestNode()));
+    for (int x = 1; x < 5; x++) {
+      graph.addConnector(Pos.packAll(x, 0, 0), Cache.of(defaultConnector()));
+    }
+    graph.addNode(NodeCache.of(Pos.packAll(5, 0, 0), new TestGraph.TestNode()));
+    CountingController controller = (CountingController) graph.getGroupAt(0).getController();
+    graph.tick(group -> group.getController().tick());
+    assertEquals(1, controller.changes);
+
+    // Every change of a tick is rebuilt at once, on the next tick.
+    for (int y = 1; y < 4; y++) {
+      graph.addConnector(Pos.packAll(1, y, 0), Cache.of(defaultConnector()));
+    }
+    graph.addNode(NodeCache.of(Pos.packAll(1, 4, 0), new TestGraph.TestNode()));
+    graph.removeAt(Pos.packAll(5, 0, 0));
+    assertEquals(1, controller.changes);
+    assertTrue(controller.isChanged());
+    graph.tick(group -> group.getController().tick());
+    assertEquals(2, controller.changes);
+
+    // Without changes nothing is rebuilt.
+    graph.tick(group -> group.getController().tick());
+    assertEquals(2, controller.changes);
+  }
+
+  @Test
+  public void removeFromLoop() {
+    var graph = defaultGraph();
+    for (int x = 0; x < 3; x++) {
+      for (int y = 0; y < 3; y++) {
+        if (x != 1 || y != 1) {
+          graph.addConnector(Pos.packAll(x, y, 0), Cache.of(defaultConnector()));
+        }
+      }
+    }
+    assertEquals(graph.countGroups(), 1);
+    graph.getGroupAt(0).updateIndex();
+
+    graph.removeAt(Pos.packAll(1, 0, 0));
+    assertEquals(graph.countGroups(), 1);
+    assertEquals(graph.getGroupAt(0).getGrids().size(), 1);
+    assertEquals(graph.size(), 7);
+
+    graph.removeAt(Pos.packAll(1, 2, 0));
+    assertEquals(graph.countGroups(), 2);
+    assertEquals(graph.size(), 6);
+  }
+
+  @Test
+  public void removeAllFromLoop() {
+    var graph = defaultGraph();
+    for (int x = 0; x < 3; x++) {
+      for (int y = 0; y < 3; y++) {
+        if (x != 1 || y != 1) {
+          graph.addConnector(Pos.packAll(x, y, 0), Cache.of(defaultConnector()));
+        }
+      }
+    }
+    graph.getGroupAt(0).updateIndex();
+
+    LongSet removed = new LongOpenHashSet();
+    removed.add(Pos.packAll(1, 0, 0));
+    removed.add(Pos.packAll(1, 2, 0));
+    removed.add(Pos.packAll(9, 9, 9));
+    assertEquals(graph.removeAll(removed).size(), 2);
+    assertEquals(graph.countGroups(), 2);
+    assertEquals(graph.size(), 6);
+    assertEquals(graph.getGroupAt(0).getGrids().size(), 1);
+    assertEquals(graph.getGroupAt(Pos.packAll(2, 0, 0)).countBlocks(), 3);
+  }
+
+  @Test
+  public void removeAllWithManyRoots() {
+    var graph = defaultGraph();
+    for (int x = 0; x < 40; x++) {
+      for (int y = 0; y < 40; y++) {
+        graph.addConnector(Pos.packAll(x, y, 0), Cache.of(defaultConnector()));
+      }
+    }
+    graph.getGroupAt(0).updateIndex();
+
+    // Holes in two columns leave the plane connected, every hole is a root of the split test.
+    LongSet removed = new LongOpenHashSet();
+    for (int y = 0; y < 40; y += 2) {
+      removed.add(Pos.packAll(10, y, 0));
+      removed.add(Pos.packAll(30, y + 1, 0));
+    }
+    assertEquals(graph.removeAll(removed).size(), 40);
+    assertEquals(graph.countGroups(), 1);
+    assertEquals(graph.size(), 1560);
+
+    // A full column cuts the plane in two.
+    removed.clear();
+    for (int y = 0; y < 40; y++) {
+      removed.add(Pos.packAll(20, y, 0));
+    }
+    assertEquals(graph.removeAll(removed).size(), 40);
+    assertEquals(graph.countGroups(), 2);
+    assertEquals(graph.getGroupAt(0).countBlocks(), 780);
+    assertEquals(graph.getGroupAt(Pos.packAll(39, 0, 0)).countBlocks(), 740);
+  }
+
+  @Test
+  public void repairedIndexMatchesFreshGraph() {
+    Random random = new Random(11);
+    for (int run = 0; run < 100; run++) {
+      // Connectors linked on one side only join grids depending on the order they are added in, and nodes are left
+      // out as the grids are not split along them.
+      TestGraph graph = rebuild(randomGraph(random), true);
+      graph.getGroups().values().forEach(Group::updateIndex);
+      Long2ObjectMap<Cache<TestGraph.TestConnector>> removed = new Long2ObjectLinkedOpenHashMap<>();
+      long added = Long.MAX_VALUE;
+      for (int step = 0; step < 40; step++) {
+        LongArrayList connectors = new LongArrayList();
+        for (Group<Integer, TestGraph.TestConnector, TestGraph.TestNode> group : graph.getGroups().values()) {
+          for (Grid<TestGraph.TestConnector> grid : group.getGrids().values()) {
+            connectors.addAll(grid.getConnectors().keySet());
+          }
+        }
+        if (random.nextBoolean()) {
+          // Otherwise most changes find the indices stale, which are then rebuilt by the next removal needing them.
+          graph.getGroups().values().forEach(Group::updateIndex);
+        }
+        if (!removed.isEmpty() && (connectors.isEmpty() || random.nextInt(3) == 0)) {
+          // Adding a connector back extends a block or joins several.
+          added = removed.keySet().iterator().nextLong();
+          graph.addConnector(added, removed.remove(added));
+        } else if (!connectors.isEmpty()) {
+          // The indices are repaired in place by the removals which do not split, a neighbor of the last added
+          // connector is removed first to test the block the addition left.
+          long pos = connectors.getLong(random.nextInt(connectors.size()));
+          long side = added == Long.MAX_VALUE ? pos : Pos.offset(added, Graph.DIRECTIONS[random.nextInt(6)]);
+          if (graph.contains(side)) {
+            pos = side;
+          }
+          added = Long.MAX_VALUE;
+          removed.put(pos, graph.getGroupAt(pos).getConnector(pos));
+          graph.removeAt(pos);
+        }
+        assertEquals(describe(rebuild(graph, false)), describe(graph));
+      }
+    }
+  }
+
+  /**
+   * @param full Whether the connectors are replaced by connectors linking all of their sides, and the nodes left out.
+   * @return Creates a graph of the same nodes and connectors, added in a different order.
+   */
+  private TestGraph rebuild(TestGraph graph, boolean full) {
+    TestGraph fresh = defaultGraph();
+    List<Group<Integer, TestGraph.TestConnector, TestGraph.TestNode>> groups = new ArrayList<>(graph.getGroups().values());
+    for (int i = groups.size() - 1; i >= 0; i--) {
+      for (Grid<TestGraph.TestConnector> grid : groups.get(i).getGrids().values()) {
+        for (Long2ObjectMap.Entry<Cache<TestGraph.TestConnector>> e : grid.getConnectors().long2ObjectEntrySet()) {
+          fresh.addConnector(e.getLongKey(), full ? Cache.of(defaultConnector()) : e.getValue());
+        }
+      }
+      for (Long2ObjectMap.Entry<NodeCache<TestGraph.TestNode>> e : groups.get(i).getNodes().long2ObjectEntrySet()) {
+        if (!full) {
+          fresh.addNode(e.getValue());
+        }
+      }
+    }
+    return fresh;
+  }
+
+  /**
+   * @return Describes the groups of a graph by their sizes and the sizes of their grids.
+   */
+  private static String describe(TestGraph graph) {
+    Set<String> groups = new TreeSet<>();
+    for (Group<Integer, TestGraph.TestConnector, TestGraph.TestNode> group : graph.getGroups().values()) {
+      List<Integer> grids = new ArrayList<>();
+      for (Grid<TestGraph.TestConnector> grid : group.getGrids().values()) {
+        grids.add(grid.countConnectors());
+      }
+      grids.sort(null);
+      groups.add(new TreeSet<>(group.getNodes().keySet()) + "/" + group.countBlocks() + grids);
+    }
+    return graph.countGroups() + " " + groups;
+  }
+
+  @Test
+  public void gridPaths() {
+    var graph = defaultGraph();
+    long origin = Pos.packAll(0, 0, 0);
+    long target = Pos.packAll(4, 0, 0);
+    long other = Pos.packAll(2, 1, 0);
+    for (int x = 1; x < 4; x++) {
+      graph.addConnector(Pos.packAll(x, 0, 0), Cache.of(defaultConnector()));
+    }
+    graph.addNode(NodeCache.of(origin, new TestGraph.TestNode()));
+    graph.addNode(NodeCache.of(target, new TestGraph.TestNode()));
+    graph.addNode(NodeCache.of(other, new TestGraph.TestNode()));
+
+    Grid<TestGraph.TestConnector> grid = graph.getGroupAt(origin).getGrids().values().iterator().next();
+    List<Path<TestGraph.TestConnector>> paths = grid.getPaths(origin);
+    assertEquals(paths.size(), 2);
+    for (Path<TestGraph.TestConnector> path : paths) {
+      assertEquals(path.origin().asLong(), origin);
+      if (path.target().asLong() == target) {
+        assertEquals(path.getFull().size(), 3);
+        assertEquals(path.target().getDirection(), Direction.WEST);
+        assertTrue(path.getCross().containsKey(Pos.packAll(2, 0, 0)));
+      } else {
+        assertEquals(path.target().asLong(), other);
+        assertEquals(path.getFull().size(), 2);
+      }
+    }
+  }
+
+  @Test
+  public void asFinderMatchesTree() {
+    Random random = new Random(3);
+    for (int run = 0; run < 100; run++) {
+      TestGraph graph = randomGraph(random);
+      for (Group<Integer, TestGraph.TestConnector, TestGraph.TestNode> group : graph.getGroups().values()) {
+        for (Grid<TestGraph.TestConnector> grid : group.getGrids().values()) {
+          ASFinder finder = new ASFinder(grid);
+          BFTree tree = new BFTree(grid);
+          for (long origin : grid.getNodes().keySet()) {
+            Long2IntMap lengths = new Long2IntOpenHashMap();
+            tree.traverse(origin, grid.getNodes().keySet(), path -> lengths.put(path.getFirst().asLong(), path.size()));
+            for (long target : grid.getNodes().keySet()) {
+              if (target != origin) {
+                // Both search the shortest paths, so they only differ in which of the equally long ones they take.
+                assertEquals(lengths.get(target), finder.traverse(origin, target).size());
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void denseTreeMatchesPlainTree() {
+    Random random = new Random(5);
+    for (int run = 0; run < 100; run++) {
+      TestGraph graph = randomGraph(random);
+      for (int round = 0; round < 3; round++) {
+        LongArrayList connectors = new LongArrayList();
+        for (Group<Integer, TestGraph.TestConnector, TestGraph.TestNode> group : graph.getGroups().values()) {
+          for (Grid<TestGraph.TestConnector> grid : group.getGrids().values()) {
+            assertDenseTree(grid);
+            connectors.addAll(grid.getConnectors().keySet());
+          }
+        }
+        // The indices of the grids are updated in place by the removals, or built again when the grids split.
+        for (int i = 0; i < 3 && !connectors.isEmpty(); i++) {
+          long pos = connectors.getLong(random.nextInt(connectors.size()));
+          if (graph.contains(pos)) {
+            graph.removeAt(pos);
+          }
+        }
+      }
+    }
+  }
+
+  private static void assertDenseTree(Grid<TestGraph.TestConnector> grid) {
+    BFTree plain = new BFTree(grid);
+    for (long origin : grid.getNodes().keySet()) {
+      Long2IntMap expected = new Long2IntOpenHashMap();
+      plain.traverse(origin, grid.getNodes().keySet(), path -> expected.put(path.getFirst().asLong(), path.size()));
+      // Getting the paths brings the indices of the grid up to date, which the dense tree walks.
+      grid.getPaths(origin);
+      Long2IntMap lengths = new Long2IntOpenHashMap();
+      grid.createTree().traverse(origin, grid.getNodes().keySet(), path -> {
+        Node[] nodes = path.toArray(new Node[0]);
+        assertEquals(origin, nodes[nodes.length - 1].asLong());
+        for (int i = 0; i < nodes.length - 1; i++) {
+          long pos = nodes[i].asLong();
+          assertEquals(Pos.offset(pos, nodes[i].getDirection()), nodes[i + 1].asLong());
+          assertTrue(grid.contains(pos) && grid.connects(pos, nodes[i].getDirection()));
+        }
+        lengths.put(nodes[0].asLong(), nodes.length);
+      });
+      assertEquals(expected, lengths);
+    }
+  }
+
+  @Test
+  public void pathTreeMatchesPathLists() {
+    Random random = new Random(7);
+    for (int run = 0; run < 100; run++) {
+      TestGraph graph = randomGraph(random);
+      for (Group<Integer, TestGraph.TestConnector, TestGraph.TestNode> group : graph.getGroups().values()) {
+        for (Grid<TestGraph.TestConnector> grid : group.getGrids().values()) {
+          for (long origin : grid.getNodes().keySet()) {
+            RecordingTree tree = new RecordingTree(grid);
+            List<Path<TestGraph.TestConnector>> paths = grid.getPaths(origin, tree);
+            assertEquals(tree.paths.size(), paths.size());
+            for (int i = 0; i < paths.size(); i++) {
+              assertPathLists(grid, tree.paths.get(i), paths.get(i));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks a path against the lists the path used to copy out of its queue.
+   */
+  private static void assertPathLists(Grid<TestGraph.TestConnector> grid, Deque<Node> queue, Path<TestGraph.TestConnector> path) {
+    assertEquals(queue.peekLast(), path.origin());
+    assertEquals(queue.peekFirst(), path.target());
+    List<String> full = new ArrayList<>();
+    List<String> cross = new ArrayList<>();
+    Iterator<Node> it = queue.descendingIterator();
+    it.next();
+    while (it.hasNext()) {
+      Node node = it.next();
+      Cache<TestGraph.TestConnector> cache = grid.getConnectors().get(node.asLong());
+      if (it.hasNext() && cache != null) {
+        full.add(node.asLong() + "=" + System.identityHashCode(cache.value()));
+        if (node.isCrossroad()) {
+          cross.add(node.asLong() + "=" + System.identityHashCode(cache.value()));
+        }
+      }
+    }
+    assertEquals(full, entries(path.getFull()));
+    assertEquals(cross, entries(path.getCross()));
+  }
+
+  private static List<String> entries(Long2ObjectMap<TestGraph.TestConnector> connectors) {
+    List<String> list = new ArrayList<>();
+    for (Long2ObjectMap.Entry<TestGraph.TestConnector> e : connectors.long2ObjectEntrySet()) {
+      list.add(e.getLongKey() + "=" + System.identityHashCode(e.getValue()));
+    }
+    return list;
+  }
+
+  /**
+   * A plain tree keeping a copy of every path queue it hands out.
+   */
+  private static class RecordingTree extends BFTree {
+
+    private final List<Deque<Node>> paths = new ArrayList<>();
+
+    private RecordingTree(INode container) {
+      super(container);
+    }
+
+    @Override
+    public void traverse(long origin, LongCollection targets, Consumer<Deque<Node>> path) {
+      super.traverse(origin, targets, queue -> {
+        paths.add(new ArrayDeque<>(queue));
+        path.accept(queue);
+      });
+    }
+  }
+
+  /**
+   * @return Creates a graph of a few random walks of connectors with some nodes on them, some of the connectors
+   * only connecting to some of their sides.
+   */
+  TestGraph randomGraph(Random random) {
+    return randomGraph(random, () -> new TestController(null, null));
+  }
+
+  /**
+   * @return Creates a graph like {@link #randomGraph(Random)}, with groups of the given controller.
+   */
+  TestGraph randomGraph(Random random, Supplier<Controller<Integer, TestGraph.TestConnector, TestGraph.TestNode>> controller) {
+    TestGraph graph = new TestGraph(controller);
+    int n = 4 + random.nextInt(12);
+    LongOpenHashSet cells = new LongOpenHashSet();
+    int walkers = 1 + random.nextInt(4);
+    for (int w = 0; w < walkers; w++) {
+      int x = random.nextInt(n), y = random.nextInt(n), z = random.nextInt(3);
+      Direction direction = Graph.DIRECTIONS[random.nextInt(6)];
+      for (int s = 0; s < 20 + random.nextInt(60); s++) {
+        if (random.nextInt(6) == 0) {
+          direction = Graph.DIRECTIONS[random.nextInt(6)];
+        }
+        x = Math.max(0, Math.min(n, x + direction.getStepX()));
+        y = Math.max(0, Math.min(n, y + direction.getStepY()));
+        z = Math.max(0, Math.min(3, z + direction.getStepZ()));
+        cells.add(Pos.packAll(x, y, z));
+      }
+    }
+    for (long pos : cells) {
+      if (random.nextInt(8) == 0) {
+        graph.addNode(NodeCache.of(pos, new TestGraph.TestNode()));
+        continue;
+      }
+      TestGraph.TestConnector connector = new TestGraph.TestConnector();
+      connector.connections = 0;
+      for (Direction direction : Graph.DIRECTIONS) {
+        if (cells.contains(Pos.offset(pos, direction)) && random.nextInt(12) != 0) {
+          connector.connections = Connectivity.set(connector.connections, direction.get3DDataValue());
+        }
+      }
+      graph.addConnector(pos, Cache.of(connector));
+    }
+    return graph;
+  }
+
   public class TestGraph extends Graph<Integer, TestGraph.TestConnector, TestGraph.TestNode> {
 
     public TestGraph(Supplier<Controller<Integer, TestConnector, TestNode>> controller) {
@@ -127,6 +631,40 @@ public class GraphTest {
     }
   }
 
+  public class TestWrapper extends GraphWrapper<Integer, TestGraph.TestConnector, TestGraph.TestNode> {
+
+    private boolean ticked;
+
+    public TestWrapper(LongSet nodes, boolean ticked) {
+      super(TestController::new, (level, pos, side, callback) -> nodes.contains(pos) ? new TestGraph.TestNode() : null);
+      this.ticked = ticked;
+    }
+
+    @Override
+    protected boolean hadFirstTick(Level dim) {
+      return ticked;
+    }
+  }
+
+  public class CountingController extends TestController {
+
+    int changes;
+
+    protected CountingController() {
+      super(null, null);
+    }
+
+    @Override
+    public void change() {
+      changes++;
+    }
+
+    @Override
+    public ITickingController<Integer, TestGraph.TestConnector, TestGraph.TestNode> clone(INode group) {
+      return new CountingController();
+    }
+  }
+
   public class TestController extends Controller<Integer, TestGraph.TestConnector, TestGraph.TestNode> {
 
     protected TestController(Level supplier, INodeGetter<TestGraph.TestNode> getter) {
@@ -0,0 +1,70 @@
+package tests;
+
+import org.junit.Test;
+import tesseract.api.gt.GTHolder;
+import tesseract.api.item.ItemHolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class HolderTest {
+
+    @Test
+    public void testGTHolderEpochs() {
+        long holder = GTHolder.create(null, 0);
+        assertEquals(0, GTHolder.getAmperage(holder, 1));
+        holder = GTHolder.add(holder, 1, 3);
+        holder = GTHolder.add(holder, 1, 2);
+        assertEquals(5, GTHolder.getAmperage(holder, 1));
+        // A holder of an earlier tick reads as empty, and is started again by the next write.
+        assertEquals(0, GTHolder.getAmperage(holder, 2));
+        holder = GTHolder.add(holder, 2, 4);
+        assertEquals(4, GTHolder.getAmperage(holder, 2));
+        assertEquals(2, GTHolder.getEpoch(holder));
+    }
+
+    @Test
+    public void testGTHolderRollover() {
+        // The game time is cast to an int, so the stamps run through the negative ticks.
+        long[] times = {Integer.MAX_VALUE - 1L, Integer.MAX_VALUE, Integer.MAX_VALUE + 1L, 0xFFFFFFFFL, 1L << 32, (1L << 32) + 1};
+        long holder = GTHolder.create(null, 0);
+        for (long time : times) {
+            int epoch = (int) time;
+            assertEquals(0, GTHolder.getAmperage(holder, epoch));
+            holder = GTHolder.add(holder, epoch, 7);
+            holder = GTHolder.add(holder, epoch, 1);
+            assertEquals(epoch, GTHolder.getEpoch(holder));
+            assertEquals(8, GTHolder.getAmperage(holder, epoch));
+            assertEquals(8, GTHolder.getAmperage(holder));
+        }
+    }
+
+    @Test
+    public void testItemHolderEpochs() {
+        int holder = 0;
+        holder = ItemHolder.add(holder, 5, 2);
+        holder = ItemHolder.add(holder, 5, 1);
+        assertEquals(3, ItemHolder.getCount(holder, 5));
+        assertEquals(0, ItemHolder.getCount(holder, 6));
+        holder = ItemHolder.add(holder, 6, 1);
+        assertEquals(1, ItemHolder.getCount(holder, 6));
+    }
+
+    @Test
+    public void testItemHolderRollover() {
+        // The stamp keeps the low 16 bits of the frame, so it wraps without carrying into the count.
+        int holder = ItemHolder.add(0, 0xFFFF, 4);
+        assertEquals(4, ItemHolder.getCount(holder, 0xFFFF));
+        assertEquals(0, ItemHolder.getCount(holder, 0x10000));
+        holder = ItemHolder.add(holder, 0x10000, 2);
+        assertEquals(2, ItemHolder.getCount(holder, 0x10000));
+        // Negative frames keep working past the int rollover.
+        holder = ItemHolder.add(holder, Integer.MIN_VALUE + 3, 3);
+        assertEquals(3, ItemHolder.getCount(holder, Integer.MIN_VALUE + 3));
+        assertEquals(0, ItemHolder.getCount(holder, Integer.MIN_VALUE + 4));
+        // Unused for a whole cycle of the stamp, the old count is read once, as documented.
+        assertEquals(3, ItemHolder.getCount(holder, Integer.MIN_VALUE + 3 + 0x10000));
+        // The count saturates instead of spilling into the stamp.
+        holder = ItemHolder.add(holder, 9, 0x1FFFF);
+        assertEquals(0xFFFF, ItemHolder.getCount(holder, 9));
+    }
+}
@@ -0,0 +1,98 @@
+package tests;
+
+import carbonconfiglib.config.ConfigEntry;
+import net.minecraft.core.Direction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tesseract.TesseractConfig;
+import tesseract.graph.Cache;
+import tesseract.graph.Group;
+import tesseract.graph.NodeCache;
+import tesseract.util.Pos;
+import tests.GraphTest.TestGraph;
+import tests.GraphTest.TestGraph.TestConnector;
+import tests.GraphTest.TestGraph.TestNode;
+import tests.RouteRetentionTest.RouteController;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelBuildTest {
+
+    private ConfigEntry.IntValue size;
+
+    @Before
+    public void setSize() {
+        size = TesseractConfig.PARALLEL_REBUILD_SIZE;
+    }
+
+    @After
+    public void resetSize() {
+        TesseractConfig.PARALLEL_REBUILD_SIZE = size;
+    }
+
+    @Test
+    public void testSameAsSequentialBuild() {
+        Random random = new Random(13);
+        for (int run = 0; run < 50; run++) {
+            TestGraph graph = new GraphTest().randomGraph(random, RouteController::new);
+            for (Group<Integer, TestConnector, TestNode> group : graph.getGroups().values()) {
+                assertSameRoutes(group);
+            }
+        }
+    }
+
+    @Test
+    public void testSameAsSequentialBuildOnLargeGroup() {
+        // A plane of connectors with enough nodes on it to split the searches among several tasks.
+        TestGraph graph = new GraphTest().new TestGraph(RouteController::new);
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                long pos = Pos.packAll(x, 0, z);
+                if (x % 4 == 1 && z % 4 == 1) {
+                    graph.addNode(NodeCache.of(pos, new TestNode()));
+                } else {
+                    graph.addConnector(pos, Cache.of(new TestConnector()));
+                }
+            }
+        }
+        assertEquals(1, graph.countGroups());
+        assertSameRoutes(graph.getGroupAt(0));
+    }
+
+    /**
+     * Builds the routes of the group on one thread and on several, and checks that both give the same routes, and that
+     * the nodes were only asked on the calling thread.
+     */
+    private void assertSameRoutes(Group<Integer, TestConnector, TestNode> group) {
+        TesseractConfig.PARALLEL_REBUILD_SIZE = new ConfigEntry.IntValue("parallel_rebuild_size", 0);
+        String expected = RouteController.rebuild(group).describe();
+
+        TesseractConfig.PARALLEL_REBUILD_SIZE = new ConfigEntry.IntValue("parallel_rebuild_size", 1);
+        ThreadController controller = new ThreadController();
+        controller.set(group);
+        controller.change();
+        assertEquals(expected, controller.describe());
+        controller.threads.remove(Thread.currentThread());
+        assertTrue(controller.threads.isEmpty());
+    }
+
+    /**
+     * A controller recording the threads its nodes are asked on.
+     */
+    private static class ThreadController extends RouteController {
+
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        protected boolean canOutput(TestNode node, Direction direction) {
+            threads.add(Thread.currentThread());
+            return true;
+        }
+    }
+}
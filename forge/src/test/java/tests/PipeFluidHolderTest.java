@@ -0,0 +1,158 @@
+package tests;
+
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.material.EmptyFluid;
+import net.minecraft.world.level.material.Fluid;
+import org.junit.Test;
+import tesseract.api.fluid.IFluidPipe;
+import tesseract.api.fluid.PipeFluidHolder;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PipeFluidHolderTest {
+
+    @Test
+    public void testSameAsFluidSet() {
+        Fluid[] fluids = new Fluid[5];
+        for (int i = 0; i < fluids.length; i++) {
+            fluids[i] = new EmptyFluid();
+        }
+        Random random = new Random(42);
+        for (int capacity = 1; capacity <= 3; capacity++) {
+            PipeFluidHolder holder = new PipeFluidHolder(new TestPipe(capacity, 100));
+            FluidSet expected = new FluidSet(capacity, 100);
+            for (long time = 0; time < 400; time++) {
+                holder.tick(time);
+                expected.tick(time);
+                int uses = random.nextInt(3);
+                for (int i = 0; i < uses; i++) {
+                    Fluid fluid = fluids[random.nextInt(fluids.length)];
+                    assertEquals(expected.allowFluid(fluid), holder.allowFluid(fluid));
+                    long pressure = random.nextInt(150);
+                    holder.use(pressure, fluid, time);
+                    expected.use(pressure, fluid, time);
+                }
+                for (Fluid fluid : fluids) {
+                    assertEquals(expected.allowFluid(fluid), holder.allowFluid(fluid));
+                }
+                assertEquals(expected.fluids.size(), holder.getCapacity());
+                assertEquals(expected.pressureAvailable, holder.getPressureAvailable());
+                assertEquals(expected.capacity < expected.fluids.size(), holder.isOverCapacity());
+                if (random.nextInt(50) == 0) {
+                    holder.clear();
+                    expected.clear();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIdleTicksAreCaughtUp() {
+        PipeFluidHolder holder = new PipeFluidHolder(new TestPipe(1, 10));
+        FluidSet expected = new FluidSet(1, 10);
+        Fluid fluid = new EmptyFluid();
+        holder.tick(0);
+        expected.tick(0);
+        holder.use(150, fluid, 0);
+        expected.use(150, fluid, 0);
+        // The holder is only brought up when it is used, the set was ticked on every tick.
+        for (long time = 1; time < 15; time++) {
+            expected.tick(time);
+        }
+        holder.tick(14);
+        assertEquals(expected.pressureAvailable, holder.getPressureAvailable());
+        assertEquals(expected.fluids.size(), holder.getCapacity());
+        for (long time = 15; time < 30; time++) {
+            expected.tick(time);
+        }
+        holder.tick(29);
+        assertEquals(expected.pressureAvailable, holder.getPressureAvailable());
+        assertEquals(expected.fluids.size(), holder.getCapacity());
+    }
+
+    /**
+     * The fluids of a pipe as they were kept before, a set of the fluids and the ticks they were added at.
+     */
+    private static class FluidSet {
+
+        final Map<Fluid, Long> fluids = new IdentityHashMap<>();
+        final int capacity;
+        final long tickPressure;
+        long pressureAvailable;
+
+        FluidSet(int capacity, long tickPressure) {
+            this.capacity = capacity;
+            this.tickPressure = tickPressure;
+            this.pressureAvailable = tickPressure * 20;
+        }
+
+        void tick(long time) {
+            pressureAvailable = Math.min(pressureAvailable + tickPressure, tickPressure * 20);
+            fluids.values().removeIf(added -> time - added >= 20);
+        }
+
+        void use(long pressure, Fluid fluid, long time) {
+            pressureAvailable -= pressure;
+            fluids.put(fluid, time);
+        }
+
+        boolean allowFluid(Fluid fluid) {
+            return fluids.containsKey(fluid) || capacity > fluids.size();
+        }
+
+        void clear() {
+            fluids.clear();
+            pressureAvailable = tickPressure * 20;
+        }
+    }
+
+    private static class TestPipe implements IFluidPipe {
+
+        private final int capacity;
+        private final long pressure;
+
+        TestPipe(int capacity, long pressure) {
+            this.capacity = capacity;
+            this.pressure = pressure;
+        }
+
+        @Override
+        public int getCapacity() {
+            return capacity;
+        }
+
+        @Override
+        public long getPressure() {
+            return pressure;
+        }
+
+        @Override
+        public int getTemperature() {
+            return 0;
+        }
+
+        @Override
+        public boolean isGasProof() {
+            return true;
+        }
+
+        @Override
+        public PipeFluidHolder getHolder() {
+            return null;
+        }
+
+        @Override
+        public boolean connects(Direction direction) {
+            return true;
+        }
+
+        @Override
+        public boolean validate(Direction dir) {
+            return true;
+        }
+    }
+}
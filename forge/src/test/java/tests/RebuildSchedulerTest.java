@@ -0,0 +1,131 @@
+package tests;
+
+import carbonconfiglib.config.ConfigEntry;
+import net.minecraft.core.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tesseract.TesseractConfig;
+import tesseract.api.Controller;
+import tesseract.api.ITickingController;
+import tesseract.api.RebuildScheduler;
+import tesseract.api.capability.ITransactionModifier;
+import tesseract.graph.Cache;
+import tesseract.graph.INode;
+import tesseract.graph.NodeCache;
+import tesseract.util.Pos;
+import tests.GraphTest.TestGraph;
+import tests.GraphTest.TestGraph.TestConnector;
+import tests.GraphTest.TestGraph.TestNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RebuildSchedulerTest {
+
+    private ConfigEntry.IntValue budget;
+
+    @Before
+    public void setBudget() {
+        budget = TesseractConfig.REBUILD_BUDGET;
+        // Every rebuild takes longer than the budget, so only one of them fits in a tick.
+        TesseractConfig.REBUILD_BUDGET = new ConfigEntry.IntValue("rebuild_budget", 1);
+    }
+
+    @After
+    public void resetBudget() {
+        TesseractConfig.REBUILD_BUDGET = budget;
+    }
+
+    @Test
+    public void testRebuildOrderAndCarryOver() {
+        List<RecordingController> rebuilt = new ArrayList<>();
+        TestGraph graph = new GraphTest().new TestGraph(() -> new RecordingController(rebuilt));
+        // Three groups of 2, 4 and 6 blocks, which are each a node at the end of a line of connectors.
+        int[] sizes = {2, 6, 4};
+        for (int z = 0; z < sizes.length; z++) {
+            graph.addNode(NodeCache.of(Pos.packAll(0, 0, z * 2), new TestNode()));
+            for (int x = 1; x < sizes[z]; x++) {
+                graph.addConnector(Pos.packAll(x, 0, z * 2), Cache.of(new TestConnector()));
+            }
+        }
+        assertEquals(3, graph.getGroups().size());
+        RecordingController small = controllerAt(graph, 0), large = controllerAt(graph, 2), medium = controllerAt(graph, 4);
+        RebuildScheduler scheduler = new RebuildScheduler();
+
+        // The largest group comes first, the others stay changed for the next ticks.
+        tick(graph, scheduler);
+        assertEquals(List.of(large), rebuilt);
+        assertFalse(large.isChanged());
+        assertTrue(medium.isChanged());
+        assertTrue(small.isChanged());
+
+        tick(graph, scheduler);
+        assertEquals(List.of(large, medium), rebuilt);
+        assertTrue(small.isChanged());
+
+        tick(graph, scheduler);
+        assertEquals(List.of(large, medium, small), rebuilt);
+        assertFalse(small.isChanged());
+
+        // Nothing is left to rebuild.
+        tick(graph, scheduler);
+        assertEquals(3, rebuilt.size());
+    }
+
+    private static RecordingController controllerAt(TestGraph graph, int z) {
+        return (RecordingController) graph.getGroupAt(Pos.packAll(0, 0, z)).getController();
+    }
+
+    private static void tick(TestGraph graph, RebuildScheduler scheduler) {
+        graph.getGroups().values().forEach(group -> {
+            group.getController().tick();
+            scheduler.offer(group.getController());
+        });
+        scheduler.run();
+    }
+
+    public static class RecordingController extends Controller<Integer, TestConnector, TestNode> {
+
+        private final List<RecordingController> rebuilt;
+
+        protected RecordingController(List<RecordingController> rebuilt) {
+            super(null, null);
+            this.rebuilt = rebuilt;
+        }
+
+        @Override
+        public void change() {
+            rebuilt.add(this);
+            long end = System.nanoTime() + 2_000_000L;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public ITickingController<Integer, TestConnector, TestNode> clone(INode group) {
+            return new RecordingController(rebuilt);
+        }
+
+        @Override
+        public void getInfo(long pos, @NotNull List<String> list) {
+
+        }
+
+        @Override
+        public void insert(long producerPos, Direction side, Integer transaction, ITransactionModifier modifier) {
+
+        }
+
+        @Override
+        protected void onFrame() {
+
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package tests;
+
+import org.junit.Test;
+import tesseract.api.Consumer;
+import tesseract.api.RouteCostModel;
+import tesseract.api.fluid.FluidConsumer;
+import tesseract.api.gt.GTConsumer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Integer.compare;
+import static org.junit.Assert.assertEquals;
+
+@SuppressWarnings("deprecation")
+public class RouteCostTest {
+
+    // The orders the routes were sorted by before the cost models
+    private static final Comparator<FluidConsumer> FLUID_ORDER = (t1, t2) -> (t1.getPriority() == 0 && t2.getPriority() == 0) ? compare(t1.getDistance(), t2.getDistance()) : compare(t2.getPriority(), t1.getPriority());
+    private static final Comparator<GTConsumer> GT_ORDER = (t1, t2) -> (t1.getDistance() == t2.getDistance()) ? Double.compare(t1.getLoss(), t2.getLoss()) : compare(t1.getDistance(), t2.getDistance());
+
+    @Test
+    public void testFluidOrder() {
+        Random random = new Random(42);
+        for (int run = 0; run < 100; run++) {
+            List<FluidConsumer> consumers = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                consumers.add(new TestFluidConsumer(random.nextInt(5) - 2, random.nextInt(8)));
+            }
+            List<FluidConsumer> expected = new ArrayList<>(consumers);
+            expected.sort(FLUID_ORDER);
+            List<FluidConsumer> deprecated = new ArrayList<>(consumers);
+            deprecated.sort(Consumer.COMPARATOR);
+            assertEquals(expected, deprecated);
+            RouteCostModel.sort(consumers, FluidConsumer.COST);
+            assertEquals(expected, consumers);
+        }
+    }
+
+    @Test
+    public void testGTOrder() {
+        Random random = new Random(42);
+        for (int run = 0; run < 100; run++) {
+            List<GTConsumer> consumers = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                // Losses one step of the fixed point apart must not share a key
+                double loss = random.nextInt(4) * 0.25 + random.nextInt(3) / 65536.0;
+                consumers.add(new TestGTConsumer(random.nextInt(4), loss));
+            }
+            List<GTConsumer> expected = new ArrayList<>(consumers);
+            expected.sort(GT_ORDER);
+            List<GTConsumer> deprecated = new ArrayList<>(consumers);
+            deprecated.sort(GTConsumer.COMPARATOR);
+            assertEquals(expected, deprecated);
+            RouteCostModel.sort(consumers, GTConsumer.COST);
+            assertEquals(expected, consumers);
+        }
+    }
+
+    public static class TestFluidConsumer extends FluidConsumer {
+
+        private final int priority;
+        private final int distance;
+
+        public TestFluidConsumer(int priority, int distance) {
+            super(null, null, null, null);
+            this.priority = priority;
+            this.distance = distance;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public int getDistance() {
+            return distance;
+        }
+
+        @Override
+        public String toString() {
+            return priority + "/" + distance;
+        }
+    }
+
+    public static class TestGTConsumer extends GTConsumer {
+
+        private final int distance;
+        private final double loss;
+
+        public TestGTConsumer(int distance, double loss) {
+            super(null, null, null);
+            this.distance = distance;
+            this.loss = loss;
+        }
+
+        @Override
+        public int getDistance() {
+            return distance;
+        }
+
+        @Override
+        public double getLoss() {
+            return loss;
+        }
+
+        @Override
+        public String toString() {
+            return distance + "/" + loss;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package tests;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.core.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+import tesseract.api.Consumer;
+import tesseract.api.Controller;
+import tesseract.api.ITickingController;
+import tesseract.api.capability.ITransactionModifier;
+import tesseract.graph.Cache;
+import tesseract.graph.Grid;
+import tesseract.graph.Group;
+import tesseract.graph.INode;
+import tesseract.graph.NodeCache;
+import tesseract.graph.Path;
+import tesseract.util.Node;
+import tesseract.util.Pos;
+import tests.GraphTest.TestGraph;
+import tests.GraphTest.TestGraph.TestConnector;
+import tests.GraphTest.TestGraph.TestNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class RouteRetentionTest {
+
+    private static final long BRIDGE = Pos.packAll(4, 0, 0);
+
+    /**
+     * Two networks, each with two nodes on a line of connectors, which the bridge joins into one.
+     */
+    private static TestGraph twoNetworks() {
+        TestGraph graph = new GraphTest().new TestGraph(RouteController::new);
+        graph.addNode(NodeCache.of(Pos.packAll(0, 0, 0), new TestNode()));
+        graph.addNode(NodeCache.of(Pos.packAll(2, 1, 0), new TestNode()));
+        graph.addNode(NodeCache.of(Pos.packAll(8, 0, 0), new TestNode()));
+        graph.addNode(NodeCache.of(Pos.packAll(6, -1, 0), new TestNode()));
+        for (int x = 1; x < 8; x++) {
+            if (x != 4) {
+                graph.addConnector(Pos.packAll(x, 0, 0), Cache.of(new TestConnector()));
+            }
+        }
+        return graph;
+    }
+
+    private static void tick(TestGraph graph) {
+        graph.getGroups().values().forEach(group -> group.getController().tick());
+        graph.getGroups().values().forEach(group -> ((RouteController) group.getController()).changes = 0);
+    }
+
+    @Test
+    public void testSplitKeepsRoutes() {
+        TestGraph graph = twoNetworks();
+        graph.addConnector(BRIDGE, Cache.of(new TestConnector()));
+        assertEquals(1, graph.countGroups());
+        tick(graph);
+
+        graph.removeAt(BRIDGE);
+        assertEquals(2, graph.countGroups());
+        for (Group<Integer, TestConnector, TestNode> group : graph.getGroups().values()) {
+            RouteController controller = (RouteController) group.getController();
+            controller.tick();
+            // The routes of both parts are taken from the joined network, not built from scratch.
+            assertEquals(0, controller.changes);
+            assertEquals(RouteController.rebuild(group).describe(), controller.describe());
+        }
+    }
+
+    @Test
+    public void testMergeKeepsRoutes() {
+        TestGraph graph = twoNetworks();
+        assertEquals(2, graph.countGroups());
+        tick(graph);
+
+        graph.addConnector(BRIDGE, Cache.of(new TestConnector()));
+        assertEquals(1, graph.countGroups());
+        Group<Integer, TestConnector, TestNode> group = graph.getGroupAt(BRIDGE);
+        RouteController controller = (RouteController) group.getController();
+        controller.tick();
+        // The routes of both networks are kept, only the routes over the bridge are added.
+        assertEquals(0, controller.changes);
+        assertEquals(RouteController.rebuild(group).describe(), controller.describe());
+    }
+
+    public static class RouteConsumer extends Consumer<TestConnector, TestNode> {
+
+        private final long target;
+
+        public RouteConsumer(TestNode node, Path<TestConnector> path, long target) {
+            super(node, node, path);
+            this.target = target;
+            init();
+        }
+
+        @Override
+        protected void onConnectorCatch(long pos, TestConnector connector) {
+
+        }
+
+        @Override
+        protected int getPriority() {
+            return 0;
+        }
+    }
+
+    /**
+     * A controller keeping its routes the way the controllers of the mod do.
+     */
+    public static class RouteController extends Controller<Integer, TestConnector, TestNode> {
+
+        private final Long2ObjectMap<Map<Direction, List<RouteConsumer>>> data = new Long2ObjectLinkedOpenHashMap<>();
+        int changes;
+
+        public RouteController() {
+            super(null, null);
+        }
+
+        static RouteController rebuild(Group<Integer, TestConnector, TestNode> group) {
+            RouteController controller = new RouteController();
+            controller.set(group);
+            controller.change();
+            return controller;
+        }
+
+        @Override
+        public void change() {
+            changes++;
+            data.clear();
+            buildAll(data, this::build);
+        }
+
+        private boolean build(long pos, NodeCache<TestNode> cache, PathSource<TestConnector> paths, Map<Direction, List<RouteConsumer>> routes) {
+            for (Map.Entry<Direction, TestNode> tup : cache.values()) {
+                Direction direction = tup.getKey();
+                long side = Pos.offset(pos, direction);
+                List<RouteConsumer> consumers = new ObjectArrayList<>();
+                Grid<TestConnector> grid = group.getGridAt(side, direction);
+                if (grid != null) {
+                    for (Path<TestConnector> path : paths.getPaths(grid, pos)) {
+                        if (!path.isEmpty()) {
+                            Node target = path.target();
+                            consumers.add(new RouteConsumer(group.getNodes().get(target.asLong()).value(target.getDirection()), path, target.asLong()));
+                        }
+                    }
+                } else if (group.getNodes().containsKey(side)) {
+                    consumers.add(new RouteConsumer(group.getNodes().get(side).value(direction.getOpposite()), null, side));
+                }
+                if (!consumers.isEmpty()) {
+                    routes.put(direction.getOpposite(), consumers);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected void extend(long pos, Direction direction, List<Path<TestConnector>> paths) {
+            for (Path<TestConnector> path : paths) {
+                Node target = path.target();
+                data.computeIfAbsent(pos, m -> new EnumMap<>(Direction.class)).computeIfAbsent(direction.getOpposite(), d -> new ObjectArrayList<>())
+                        .add(new RouteConsumer(group.getNodes().get(target.asLong()).value(target.getDirection()), path, target.asLong()));
+            }
+        }
+
+        @Override
+        protected void rebuild(long pos) {
+            data.remove(pos);
+            NodeCache<TestNode> cache = group.getNodes().get(pos);
+            if (cache == null) {
+                return;
+            }
+            Map<Direction, List<RouteConsumer>> routes = new EnumMap<>(Direction.class);
+            build(pos, cache, Grid::getPaths, routes);
+            if (!routes.isEmpty()) {
+                data.put(pos, routes);
+            }
+        }
+
+        @Override
+        protected boolean retain(Controller<Integer, TestConnector, TestNode> source, LongSet touched) {
+            partition(source, ((RouteController) source).data, data, touched);
+            return true;
+        }
+
+        @Override
+        protected boolean adopt(Controller<Integer, TestConnector, TestNode> source) {
+            data.clear();
+            data.putAll(((RouteController) source).data);
+            return true;
+        }
+
+        @Override
+        public ITickingController<Integer, TestConnector, TestNode> clone(INode group) {
+            return new RouteController().set(group);
+        }
+
+        /**
+         * @return Describes the routes, every producer side with the targets and the lengths of its routes.
+         */
+        String describe() {
+            Map<Long, List<String>> routes = new TreeMap<>();
+            for (Long2ObjectMap.Entry<Map<Direction, List<RouteConsumer>>> e : data.long2ObjectEntrySet()) {
+                List<String> list = new ArrayList<>();
+                for (Map.Entry<Direction, List<RouteConsumer>> side : e.getValue().entrySet()) {
+                    for (RouteConsumer consumer : side.getValue()) {
+                        list.add(side.getKey() + ":" + consumer.target + "/" + consumer.getDistance());
+                    }
+                }
+                Collections.sort(list);
+                routes.put(e.getLongKey(), list);
+            }
+            return routes.toString();
+        }
+
+        @Override
+        public void getInfo(long pos, @NotNull List<String> list) {
+
+        }
+
+        @Override
+        public void insert(long producerPos, Direction side, Integer transaction, ITransactionModifier modifier) {
+
+        }
+
+        @Override
+        protected void onFrame() {
+
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package tests;
+
+import carbonconfiglib.config.ConfigEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tesseract.TesseractConfig;
+import tesseract.graph.Cache;
+import tesseract.graph.Group;
+import tesseract.graph.NodeCache;
+import tesseract.util.Pos;
+import tests.GraphTest.TestGraph;
+import tests.GraphTest.TestGraph.TestConnector;
+import tests.GraphTest.TestGraph.TestNode;
+import tests.RouteRetentionTest.RouteController;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SleepTest {
+
+    private static final int SLEEP_TICKS = 20;
+    private static final long BRIDGE = Pos.packAll(4, 0, 0);
+
+    private ConfigEntry.IntValue sleep;
+
+    @Before
+    public void setSleep() {
+        sleep = TesseractConfig.SLEEP_TICKS;
+        TesseractConfig.SLEEP_TICKS = new ConfigEntry.IntValue("sleep_ticks", SLEEP_TICKS);
+    }
+
+    @After
+    public void resetSleep() {
+        TesseractConfig.SLEEP_TICKS = sleep;
+    }
+
+    /**
+     * Three networks, each a node at the end of a line of connectors.
+     */
+    private static TestGraph threeNetworks() {
+        TestGraph graph = new GraphTest().new TestGraph(RouteController::new);
+        for (int z = 0; z < 3; z++) {
+            graph.addNode(NodeCache.of(Pos.packAll(0, 0, z * 2), new TestNode()));
+            for (int x = 1; x < 3; x++) {
+                graph.addConnector(Pos.packAll(x, 0, z * 2), Cache.of(new TestConnector()));
+            }
+        }
+        assertEquals(3, graph.countGroups());
+        return graph;
+    }
+
+    /**
+     * Two networks, each with a node on a line of connectors, which the bridge joins into one.
+     */
+    private static TestGraph twoNetworks() {
+        TestGraph graph = new GraphTest().new TestGraph(RouteController::new);
+        graph.addNode(NodeCache.of(Pos.packAll(0, 0, 0), new TestNode()));
+        graph.addNode(NodeCache.of(Pos.packAll(8, 0, 0), new TestNode()));
+        for (int x = 1; x < 8; x++) {
+            if (x != 4) {
+                graph.addConnector(Pos.packAll(x, 0, 0), Cache.of(new TestConnector()));
+            }
+        }
+        assertEquals(2, graph.countGroups());
+        return graph;
+    }
+
+    /**
+     * Ticks the graph, the same way the graph wrapper does.
+     *
+     * @return The ticked groups.
+     */
+    private static List<Group<Integer, TestConnector, TestNode>> tick(TestGraph graph) {
+        List<Group<Integer, TestConnector, TestNode>> ticked = new ArrayList<>();
+        graph.tick(group -> {
+            ticked.add(group);
+            group.getController().tick();
+        });
+        return ticked;
+    }
+
+    private static void sleepAll(TestGraph graph) {
+        for (int i = 0; i < SLEEP_TICKS; i++) {
+            tick(graph);
+        }
+        assertEquals(0, graph.countAwake());
+    }
+
+    private static Group<Integer, TestConnector, TestNode> groupAt(TestGraph graph, int z) {
+        return graph.getGroupAt(Pos.packAll(0, 0, z * 2));
+    }
+
+    @Test
+    public void testIdleGroupsSleep() {
+        TestGraph graph = threeNetworks();
+        assertEquals(3, graph.countAwake());
+        for (int i = 1; i < SLEEP_TICKS; i++) {
+            assertEquals(3, tick(graph).size());
+        }
+        assertEquals(3, graph.countAwake());
+        // The last tick before sleeping still ticks the groups.
+        assertEquals(3, tick(graph).size());
+        assertEquals(0, graph.countAwake());
+        assertTrue(tick(graph).isEmpty());
+        for (Group<Integer, TestConnector, TestNode> group : graph.getGroups().values()) {
+            assertFalse(group.isAwake());
+        }
+    }
+
+    @Test
+    public void testAwakeGroupsAreCompacted() {
+        TestGraph graph = threeNetworks();
+        Group<Integer, TestConnector, TestNode> first = groupAt(graph, 0), busy = groupAt(graph, 1), last = groupAt(graph, 2);
+        for (int i = 0; i < SLEEP_TICKS; i++) {
+            // An insert each tick keeps the middle group awake.
+            busy.getController().flushChanged();
+            tick(graph);
+        }
+        assertEquals(1, graph.countAwake());
+        assertFalse(first.isAwake());
+        assertTrue(busy.isAwake());
+        assertFalse(last.isAwake());
+        assertEquals(Collections.singletonList(busy), tick(graph));
+        // The woken group is put after the kept one.
+        last.getController().flushChanged();
+        assertEquals(2, graph.countAwake());
+        assertEquals(List.of(busy, last), tick(graph));
+    }
+
+    @Test
+    public void testWakeOnInsert() {
+        TestGraph graph = threeNetworks();
+        sleepAll(graph);
+        Group<Integer, TestConnector, TestNode> group = groupAt(graph, 1);
+        // Every insert flushes the changes of the controller first.
+        group.getController().flushChanged();
+        assertTrue(group.isAwake());
+        assertEquals(1, graph.countAwake());
+        assertEquals(Collections.singletonList(group), tick(graph));
+        // A second wake does not put the group on the ticked groups twice.
+        group.getController().flushChanged();
+        assertEquals(1, graph.countAwake());
+    }
+
+    @Test
+    public void testWakeOnChange() {
+        TestGraph graph = threeNetworks();
+        sleepAll(graph);
+        graph.addConnector(Pos.packAll(3, 0, 2), Cache.of(new TestConnector()));
+        Group<Integer, TestConnector, TestNode> group = groupAt(graph, 1);
+        assertTrue(group.isAwake());
+        assertEquals(1, graph.countAwake());
+        assertEquals(Collections.singletonList(group), tick(graph));
+        assertTrue(group.getController() instanceof RouteController);
+
+        sleepAll(graph);
+        graph.removeAt(Pos.packAll(2, 0, 4));
+        assertEquals(Collections.singletonList(groupAt(graph, 2)), tick(graph));
+    }
+
+    @Test
+    public void testMergeOfSleepingGroups() {
+        TestGraph graph = twoNetworks();
+        sleepAll(graph);
+        graph.addConnector(BRIDGE, Cache.of(new TestConnector()));
+        assertEquals(1, graph.countGroups());
+        Group<Integer, TestConnector, TestNode> group = graph.getGroupAt(BRIDGE);
+        assertTrue(group.isAwake());
+        assertEquals(1, graph.countAwake());
+        assertEquals(Collections.singletonList(group), tick(graph));
+        // The merged group sleeps again once it is idle.
+        sleepAll(graph);
+        assertSame(group, graph.getGroupAt(BRIDGE));
+    }
+
+    @Test
+    public void testSplitOfSleepingGroup() {
+        TestGraph graph = twoNetworks();
+        graph.addConnector(BRIDGE, Cache.of(new TestConnector()));
+        sleepAll(graph);
+        graph.removeAt(BRIDGE);
+        assertEquals(2, graph.countGroups());
+        assertEquals(2, graph.countAwake());
+        List<Group<Integer, TestConnector, TestNode>> ticked = tick(graph);
+        assertEquals(2, ticked.size());
+        for (Group<Integer, TestConnector, TestNode> group : graph.getGroups().values()) {
+            assertTrue(group.isAwake());
+            assertTrue(ticked.contains(group));
+        }
+    }
+}
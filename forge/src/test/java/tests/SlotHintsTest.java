@@ -0,0 +1,237 @@
+package tests;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.core.Direction;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.jetbrains.annotations.NotNull;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import tesseract.api.item.IItemNode;
+import tesseract.api.item.ItemConsumer;
+import tesseract.api.item.SlotHints;
+import tesseract.util.ItemHandlerUtils;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlotHintsTest {
+
+    @BeforeClass
+    public static void setup() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @Test
+    public void testStartWrapsAround() {
+        SlotHints hints = new SlotHints();
+        Object storage = new Object();
+        hints.validate(storage, 0);
+        assertEquals(0, hints.getStart(Items.STONE, 8));
+        hints.onInserted(Items.STONE, 6);
+        assertEquals(6, hints.getStart(Items.STONE, 8));
+        assertEquals(0, hints.getStart(Items.DIRT, 8));
+        // A storage which lost slots starts from the first one again.
+        assertEquals(0, hints.getStart(Items.STONE, 4));
+    }
+
+    @Test
+    public void testRefusedSlots() {
+        SlotHints hints = new SlotHints();
+        Object storage = new Object();
+        hints.validate(storage, 0);
+        hints.onRefused(Items.STONE, 3);
+        hints.onInserted(Items.STONE, 5);
+        assertTrue(hints.isFull(Items.STONE, 3));
+        assertFalse(hints.isFull(Items.STONE, 2));
+        assertFalse(hints.isFull(Items.DIRT, 3));
+
+        // Kept while the storage reports no change.
+        hints.validate(storage, 0);
+        assertTrue(hints.isFull(Items.STONE, 3));
+
+        // A change of the contents drops the refused slots, the start slot is kept.
+        hints.validate(storage, 1);
+        assertFalse(hints.isFull(Items.STONE, 3));
+        assertEquals(5, hints.getStart(Items.STONE, 8));
+
+        // A storage which does not count its changes keeps the refused slots for one insert only.
+        hints.validate(storage, -1);
+        hints.onRefused(Items.STONE, 3);
+        hints.validate(storage, -1);
+        assertFalse(hints.isFull(Items.STONE, 3));
+
+        // Another storage drops everything.
+        hints.onRefused(Items.STONE, 3);
+        hints.validate(new Object(), -1);
+        assertFalse(hints.isFull(Items.STONE, 3));
+        assertEquals(0, hints.getStart(Items.STONE, 8));
+    }
+
+    @Test
+    public void testHandlerInsert() {
+        SlotHints hints = new SlotHints();
+        TestStorage storage = new TestStorage(8);
+        assertInsertPath(storage, stack -> ItemHandlerUtils.insertItem(storage, stack, true, hints, storage).getCount());
+
+        // Another storage behind the same side starts from the first slot.
+        TestStorage other = new TestStorage(8);
+        other.setItem(0, new ItemStack(Items.DIRT, 64));
+        assertEquals(0, ItemHandlerUtils.insertItem(other, new ItemStack(Items.STONE, 1), true, hints, other).getCount());
+        assertEquals(2, other.probes);
+    }
+
+    @Test
+    public void testConsumerInsert() {
+        TestStorage storage = new TestStorage(8);
+        ItemConsumer consumer = new ItemConsumer(storage, null, null, Direction.NORTH);
+        assertInsertPath(storage, stack -> consumer.insert(stack, true));
+    }
+
+    /**
+     * Runs the inserts of one item into a storage filling up, and checks the slots probed by each insert.
+     */
+    private static void assertInsertPath(TestStorage storage, Inserter inserter) {
+        for (int i = 0; i < 6; i++) {
+            storage.setItem(i, new ItemStack(Items.DIRT, 64));
+        }
+        storage.changes++;
+
+        // The first insert probes from the first slot on, and the next one starts where it stopped.
+        assertEquals(0, inserter.insert(new ItemStack(Items.STONE, 1)));
+        assertEquals(7, storage.probes);
+        assertEquals(0, inserter.insert(new ItemStack(Items.STONE, 1)));
+        assertEquals(1, storage.probes);
+
+        // Without a reported change, only the start slot is probed again among the refused ones.
+        storage.setItem(6, new ItemStack(Items.DIRT, 64));
+        storage.setItem(7, new ItemStack(Items.DIRT, 64));
+        assertEquals(1, inserter.insert(new ItemStack(Items.STONE, 1)));
+        assertEquals(2, storage.probes);
+
+        // A change brings the refused slots back, the insert wraps around to the freed slot.
+        storage.setItem(2, ItemStack.EMPTY);
+        storage.changes++;
+        assertEquals(0, inserter.insert(new ItemStack(Items.STONE, 1)));
+        assertEquals(5, storage.probes);
+        assertEquals(0, inserter.insert(new ItemStack(Items.STONE, 1)));
+        assertEquals(1, storage.probes);
+    }
+
+    @FunctionalInterface
+    private interface Inserter {
+        int insert(ItemStack stack);
+    }
+
+    /**
+     * A storage counting the slots probed by the last insert, an insert reads the change count once before probing.
+     * Its changes are counted by the tests.
+     */
+    private static class TestStorage implements IItemNode {
+
+        private final ItemStack[] slots;
+        private long changes;
+        private int probes;
+
+        private TestStorage(int size) {
+            slots = new ItemStack[size];
+            Arrays.fill(slots, ItemStack.EMPTY);
+        }
+
+        @Override
+        public long getChangeCount() {
+            probes = 0;
+            return changes;
+        }
+
+        @Override
+        public int getContainerSize() {
+            return slots.length;
+        }
+
+        @Override
+        public ItemStack getItem(int slot) {
+            return slots[slot];
+        }
+
+        @Override
+        public void setItem(int slot, ItemStack stack) {
+            slots[slot] = stack;
+        }
+
+        @Override
+        public @NotNull ItemStack insertItem(int slot, @NotNull ItemStack stack, boolean simulate) {
+            probes++;
+            ItemStack current = slots[slot];
+            if (!current.isEmpty() && current.getItem() != stack.getItem()) {
+                return stack;
+            }
+            int accepted = Math.min(stack.getCount(), 64 - current.getCount());
+            if (accepted <= 0) {
+                return stack;
+            }
+            if (!simulate) {
+                slots[slot] = new ItemStack(stack.getItem(), current.getCount() + accepted);
+            }
+            ItemStack remainder = stack.copy();
+            remainder.setCount(stack.getCount() - accepted);
+            return remainder.getCount() == 0 ? ItemStack.EMPTY : remainder;
+        }
+
+        @Override
+        public @NotNull ItemStack extractItem(int slot, int amount, boolean simulate) {
+            return ItemStack.EMPTY;
+        }
+
+        @Override
+        public int getSlotLimit(int slot) {
+            return 64;
+        }
+
+        @Override
+        public int getPriority(Direction direction) {
+            return 0;
+        }
+
+        @Override
+        public boolean isEmpty(int slot) {
+            return slots[slot].isEmpty();
+        }
+
+        @Override
+        public boolean canOutput() {
+            return false;
+        }
+
+        @Override
+        public boolean canInput() {
+            return true;
+        }
+
+        @Override
+        public boolean canInput(Direction direction) {
+            return true;
+        }
+
+        @Override
+        public boolean canOutput(Direction direction) {
+            return false;
+        }
+
+        @Override
+        public void deserialize(CompoundTag nbt) {
+
+        }
+
+        @Override
+        public CompoundTag serialize(CompoundTag nbt) {
+            return nbt;
+        }
+    }
+}
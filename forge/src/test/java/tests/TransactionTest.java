@@ -0,0 +1,91 @@
+package tests;
+
+import org.junit.Test;
+import tesseract.api.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionTest {
+
+    @Test
+    public void testCallbackOrder() {
+        List<String> log = new ArrayList<>();
+        TestTransaction transaction = new TestTransaction(log);
+        transaction.add("a");
+        transaction.onCommit(t -> log.add(t + ":own"));
+        transaction.add("b");
+        transaction.add("c");
+        transaction.onCommit(t -> log.add(t + ":own"));
+        transaction.withCallbackBefore(1, t -> log.add(t + ":before"));
+        transaction.withCallbackAfter(0, t -> log.add(t + ":after"));
+        transaction.onCommit(t -> log.add(t + ":second"));
+        // Data added later is not wrapped by the callbacks of the earlier data.
+        transaction.add("d");
+        assertTrue(log.isEmpty());
+
+        transaction.commit();
+        assertEquals(List.of(
+                "a:own", "a:after", "a",
+                "b:before", "b:after", "b",
+                "c:before", "c:own", "c:after", "c:second", "c",
+                "d"), log);
+        assertTrue(transaction.commitSuccessfull());
+
+        // A committed transaction neither runs again nor takes new callbacks.
+        transaction.onCommit(t -> log.add(t + ":late"));
+        transaction.commit();
+        assertEquals(12, log.size());
+    }
+
+    @Test
+    public void testCallbacksAfterReset() {
+        List<String> log = new ArrayList<>();
+        TestTransaction transaction = new TestTransaction(log);
+        for (int i = 0; i < 10; i++) {
+            transaction.add("x" + i);
+            transaction.onCommit(t -> log.add(t + ":own"));
+        }
+        transaction.withCallbackAfter(0, t -> log.add(t + ":after"));
+        transaction.commit();
+        assertEquals(30, log.size());
+
+        // The callbacks of the last use are gone, the slots are reused by the new data.
+        log.clear();
+        transaction.reset();
+        transaction.add("y");
+        transaction.add("z");
+        transaction.onCommit(t -> log.add(t + ":own"));
+        transaction.commit();
+        assertEquals(List.of("y", "z:own", "z"), log);
+    }
+
+    private static class TestTransaction extends Transaction<String> {
+
+        private TestTransaction(List<String> log) {
+            super(log::add);
+        }
+
+        private void add(String data) {
+            addData(data);
+        }
+
+        @Override
+        protected void reset() {
+            super.reset();
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public boolean canContinue() {
+            return true;
+        }
+    }
+}